@@ -0,0 +1,132 @@
+package graph;
+
+import social.accounts.Page;
+import util.Benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Mesure le passage à l'échelle de PageRank.compute selon le nombre de
+ * threads, sur une photographie CSR aléatoire. Chaque mesure vérifie que les
+ * rangs obtenus sont identiques au bit près à ceux du calcul séquentiel, et
+ * affiche l'accélération par rapport à celui-ci.
+ * Usage : java graph.PageRankBenchmark [sommets [arcs par sommet
+ * [threads...]]]
+ * Par défaut, les nombres de threads mesurés sont les puissances de 2
+ * jusqu'au nombre de processeurs disponibles.
+ */
+public final class PageRankBenchmark {
+
+    //- CONSTANTES
+
+    /**
+     * Le nombre de sommets par défaut.
+     */
+    private static final int DEFAULT_VERTICES = 500000;
+
+    /**
+     * Le nombre d'arcs par sommet par défaut.
+     */
+    private static final int DEFAULT_ARCS_PER_VERTEX = 10;
+
+    /**
+     * Le nombre d'itérations de chaque calcul.
+     */
+    private static final int ITERATIONS = 20;
+
+    //- CONSTRUCTEURS
+
+    private PageRankBenchmark() {
+    }
+
+    //- COMMANDES
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0])
+                : DEFAULT_VERTICES;
+        int degree = args.length > 1 ? Integer.parseInt(args[1])
+                : DEFAULT_ARCS_PER_VERTEX;
+        List<Integer> threads = new ArrayList<Integer>();
+        for (int i = 2; i < args.length; ++i) {
+            threads.add(Integer.parseInt(args[i]));
+        }
+        if (threads.isEmpty()) {
+            int cpus = Runtime.getRuntime().availableProcessors();
+            for (int t = 1; t < cpus; t *= 2) {
+                threads.add(t);
+            }
+            threads.add(cpus);
+        }
+        CsrGraph graph = randomGraph(n, degree);
+        System.out.println(graph + " - "
+                + Runtime.getRuntime().availableProcessors()
+                + " processors available");
+        double[] reference = rank(graph, 1);
+        double sequential = 0;
+        for (int t : threads) {
+            Benchmark.Result r = Benchmark.run("PageRank.compute (" + t
+                    + " threads)", 2, 5, 1, task(graph, t));
+            if (t == 1) {
+                sequential = r.getNanosPerOp();
+            }
+            if (!Arrays.equals(reference, rank(graph, t))) {
+                throw new AssertionError("ranks depend on parallelism");
+            }
+            if (sequential > 0) {
+                System.out.printf(Locale.ROOT, "    speedup x%.2f%n",
+                        sequential / r.getNanosPerOp());
+            }
+        }
+        System.out.println("sink " + Benchmark.sink());
+    }
+
+    //- OUTILS
+
+    /**
+     * @return Une photographie de n sommets dont chacun a en moyenne degree
+     * successeurs tirés au hasard.
+     */
+    static CsrGraph randomGraph(int n, int degree) {
+        List<Vertex> vertices = new ArrayList<Vertex>(n);
+        for (int i = 0; i < n; ++i) {
+            vertices.add(new Page("v" + i));
+        }
+        Random r = new Random(1);
+        Set<Arc> arcs = new HashSet<Arc>();
+        for (long i = 0; i < (long) n * degree; ++i) {
+            arcs.add(new Arc(vertices.get(r.nextInt(n)),
+                    vertices.get(r.nextInt(n))));
+        }
+        return new CsrGraph(vertices, arcs);
+    }
+
+    /**
+     * @return Les rangs calculés sur graph par threads threads.
+     */
+    private static double[] rank(CsrGraph graph, int threads) {
+        PageRank pr = new PageRank(graph);
+        pr.setTolerance(0);
+        pr.setMaxIterations(ITERATIONS);
+        pr.setParallelism(threads);
+        return pr.compute();
+    }
+
+    /**
+     * @return Une tâche calculant les rangs sur graph par threads threads.
+     */
+    private static Benchmark.Task task(final CsrGraph graph,
+                                       final int threads) {
+        return new Benchmark.Task() {
+            @Override
+            public long run() {
+                return Double.doubleToLongBits(rank(graph, threads)[0]);
+            }
+        };
+    }
+}
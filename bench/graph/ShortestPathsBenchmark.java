@@ -0,0 +1,85 @@
+package graph;
+
+import social.accounts.Page;
+import util.Benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Mesure shortestPathsFrom sur un grand graphe, selon que la photographie
+ * CSR parcourue est réutilisée d'un appel à l'autre ou doit être
+ * reconstruite parce que le graphe a été modifié entre deux appels.
+ * Usage : java graph.ShortestPathsBenchmark [sommets [arcs par sommet]]
+ */
+public final class ShortestPathsBenchmark {
+
+    //- CONSTANTES
+
+    /**
+     * Le nombre de sommets par défaut.
+     */
+    private static final int DEFAULT_VERTICES = 100000;
+
+    /**
+     * Le nombre d'arcs par sommet par défaut.
+     */
+    private static final int DEFAULT_ARCS_PER_VERTEX = 5;
+
+    //- CONSTRUCTEURS
+
+    private ShortestPathsBenchmark() {
+    }
+
+    //- COMMANDES
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0])
+                : DEFAULT_VERTICES;
+        int degree = args.length > 1 ? Integer.parseInt(args[1])
+                : DEFAULT_ARCS_PER_VERTEX;
+        final List<Vertex> vertices = new ArrayList<Vertex>(n);
+        final Graph g = new AdjacencyGraph();
+        for (int i = 0; i < n; ++i) {
+            Vertex x = new Page("v" + i);
+            vertices.add(x);
+            g.addVertex(x);
+        }
+        Random r = new Random(1);
+        for (long i = 0; i < (long) n * degree; ++i) {
+            Vertex x = vertices.get(r.nextInt(n));
+            Vertex y = vertices.get(r.nextInt(n));
+            if (!g.containsArc(x, y)) {
+                g.createArc(x, y);
+            }
+        }
+        System.out.println(g.freeze());
+        final Vertex source = vertices.get(0);
+        Benchmark.run("shortestPathsFrom (unchanged)", 1,
+                new Benchmark.Task() {
+                    @Override
+                    public long run() {
+                        return g.shortestPathsFrom(source).size();
+                    }
+                });
+        final Vertex extra = new Page("extra");
+        Benchmark.run("shortestPathsFrom (modified)", 1,
+                new Benchmark.Task() {
+                    @Override
+                    public long run() {
+                        try {
+                            if (g.containsVertex(extra)) {
+                                g.removeVertex(extra);
+                            } else {
+                                g.addVertex(extra);
+                            }
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                        return g.shortestPathsFrom(source).size();
+                    }
+                });
+        System.out.println("sink " + Benchmark.sink());
+    }
+}
@@ -0,0 +1,179 @@
+package graph;
+
+import social.accounts.User;
+import util.Benchmark;
+import util.Constants;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Compare le coût des opérations d'identité d'un sommet (hashCode, equals,
+ * compareTo) selon que son nom et son hashcode sont conservés, comme pour
+ * User, ou recalculés à chaque appel, comme avant leur mise en cache.
+ * Usage : java graph.VertexBenchmark [nombre de sommets]
+ */
+public final class VertexBenchmark {
+
+    //- CONSTANTES
+
+    /**
+     * Le nombre de sommets par défaut.
+     */
+    private static final int DEFAULT_VERTICES = 20000;
+
+    /**
+     * Le nombre d'arcs par sommet des graphes parcourus.
+     */
+    private static final int ARCS_PER_VERTEX = 5;
+
+    /**
+     * L'âge des utilisateurs créés.
+     */
+    private static final int AGE = 20;
+
+    //- CONSTRUCTEURS
+
+    private VertexBenchmark() {
+    }
+
+    //- COMMANDES
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0])
+                : DEFAULT_VERTICES;
+        List<Vertex> cached = new ArrayList<Vertex>();
+        List<Vertex> uncached = new ArrayList<Vertex>();
+        for (int i = 0; i < n; ++i) {
+            cached.add(new User("Lastname" + i, "Firstname" + i % 97, AGE));
+            uncached.add(new UncachedUser("Lastname" + i,
+                    "Firstname" + i % 97));
+        }
+        lookups("cached", cached);
+        lookups("uncached", uncached);
+        sorts("cached", cached);
+        sorts("uncached", uncached);
+        traversals("cached", cached);
+        traversals("uncached", uncached);
+        System.out.println("sink " + Benchmark.sink());
+    }
+
+    //- OUTILS
+
+    /**
+     * Mesure la recherche de chaque sommet de vertices dans un HashSet.
+     */
+    private static void lookups(String kind, final List<Vertex> vertices) {
+        final Set<Vertex> set = new HashSet<Vertex>(vertices);
+        Benchmark.run("HashSet.contains (" + kind + ")", vertices.size(),
+                new Benchmark.Task() {
+                    @Override
+                    public long run() {
+                        long found = 0;
+                        for (Vertex x : vertices) {
+                            if (set.contains(x)) {
+                                ++found;
+                            }
+                        }
+                        return found;
+                    }
+                });
+    }
+
+    /**
+     * Mesure l'insertion des sommets de vertices dans un TreeSet.
+     */
+    private static void sorts(String kind, final List<Vertex> vertices) {
+        Benchmark.run("TreeSet.add (" + kind + ")", vertices.size(),
+                new Benchmark.Task() {
+                    @Override
+                    public long run() {
+                        return new TreeSet<Vertex>(vertices).size();
+                    }
+                });
+    }
+
+    /**
+     * Mesure un parcours en largeur depuis le premier sommet de vertices,
+     * dans un graphe aléatoire.
+     */
+    private static void traversals(String kind, final List<Vertex> vertices)
+            throws Exception {
+        final Graph g = new AdjacencyGraph();
+        for (Vertex x : vertices) {
+            g.addVertex(x);
+        }
+        Random r = new Random(1);
+        for (int i = 0; i < ARCS_PER_VERTEX * vertices.size(); ++i) {
+            Vertex x = vertices.get(r.nextInt(vertices.size()));
+            Vertex y = vertices.get(r.nextInt(vertices.size()));
+            if (!g.containsArc(x, y)) {
+                g.createArc(x, y);
+            }
+        }
+        Benchmark.run("shortestPathsFrom (" + kind + ")", vertices.size(),
+                new Benchmark.Task() {
+                    @Override
+                    public long run() {
+                        return g.shortestPathsFrom(vertices.get(0),
+                                Integer.MAX_VALUE, Integer.MAX_VALUE).size();
+                    }
+                });
+    }
+
+    //- TYPES IMBRIQUÉS
+
+    /**
+     * Un utilisateur dont le nom est construit et le hashcode calculé à
+     * chaque appel, comme avant leur mise en cache.
+     */
+    private static final class UncachedUser extends Vertex {
+
+        /**
+         * Le nom de famille de l'utilisateur.
+         */
+        private final String lastname;
+
+        /**
+         * Le prénom de l'utilisateur.
+         */
+        private final String firstname;
+
+        UncachedUser(String lastname, String firstname) {
+            this.lastname = lastname;
+            this.firstname = firstname;
+        }
+
+        @Override
+        public String getName() {
+            return lastname + " " + firstname;
+        }
+
+        @Override
+        public int compareTo(Vertex o) {
+            return getName().compareTo(o.getName());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Vertex
+                    && getName().equals(((Vertex) obj).getName());
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 7;
+            hash += Constants.HASH_MULTIPLIER * hash + getName().hashCode();
+            return hash;
+        }
+
+        @Override
+        public String serialize() {
+            return "U:" + lastname + ":" + firstname;
+        }
+    }
+}
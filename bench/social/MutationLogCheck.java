@@ -0,0 +1,561 @@
+package social;
+
+import graph.Graph;
+import graph.Vertex;
+import social.accounts.Page;
+import social.accounts.User;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Future;
+
+/**
+ * Vérifie la restauration d'un réseau journalisé par MutationLog. Un réseau
+ * aléatoire est modifié au hasard sous journal, l'état attendu étant relevé
+ * après chaque enregistrement ; le réseau restauré par recover doit alors
+ * être celui du dernier enregistrement conservé :
+ * - après une fermeture normale, avec ou sans compaction en cours ;
+ * - depuis une copie des fichiers faite après sync, le journal restant
+ *   ouvert, comme après un arrêt brutal ;
+ * - après troncature du dernier segment à chaque octet de ses derniers
+ *   enregistrements, et à intervalles réguliers ailleurs, en-tête compris :
+ *   la fin incomplète doit être effacée et le journal doit pouvoir
+ *   reprendre ;
+ * - après corruption du contenu d'un enregistrement, ou ajout d'octets nuls
+ *   en fin de segment.
+ * Une corruption ailleurs que dans le dernier segment doit être signalée.
+ * Chaque divergence est affichée ; le programme se termine avec le code 1
+ * s'il y en a eu au moins une.
+ * Usage : java social.MutationLogCheck [utilisateurs [relations [modifications]]]
+ */
+public final class MutationLogCheck {
+
+    //- CONSTANTES
+
+    /**
+     * Le nombre d'utilisateurs par défaut.
+     */
+    private static final int DEFAULT_USERS = 200;
+
+    /**
+     * Le nombre de relations par défaut.
+     */
+    private static final int DEFAULT_ARCS = 1000;
+
+    /**
+     * Le nombre de modifications par défaut.
+     */
+    private static final int DEFAULT_MUTATIONS = 600;
+
+    /**
+     * Le nom commun des fichiers du journal.
+     */
+    private static final String NAME = "net";
+
+    /**
+     * La taille de l'en-tête d'un segment.
+     */
+    private static final int HEADER_BYTES = 8;
+
+    /**
+     * La taille de l'en-tête d'un enregistrement.
+     */
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    /**
+     * Le nombre de derniers enregistrements tronqués à chaque octet.
+     */
+    private static final int TORN_RECORDS = 3;
+
+    /**
+     * L'intervalle des troncatures, en octets, avant ces enregistrements.
+     */
+    private static final int TORN_STRIDE = 97;
+
+    //- ATTRIBUTS
+
+    /**
+     * Le nombre de divergences constatées.
+     */
+    private static int failures;
+
+    /**
+     * Le nombre de restaurations vérifiées.
+     */
+    private static int checks;
+
+    //- CONSTRUCTEURS
+
+    private MutationLogCheck() {
+    }
+
+    //- COMMANDES
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_USERS;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ARCS;
+        int mutations = args.length > 2
+                ? Integer.parseInt(args[2]) : DEFAULT_MUTATIONS;
+        File dir = Files.createTempDirectory("wal").toFile();
+        File crash = Files.createTempDirectory("crash").toFile();
+        try {
+            Random r = new Random(1);
+            Map<Long, String> states = new HashMap<Long, String>();
+            SocialNetwork social = SnapshotBenchmark.randomNetwork(
+                    new File(dir, NAME).getPath(), n, m);
+            MutationLog log = social.startLog(new File(dir, NAME));
+            states.put(log.getLastSequence(), contents(social));
+            int step = mutations / 4;
+            for (int k = 0; k < 3; ++k) {
+                mutate(social, step, r, states);
+                log.sync();
+                copy(dir, crash);
+                expect("crash image after sync #" + k, crash, states,
+                        log.getLastSequence());
+            }
+            Future<?> compaction = log.compact();
+            mutate(social, step, r, states);
+            compaction.get();
+            log.sync();
+            copy(dir, crash);
+            expect("crash image after compaction", crash, states,
+                    log.getLastSequence());
+            mutate(social, mutations - 4 * step, r, states);
+            log.close();
+            long last = log.getLastSequence();
+            copy(dir, crash);
+            expect("clean shutdown", crash, states, last);
+            tornTail(dir, crash, states, r);
+            corruptRecords(dir, crash, states);
+            zeroTail(dir, crash, states, last);
+            corruptSealedSegment(dir, crash);
+            System.out.println(checks + " recoveries - " + failures
+                    + " mismatches");
+            if (failures > 0) {
+                System.exit(1);
+            }
+        } finally {
+            clear(dir);
+            clear(crash);
+            dir.delete();
+            crash.delete();
+        }
+    }
+
+    //- OUTILS
+
+    /**
+     * Tronque le dernier segment à chaque octet de ses TORN_RECORDS derniers
+     * enregistrements, et tous les TORN_STRIDE octets avant. Après chaque
+     * restauration, le réseau doit être celui du dernier enregistrement
+     * complet, la fin du segment doit être effacée, et une nouvelle
+     * modification doit survivre à une seconde restauration.
+     */
+    private static void tornTail(File dir, File crash,
+            Map<Long, String> states, Random r) throws Exception {
+        File segment = lastSegment(dir);
+        List<long[]> records = records(segment);
+        long checkpoint = checkpointSequence(dir);
+        long from = records.size() > TORN_RECORDS
+                ? records.get(records.size() - TORN_RECORDS - 1)[0]
+                : HEADER_BYTES;
+        int cuts = 0;
+        for (long cut = segment.length() - 1; cut >= 0; --cut) {
+            if (cut < from && cut % TORN_STRIDE != 0) {
+                continue;
+            }
+            long expected = checkpoint;
+            long valid = cut < HEADER_BYTES ? 0 : HEADER_BYTES;
+            for (long[] record : records) {
+                if (record[0] <= cut) {
+                    expected = record[1];
+                    valid = record[0];
+                }
+            }
+            copy(dir, crash);
+            File torn = new File(crash, segment.getName());
+            truncate(torn, cut);
+            ++cuts;
+            SocialNetwork recovered = expect("segment cut at " + cut,
+                    crash, states, expected);
+            if (recovered == null) {
+                continue;
+            }
+            if (torn.length() != valid) {
+                mismatch("segment cut at " + cut, "length " + valid,
+                        "length " + torn.length());
+            }
+            if (cut % TORN_STRIDE == 0) {
+                resume("resume after cut at " + cut, recovered, crash, r);
+            } else {
+                recovered.getLog().close();
+            }
+        }
+        System.out.println("torn tail - " + cuts + " cuts of "
+                + segment.getName() + " (" + records.size() + " records)");
+    }
+
+    /**
+     * Modifie le réseau restauré dénoté par social, ferme son journal et
+     * vérifie que la restauration suivante retrouve ces modifications.
+     */
+    private static void resume(String name, SocialNetwork social, File crash,
+            Random r) throws Exception {
+        Map<Long, String> states = new HashMap<Long, String>();
+        states.put(social.getLog().getLastSequence(), contents(social));
+        mutate(social, 20, r, states);
+        social.getLog().close();
+        expect(name, crash, states, social.getLog().getLastSequence());
+    }
+
+    /**
+     * Corrompt un octet du contenu de plusieurs enregistrements du dernier
+     * segment : seuls les enregistrements précédents doivent être rejoués.
+     */
+    private static void corruptRecords(File dir, File crash,
+            Map<Long, String> states) throws Exception {
+        File segment = lastSegment(dir);
+        List<long[]> records = records(segment);
+        long previous = HEADER_BYTES;
+        long expected = checkpointSequence(dir);
+        for (int i = 0; i < records.size(); ++i) {
+            long[] record = records.get(i);
+            if (i % 50 == 0 || i == records.size() - 1) {
+                copy(dir, crash);
+                File corrupt = new File(crash, segment.getName());
+                flip(corrupt, previous + RECORD_HEADER_BYTES
+                        + (record[0] - previous - RECORD_HEADER_BYTES) / 2);
+                String name = "corrupt record #" + i;
+                SocialNetwork recovered = expect(name, crash, states,
+                        expected);
+                if (recovered != null) {
+                    recovered.getLog().close();
+                    if (corrupt.length() != previous) {
+                        mismatch(name, "length " + previous,
+                                "length " + corrupt.length());
+                    }
+                }
+            }
+            previous = record[0];
+            expected = record[1];
+        }
+    }
+
+    /**
+     * Ajoute des octets nuls au dernier segment, comme en laisse un système
+     * de fichiers étendant un fichier avant d'en écrire le contenu : ils
+     * doivent être ignorés et effacés.
+     */
+    private static void zeroTail(File dir, File crash,
+            Map<Long, String> states, long last) throws Exception {
+        copy(dir, crash);
+        File segment = new File(crash, lastSegment(dir).getName());
+        long length = segment.length();
+        FileOutputStream output = new FileOutputStream(segment, true);
+        try {
+            output.write(new byte[4096]);
+        } finally {
+            output.close();
+        }
+        SocialNetwork recovered = expect("zero-filled tail", crash, states,
+                last);
+        if (recovered != null) {
+            recovered.getLog().close();
+            if (segment.length() != length) {
+                mismatch("zero-filled tail", "length " + length,
+                        "length " + segment.length());
+            }
+        }
+    }
+
+    /**
+     * Corrompt un enregistrement d'un segment suivi d'un autre segment :
+     * recover doit échouer plutôt que d'ignorer les enregistrements perdus.
+     */
+    private static void corruptSealedSegment(File dir, File crash)
+            throws Exception {
+        copy(dir, crash);
+        File segment = new File(crash, lastSegment(dir).getName());
+        List<long[]> records = records(segment);
+        flip(segment, records.get(records.size() / 2)[0] - 1);
+        int number = Integer.parseInt(segment.getName().substring(
+                (NAME + MutationLog.SEGMENT_EXTENSION).length()));
+        FileOutputStream output = new FileOutputStream(new File(crash,
+                NAME + MutationLog.SEGMENT_EXTENSION + (number + 1)));
+        try {
+            output.write(ByteBuffer.allocate(HEADER_BYTES)
+                    .putInt(MutationLog.MAGIC).putInt(MutationLog.VERSION)
+                    .array());
+        } finally {
+            output.close();
+        }
+        expectFailure("corrupt sealed segment", crash);
+    }
+
+    /**
+     * Applique au réseau journalisé dénoté par social count modifications
+     * aléatoires, en relevant dans states l'état du réseau après chaque
+     * enregistrement.
+     */
+    private static void mutate(SocialNetwork social, int count, Random r,
+            Map<Long, String> states) {
+        MutationLog log = social.getLog();
+        for (int i = 0; i < count; ++i) {
+            List<User> users = new ArrayList<User>(social.getUsers());
+            List<Page> pages = new ArrayList<Page>(social.getPages());
+            User u = users.get(r.nextInt(users.size()));
+            User v = users.get(r.nextInt(users.size()));
+            Page p = pages.get(r.nextInt(pages.size()));
+            try {
+                switch (r.nextInt(10)) {
+                    case 0:
+                        social.createUser("Extra" + r.nextInt(1000),
+                                "Firstname" + i, 18 + r.nextInt(60));
+                        break;
+                    case 1:
+                        social.createPage("ExtraPage" + r.nextInt(1000));
+                        break;
+                    case 2:
+                        if (u != v) {
+                            social.follow(u, v);
+                        }
+                        break;
+                    case 3:
+                        social.like(u, p);
+                        break;
+                    case 4:
+                        social.addAdmin(p, u);
+                        break;
+                    case 5:
+                        for (User w : social.getFollow(u)) {
+                            social.removeFollow(u, w);
+                            break;
+                        }
+                        break;
+                    case 6:
+                        for (Page q : social.getLikes(u)) {
+                            social.removeLike(u, q);
+                            break;
+                        }
+                        break;
+                    case 7:
+                        for (User w : social.getAdminsOf(p)) {
+                            social.removeAdmin(p, w);
+                            break;
+                        }
+                        break;
+                    case 8:
+                        if (users.size() > 2) {
+                            social.removeUser(u.getName());
+                        }
+                        break;
+                    default:
+                        if (pages.size() > 1) {
+                            social.removePage(p.getName());
+                        }
+                        break;
+                }
+            } catch (Exception e) {
+                // Modification refusée (doublon) : rien n'est consigné.
+            }
+            if (!states.containsKey(log.getLastSequence())) {
+                states.put(log.getLastSequence(), contents(social));
+            }
+        }
+    }
+
+    /**
+     * Restaure le réseau journalisé dans le répertoire crash et le compare à
+     * l'état relevé après l'enregistrement numéro sequence.
+     * @return Le réseau restauré, journal ouvert, ou null si la restauration
+     * a échoué.
+     */
+    private static SocialNetwork expect(String name, File crash,
+            Map<Long, String> states, long sequence) {
+        ++checks;
+        SocialNetwork recovered;
+        try {
+            recovered = SocialNetwork.recover(new File(crash, NAME));
+        } catch (IOException e) {
+            mismatch(name, "recovery", e.toString());
+            return null;
+        }
+        long actual = recovered.getLog().getLastSequence();
+        if (actual != sequence) {
+            mismatch(name, "sequence " + sequence, "sequence " + actual);
+        } else if (!contents(recovered).equals(states.get(sequence))) {
+            mismatch(name, "state after record " + sequence,
+                    "a different network");
+        }
+        return recovered;
+    }
+
+    /**
+     * Vérifie que la restauration du réseau journalisé dans le répertoire
+     * crash lève IOException.
+     */
+    private static void expectFailure(String name, File crash)
+            throws IOException {
+        ++checks;
+        try {
+            SocialNetwork recovered = SocialNetwork.recover(
+                    new File(crash, NAME));
+            recovered.getLog().close();
+            mismatch(name, "IOException", "recovery");
+        } catch (IOException e) {
+            // Corruption signalée.
+        }
+    }
+
+    /**
+     * Signale une divergence.
+     */
+    private static void mismatch(String name, String expected,
+            String actual) {
+        ++failures;
+        System.out.println("MISMATCH " + name + "\n  expected " + expected
+                + "\n  actual   " + actual);
+    }
+
+    /**
+     * @return Le contenu du réseau dénoté par social, indépendant de l'ordre
+     * de ses comptes et de leurs arcs.
+     */
+    private static String contents(SocialNetwork social) {
+        Graph graph = social.getGraph();
+        List<String> lines = new ArrayList<String>();
+        for (Vertex x : graph.vertexSet()) {
+            lines.add(x.serialize());
+            List<String> out = new ArrayList<String>();
+            for (Vertex y : graph.vertexFrom(x)) {
+                out.add(y.getName());
+            }
+            Collections.sort(out);
+            lines.add(x.getName() + " -> " + out);
+        }
+        Collections.sort(lines);
+        return lines.toString();
+    }
+
+    /**
+     * @param segment Un segment du journal.
+     * @return La fin et le numéro de chaque enregistrement valide du segment,
+     * dans l'ordre.
+     */
+    private static List<long[]> records(File segment) throws IOException {
+        List<long[]> records = new ArrayList<long[]>();
+        DataInputStream input = new DataInputStream(
+                new FileInputStream(segment));
+        try {
+            long end = HEADER_BYTES;
+            input.readFully(new byte[HEADER_BYTES]);
+            while (end < segment.length()) {
+                int length = input.readInt();
+                input.readInt();
+                long sequence = input.readLong();
+                input.readFully(new byte[length - 8]);
+                end += RECORD_HEADER_BYTES + length;
+                records.add(new long[] {end, sequence});
+            }
+        } finally {
+            input.close();
+        }
+        return records;
+    }
+
+    /**
+     * @return Le numéro du dernier enregistrement intégré au point de
+     * reprise du journal du répertoire dir.
+     */
+    private static long checkpointSequence(File dir) throws IOException {
+        DataInputStream input = new DataInputStream(new FileInputStream(
+                new File(dir, NAME + MutationLog.CHECKPOINT_EXTENSION)));
+        try {
+            input.readInt();
+            return input.readLong();
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * @return Le dernier segment du journal du répertoire dir.
+     */
+    private static File lastSegment(File dir) {
+        File last = null;
+        int number = -1;
+        String prefix = NAME + MutationLog.SEGMENT_EXTENSION;
+        for (File f : dir.listFiles()) {
+            if (f.getName().startsWith(prefix)) {
+                int k = Integer.parseInt(
+                        f.getName().substring(prefix.length()));
+                if (k > number) {
+                    number = k;
+                    last = f;
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Remplace le contenu du répertoire to par une copie des fichiers du
+     * répertoire from.
+     */
+    private static void copy(File from, File to) throws IOException {
+        clear(to);
+        for (File f : from.listFiles()) {
+            Files.copy(f.toPath(), new File(to, f.getName()).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Supprime les fichiers du répertoire dir.
+     */
+    private static void clear(File dir) {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+    }
+
+    /**
+     * Tronque le fichier f à length octets.
+     */
+    private static void truncate(File f, long length) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(f, "rw");
+        try {
+            file.setLength(length);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Inverse les bits de l'octet de position p du fichier f.
+     */
+    private static void flip(File f, long p) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(f, "rw");
+        try {
+            file.seek(p);
+            int b = file.read();
+            file.seek(p);
+            file.write(~b);
+        } finally {
+            file.close();
+        }
+    }
+}
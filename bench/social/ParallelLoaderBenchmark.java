@@ -0,0 +1,88 @@
+package social;
+
+import util.Benchmark;
+
+import java.io.File;
+
+/**
+ * Compare le chargement d'un réseau aléatoire au format texte de
+ * SocialNetwork.save() par NetworkLoader et par ParallelNetworkLoader, pour
+ * plusieurs nombres de threads. Le nombre de processeurs disponibles est
+ * affiché : au-delà, les threads supplémentaires ne font que se partager les
+ * mêmes processeurs.
+ * Usage : java social.ParallelLoaderBenchmark [utilisateurs [relations]]
+ */
+public final class ParallelLoaderBenchmark {
+
+    //- CONSTANTES
+
+    /**
+     * Le nombre d'utilisateurs par défaut.
+     */
+    private static final int DEFAULT_USERS = 50000;
+
+    /**
+     * Le nombre de relations par défaut.
+     */
+    private static final int DEFAULT_ARCS = 1000000;
+
+    /**
+     * Les nombres de threads mesurés.
+     */
+    private static final int[] PARALLELISM = {1, 2, 4, 8};
+
+    //- CONSTRUCTEURS
+
+    private ParallelLoaderBenchmark() {
+    }
+
+    //- COMMANDES
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_USERS;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ARCS;
+        File dir = File.createTempFile("loader", "");
+        if (!dir.delete() || !dir.mkdir()) {
+            throw new IllegalStateException("cannot create " + dir);
+        }
+        SocialNetwork social = SnapshotBenchmark.randomNetwork(
+                new File(dir, "net").getPath(), n, m);
+        social.save();
+        final File text = new File(dir, "net.txt");
+        System.out.println(Runtime.getRuntime().availableProcessors()
+                + " processors - " + text.length() + " bytes - "
+                + social.getGraph().arcCount() + " arcs");
+        social = null;
+        Benchmark.run("NetworkLoader", 2, 5, 1, new Benchmark.Task() {
+            @Override
+            public long run() {
+                try {
+                    return new NetworkLoader().load(text).getUserCount();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        for (final int threads : PARALLELISM) {
+            Benchmark.run("ParallelNetworkLoader (" + threads + " threads)",
+                    2, 5, 1, new Benchmark.Task() {
+                        @Override
+                        public long run() {
+                            ParallelNetworkLoader loader =
+                                    new ParallelNetworkLoader();
+                            loader.setParallelism(threads);
+                            try {
+                                return loader.load(text).getUserCount();
+                            } catch (Exception e) {
+                                throw new IllegalStateException(e);
+                            }
+                        }
+                    });
+        }
+        System.out.println("sink " + Benchmark.sink());
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,391 @@
+package social;
+
+import graph.Graph;
+import graph.Vertex;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Vérifie que ParallelNetworkLoader produit exactement le résultat de
+ * NetworkLoader, pour 1 à 32 threads : même réseau, comptes et arcs dans le
+ * même ordre, ou même erreur, de même message, après le même nombre de
+ * lignes lues. Le fichier d'un réseau aléatoire est chargé tel quel, puis
+ * après injection de fautes à diverses positions : compte déclaré deux fois,
+ * nom non déclaré ou déclaré trop tard, arc en double, ligne non reconnue,
+ * âge invalide, ainsi que des combinaisons de ces fautes.
+ * Chaque divergence est affichée ; le programme se termine avec le code 1
+ * s'il y en a eu au moins une.
+ * Usage : java social.ParallelLoaderCheck [utilisateurs [relations [tirages]]]
+ */
+public final class ParallelLoaderCheck {
+
+    //- CONSTANTES
+
+    /**
+     * Le nombre d'utilisateurs par défaut.
+     */
+    private static final int DEFAULT_USERS = 2000;
+
+    /**
+     * Le nombre de relations par défaut.
+     */
+    private static final int DEFAULT_ARCS = 20000;
+
+    /**
+     * Le nombre par défaut de fichiers comportant des fautes aléatoires.
+     */
+    private static final int DEFAULT_DRAWS = 40;
+
+    /**
+     * Le plus grand nombre de threads vérifié.
+     */
+    private static final int MAX_PARALLELISM = 32;
+
+    /**
+     * Le nom d'un compte qui n'est jamais déclaré.
+     */
+    private static final String MISSING = "Nobody";
+
+    /**
+     * Le séparateur des champs d'une ligne.
+     */
+    private static final char SEPARATOR = NetworkLoader.SEPARATOR;
+
+    //- CONSTRUCTEURS
+
+    private ParallelLoaderCheck() {
+    }
+
+    //- COMMANDES
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_USERS;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ARCS;
+        int draws = args.length > 2
+                ? Integer.parseInt(args[2]) : DEFAULT_DRAWS;
+        File dir = Files.createTempDirectory("loader").toFile();
+        File text = new File(dir, "net.txt");
+        try {
+            SocialNetwork social = SnapshotBenchmark.randomNetwork(
+                    new File(dir, "net").getPath(), n, m);
+            social.save();
+            List<String> lines = Files.readAllLines(text.toPath(),
+                    Charset.defaultCharset());
+            int accounts = social.getUserCount() + social.getPageCount();
+            social = null;
+            List<String> names = new ArrayList<String>();
+            List<List<String>> cases = cases(lines, accounts, draws, names);
+            int failures = 0;
+            for (int i = 0; i < cases.size(); ++i) {
+                write(text, cases.get(i), i != 1, i == 2);
+                failures += check(names.get(i), text);
+            }
+            System.out.println(cases.size() + " files - " + failures
+                    + " mismatches");
+            if (failures > 0) {
+                System.exit(1);
+            }
+        } finally {
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    //- OUTILS
+
+    /**
+     * @param lines Les lignes d'un fichier valide.
+     * @param accounts Le nombre de lignes de comptes, en tête du fichier.
+     * @param draws Le nombre de fichiers à fautes aléatoires.
+     * @param names Reçoit le nom de chaque fichier produit.
+     * @return Les fichiers à vérifier : le fichier valide, sans saut de
+     * ligne final, avec des fins de ligne CRLF, puis des fichiers fautifs.
+     */
+    private static List<List<String>> cases(List<String> lines, int accounts,
+            int draws, List<String> names) {
+        int size = lines.size();
+        int[] positions = {0, size / 3, size / 2, size - 1};
+        List<List<String>> cases = new ArrayList<List<String>>();
+        for (String name : new String[] {"valid", "no final newline",
+                "CRLF"}) {
+            cases.add(lines);
+            names.add(name);
+        }
+        cases.add(new ArrayList<String>());
+        names.add("empty");
+        for (int p : positions) {
+            cases.add(duplicateVertex(lines, accounts / 2, Math.max(p,
+                    accounts / 2 + 1)));
+            names.add("duplicate vertex at " + p);
+            cases.add(missingName(lines, Math.max(p, accounts)));
+            names.add("missing target at " + p);
+            cases.add(insert(lines, p, line('A', MISSING, account(lines.get(0)))));
+            names.add("missing source at " + p);
+            cases.add(duplicateArc(lines, Math.max(p, accounts), size - 1));
+            names.add("duplicate arc line at " + p);
+            cases.add(insert(lines, p, line('X', String.valueOf(p))));
+            names.add("unrecognized line at " + p);
+            cases.add(insert(lines, p, line('U', "Late" + p, "First", "young")));
+            names.add("invalid age at " + p);
+            cases.add(insert(lines, p, ""));
+            names.add("empty line at " + p);
+        }
+        cases.add(declareLast(lines, accounts - 1));
+        names.add("account declared after its arcs");
+        List<String> twice = duplicateArc(lines, size - 1, size / 2);
+        cases.add(duplicateArc(twice, accounts, size + 1));
+        names.add("two duplicate arcs");
+        cases.add(missingName(duplicateArc(lines, accounts, accounts), size));
+        names.add("duplicate arc before missing name");
+        cases.add(duplicateVertex(missingName(lines, accounts), 0, size));
+        names.add("missing name before duplicate vertex");
+        Random r = new Random(1);
+        for (int i = 0; i < draws; ++i) {
+            List<String> faulty = lines;
+            int faults = 1 + r.nextInt(3);
+            for (int k = 0; k < faults; ++k) {
+                faulty = inject(faulty, accounts, r);
+            }
+            cases.add(faulty);
+            names.add("random faults #" + i);
+        }
+        return cases;
+    }
+
+    /**
+     * @param lines Les lignes d'un fichier.
+     * @param accounts Le nombre de lignes de comptes du fichier valide.
+     * @param r Le générateur utilisé.
+     * @return Les lignes dénotées par lines, avec une faute aléatoire.
+     */
+    private static List<String> inject(List<String> lines, int accounts,
+            Random r) {
+        int size = lines.size();
+        int p = r.nextInt(size);
+        int arc = accounts + r.nextInt(size - accounts);
+        switch (r.nextInt(5)) {
+            case 0:
+                return duplicateVertex(lines, r.nextInt(accounts), p);
+            case 1:
+                return missingName(lines, arc);
+            case 2:
+                return duplicateArc(lines, arc, p);
+            case 3:
+                return insert(lines, p, line('Q', String.valueOf(p)));
+            default:
+                return selfDuplicate(lines, arc);
+        }
+    }
+
+    /**
+     * @return Une copie de lines où line est insérée à la position p.
+     */
+    private static List<String> insert(List<String> lines, int p,
+            String line) {
+        List<String> result = new ArrayList<String>(lines);
+        result.add(Math.min(p, result.size()), line);
+        return result;
+    }
+
+    /**
+     * @return Une copie de lines où la ligne de compte i est répétée à la
+     * position p.
+     */
+    private static List<String> duplicateVertex(List<String> lines, int i,
+            int p) {
+        return insert(lines, p, lines.get(i));
+    }
+
+    /**
+     * @return Une copie de lines où la ligne i, si c'est une ligne d'arcs,
+     * est répétée à la position p.
+     */
+    private static List<String> duplicateArc(List<String> lines, int i,
+            int p) {
+        return isArcLine(lines.get(i))
+                ? insert(lines, p, lines.get(i)) : lines;
+    }
+
+    /**
+     * @return Une copie de lines où la ligne i, si c'est une ligne d'arcs,
+     * se termine par un nom non déclaré.
+     */
+    private static List<String> missingName(List<String> lines, int i) {
+        if (i >= lines.size() || !isArcLine(lines.get(i))) {
+            return lines;
+        }
+        List<String> result = new ArrayList<String>(lines);
+        result.set(i, lines.get(i) + SEPARATOR + MISSING);
+        return result;
+    }
+
+    /**
+     * @return Une copie de lines où la ligne i, si c'est une ligne d'arcs,
+     * répète son premier compte d'arrivée.
+     */
+    private static List<String> selfDuplicate(List<String> lines, int i) {
+        String line = lines.get(i);
+        int first = line.indexOf(SEPARATOR, 2);
+        if (!isArcLine(line) || first < 0) {
+            return lines;
+        }
+        int end = line.indexOf(SEPARATOR, first + 1);
+        String target = line.substring(first + 1,
+                end < 0 ? line.length() : end);
+        List<String> result = new ArrayList<String>(lines);
+        result.set(i, line + SEPARATOR + target);
+        return result;
+    }
+
+    /**
+     * @return Une copie de lines où la ligne de compte i est déplacée à la
+     * fin du fichier, après les arcs qui la désignent.
+     */
+    private static List<String> declareLast(List<String> lines, int i) {
+        List<String> result = new ArrayList<String>(lines);
+        result.add(result.remove(i));
+        return result;
+    }
+
+    /**
+     * @param kind Le type d'une ligne.
+     * @param fields Les champs de la ligne.
+     * @return La ligne de type kind formée des champs dénotés par fields.
+     */
+    private static String line(char kind, String... fields) {
+        StringBuilder b = new StringBuilder().append(kind);
+        for (String field : fields) {
+            b.append(SEPARATOR).append(field);
+        }
+        return b.toString();
+    }
+
+    /**
+     * @param line Une ligne du fichier.
+     * @return Indique si line est une ligne d'arcs.
+     */
+    private static boolean isArcLine(String line) {
+        return line.length() > 1 && line.charAt(0) == 'A'
+                && line.charAt(1) == SEPARATOR;
+    }
+
+    /**
+     * @param line Une ligne de compte.
+     * @return Le nom du compte déclaré par line.
+     */
+    private static String account(String line) {
+        return line.substring(2, NetworkLoader.fieldEnd(line, 2));
+    }
+
+    /**
+     * Écrit les lignes dénotées par lines dans le fichier f.
+     * @param finalNewline Indique si la dernière ligne se termine par un saut
+     * de ligne.
+     * @param crlf Indique si les lignes se terminent par CRLF.
+     */
+    private static void write(File f, List<String> lines,
+            boolean finalNewline, boolean crlf) throws IOException {
+        Writer output = new OutputStreamWriter(new FileOutputStream(f),
+                Charset.defaultCharset());
+        try {
+            String newline = crlf ? "\r\n" : "\n";
+            for (int i = 0; i < lines.size(); ++i) {
+                output.write(lines.get(i));
+                if (finalNewline || i < lines.size() - 1) {
+                    output.write(newline);
+                }
+            }
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Charge le fichier f par NetworkLoader puis par ParallelNetworkLoader
+     * avec 1 à MAX_PARALLELISM threads, et affiche chaque divergence.
+     * @param name Le nom du cas vérifié.
+     * @param f Le fichier à charger.
+     * @return Le nombre de divergences.
+     */
+    private static int check(String name, File f) {
+        NetworkLoader sequential = new NetworkLoader();
+        String expected;
+        try {
+            expected = outcome(sequential.load(f), sequential.getLineCount(),
+                    sequential.getArcCount());
+        } catch (Throwable e) {
+            expected = failure(e, sequential.getLineCount());
+        }
+        int failures = 0;
+        for (int threads = 1; threads <= MAX_PARALLELISM; ++threads) {
+            ParallelNetworkLoader parallel = new ParallelNetworkLoader();
+            parallel.setParallelism(threads);
+            String actual;
+            try {
+                actual = outcome(parallel.load(f), parallel.getLineCount(),
+                        parallel.getArcCount());
+            } catch (Throwable e) {
+                actual = failure(e, parallel.getLineCount());
+            }
+            if (!actual.equals(expected)) {
+                ++failures;
+                System.out.println("MISMATCH " + name + " (" + threads
+                        + " threads)\n  expected " + firstLine(expected)
+                        + "\n  actual   " + firstLine(actual));
+            }
+        }
+        System.out.println(name + " - " + firstLine(expected));
+        return failures;
+    }
+
+    /**
+     * @return La description d'un chargement réussi : nombres de lignes et
+     * d'arcs, puis le réseau au format de save(), dans l'ordre de ses
+     * comptes et de leurs arcs.
+     */
+    private static String outcome(SocialNetwork social, long lines,
+            long arcs) {
+        Graph graph = social.getGraph();
+        StringBuilder b = new StringBuilder();
+        b.append("loaded ").append(lines).append(" lines - ").append(arcs)
+                .append(" arcs - ").append(social.getName()).append('\n');
+        for (Vertex v : graph.vertexSet()) {
+            b.append(v.serialize()).append('\n');
+        }
+        for (Vertex v : graph.vertexSet()) {
+            Set<Vertex> out = graph.vertexFrom(v);
+            if (out.size() > 0) {
+                b.append(SocialNetwork.arcLine(v, out)).append('\n');
+            }
+        }
+        return b.toString();
+    }
+
+    /**
+     * @return La description d'un chargement échoué.
+     */
+    private static String failure(Throwable e, long lines) {
+        return e.getClass().getName() + ": " + e.getMessage() + " (line "
+                + lines + ")";
+    }
+
+    /**
+     * @return La première ligne de s.
+     */
+    private static String firstLine(String s) {
+        int end = s.indexOf('\n');
+        return end < 0 ? s : s.substring(0, end);
+    }
+}
@@ -0,0 +1,146 @@
+package social;
+
+import social.accounts.Page;
+import social.accounts.User;
+import util.Benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compare le chargement d'un réseau aléatoire depuis le format texte de
+ * SocialNetwork.save(), depuis un instantané (NetworkSnapshot) et depuis un
+ * instantané indexé (MappedSnapshot).
+ * Usage : java social.SnapshotBenchmark [utilisateurs [relations]]
+ */
+public final class SnapshotBenchmark {
+
+    //- CONSTANTES
+
+    /**
+     * Le nombre d'utilisateurs par défaut.
+     */
+    private static final int DEFAULT_USERS = 50000;
+
+    /**
+     * Le nombre de relations par défaut.
+     */
+    private static final int DEFAULT_ARCS = 1000000;
+
+    /**
+     * Le nombre de pages par utilisateur.
+     */
+    private static final int USERS_PER_PAGE = 10;
+
+    /**
+     * L'âge minimal des utilisateurs créés.
+     */
+    private static final int MIN_AGE = 16;
+
+    /**
+     * L'écart maximal entre les âges des utilisateurs créés.
+     */
+    private static final int AGE_RANGE = 70;
+
+    //- CONSTRUCTEURS
+
+    private SnapshotBenchmark() {
+    }
+
+    //- COMMANDES
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_USERS;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ARCS;
+        File dir = File.createTempFile("snapshot", "");
+        if (!dir.delete() || !dir.mkdir()) {
+            throw new IllegalStateException("cannot create " + dir);
+        }
+        SocialNetwork social = randomNetwork(new File(dir, "net").getPath(),
+                n, m);
+        social.save();
+        final File text = new File(dir, "net.txt");
+        final File snapshot = new File(dir, "net" + NetworkSnapshot.EXTENSION);
+        final File indexed = new File(dir, "indexed"
+                + NetworkSnapshot.EXTENSION);
+        NetworkSnapshot.write(social, snapshot);
+        MappedSnapshot.write(social, indexed);
+        System.out.println(social.getUserCount() + " users - "
+                + social.getPageCount() + " pages - "
+                + social.getGraph().arcCount() + " arcs");
+        run("init (text)", text);
+        run("init (snapshot)", snapshot);
+        run("init (indexed snapshot)", indexed);
+        System.out.println("sink " + Benchmark.sink());
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    //- OUTILS
+
+    /**
+     * Mesure le chargement du fichier dénoté par f.
+     */
+    private static void run(String name, final File f) {
+        Benchmark.run(name, 2, 5, 1, new Benchmark.Task() {
+            @Override
+            public long run() {
+                try {
+                    return SocialNetwork.init(f).getUserCount();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return Un réseau nommé name de n utilisateurs et n / USERS_PER_PAGE
+     * pages, relié par environ m relations tirées au hasard.
+     */
+    static SocialNetwork randomNetwork(String name, int n, int m)
+            throws Exception {
+        SocialNetwork social = new SocialNetwork(name);
+        Random r = new Random(1);
+        List<User> users = new ArrayList<User>(n);
+        for (int i = 0; i < n; ++i) {
+            User u = new User("Lastname" + i, "Firstname" + i % 97,
+                    MIN_AGE + r.nextInt(AGE_RANGE));
+            social.addVertex(u);
+            users.add(u);
+        }
+        List<Page> pages = new ArrayList<Page>();
+        for (int i = 0; i <= n / USERS_PER_PAGE; ++i) {
+            Page p = new Page("Page" + i);
+            social.addVertex(p);
+            pages.add(p);
+        }
+        for (int i = 0; i < m; ++i) {
+            User u = users.get(r.nextInt(n));
+            switch (r.nextInt(USERS_PER_PAGE)) {
+                case 0:
+                    Page p = pages.get(r.nextInt(pages.size()));
+                    if (!social.containsArc(u, p)) {
+                        social.like(u, p);
+                    }
+                    break;
+                case 1:
+                    Page q = pages.get(r.nextInt(pages.size()));
+                    if (!social.containsArc(q, u)) {
+                        social.addAdmin(q, u);
+                    }
+                    break;
+                default:
+                    User v = users.get(r.nextInt(n));
+                    if (!social.containsArc(u, v)) {
+                        social.follow(u, v);
+                    }
+            }
+        }
+        return social;
+    }
+}
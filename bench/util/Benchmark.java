@@ -0,0 +1,190 @@
+package util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Un banc d'essai minimal, lancé depuis un main : une tâche est exécutée
+ * plusieurs fois pour chauffer la JVM, puis mesurée sur plusieurs
+ * itérations dont on retient la médiane. Lorsque la JVM le permet, les
+ * octets alloués par le thread courant sont également mesurés.
+ * Les résultats sont affichés sur une ligne par tâche, sous la forme
+ * nom - temps par opération - octets alloués par opération.
+ */
+public final class Benchmark {
+
+    //- CONSTANTES
+
+    /**
+     * Le nombre d'itérations de chauffe par défaut.
+     */
+    public static final int DEFAULT_WARMUPS = 5;
+
+    /**
+     * Le nombre d'itérations mesurées par défaut.
+     */
+    public static final int DEFAULT_ITERATIONS = 10;
+
+    //- ATTRIBUTS
+
+    /**
+     * Accumule les résultats des tâches, afin que le compilateur ne puisse
+     * pas les éliminer.
+     */
+    private static long sink;
+
+    //- CONSTRUCTEURS
+
+    private Benchmark() {
+    }
+
+    //- COMMANDES
+
+    /**
+     * Mesure la tâche dénotée par task avec les nombres d'itérations par
+     * défaut.
+     * @see #run(String, int, int, long, Task)
+     */
+    public static Result run(String name, long ops, Task task) {
+        return run(name, DEFAULT_WARMUPS, DEFAULT_ITERATIONS, ops, task);
+    }
+
+    /**
+     * Mesure la tâche dénotée par task et affiche le résultat.
+     * @pre
+     *      name != null && task != null
+     *      warmups >= 0 && iterations > 0 && ops > 0
+     * @param name Le nom de la mesure.
+     * @param warmups Le nombre d'exécutions de chauffe.
+     * @param iterations Le nombre d'exécutions mesurées.
+     * @param ops Le nombre d'opérations effectuées par une exécution.
+     * @param task La tâche à mesurer.
+     * @return Le résultat de la mesure.
+     */
+    public static Result run(String name, int warmups, int iterations,
+                             long ops, Task task) {
+        Assert.check(name != null, "name is null");
+        Assert.check(task != null, "task is null");
+        Assert.check(warmups >= 0, "warmups must not be negative");
+        Assert.check(iterations > 0, "iterations must be positive");
+        Assert.check(ops > 0, "ops must be positive");
+        for (int i = 0; i < warmups; ++i) {
+            sink += task.run();
+        }
+        long[] nanos = new long[iterations];
+        long[] bytes = new long[iterations];
+        for (int i = 0; i < iterations; ++i) {
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            sink += task.run();
+            nanos[i] = System.nanoTime() - start;
+            bytes[i] = allocatedBytes() - allocated;
+        }
+        Result r = new Result(name, median(nanos) / (double) ops,
+                allocatedBytes() < 0 ? -1 : median(bytes) / (double) ops);
+        System.out.println(r);
+        return r;
+    }
+
+    /**
+     * @return La somme des résultats des tâches mesurées, à afficher en fin
+     * de banc pour empêcher leur élimination.
+     */
+    public static long sink() {
+        return sink;
+    }
+
+    //- OUTILS
+
+    /**
+     * @return Le nombre d'octets alloués par le thread courant depuis son
+     * démarrage, ou -1 si la JVM ne le mesure pas.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * @return La médiane des valeurs de values.
+     */
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    //- TYPES IMBRIQUÉS
+
+    /**
+     * Une tâche à mesurer.
+     */
+    public interface Task {
+
+        /**
+         * Exécute la tâche.
+         * @return Une valeur dépendant du travail effectué.
+         */
+        long run();
+    }
+
+    /**
+     * Le résultat d'une mesure.
+     */
+    public static final class Result {
+
+        /**
+         * Le nom de la mesure.
+         */
+        private final String name;
+
+        /**
+         * La durée médiane d'une opération, en nanosecondes.
+         */
+        private final double nanosPerOp;
+
+        /**
+         * Le nombre médian d'octets alloués par opération, -1 s'il n'a pas
+         * été mesuré.
+         */
+        private final double bytesPerOp;
+
+        Result(String name, double nanosPerOp, double bytesPerOp) {
+            this.name = name;
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        /**
+         * @return La durée médiane d'une opération, en nanosecondes.
+         */
+        public double getNanosPerOp() {
+            return nanosPerOp;
+        }
+
+        /**
+         * @return Le nombre médian d'octets alloués par opération, -1 s'il
+         * n'a pas été mesuré.
+         */
+        public double getBytesPerOp() {
+            return bytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            String time = nanosPerOp >= 1e6
+                    ? String.format(Locale.ROOT, "%.2f ms/op", nanosPerOp / 1e6)
+                    : String.format(Locale.ROOT, "%.1f ns/op", nanosPerOp);
+            String alloc = bytesPerOp < 0 ? "n/a"
+                    : String.format(Locale.ROOT, "%.1f B/op", bytesPerOp);
+            return String.format(Locale.ROOT, "%-40s %16s %16s", name, time,
+                    alloc);
+        }
+    }
+}
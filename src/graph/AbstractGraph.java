@@ -0,0 +1,611 @@
+package graph;
+
+import graph.exceptions.DuplicateArc;
+import graph.exceptions.VertexNotFound;
+import util.Assert;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Une implémentation partielle de l'interface Graph regroupant les
+ * algorithmes qui ne dépendent que des opérations générales du graphe
+ * (vertexSet, vertexFrom, ...). Les implémentations concrètes n'ont ainsi
+ * qu'à fournir leur représentation des sommets et des arcs.
+ * Les index communs à toutes les représentations (sommets par nom, triés
+ * par nom et regroupés par degré) sont tenus ici : une implémentation
+ * concrète les maintient en signalant chaque ajout et retrait de sommet ou
+ * d'arc par vertexAdded, vertexRemoved, arcAdded et arcRemoved, et en
+ * obtient les requêtes correspondantes (findVertexByName, vertexSetByName,
+ * vertexSetByDegree, outDegree, topKByOutDegree...).
+ */
+public abstract class AbstractGraph implements Graph {
+
+    //- CONSTANTES
+
+    /**
+     * Le nombre de sommets à partir duquel shortestPathsFrom parcourt une
+     * photographie CSR du graphe plutôt que le graphe lui-même.
+     */
+    private static final int LARGE_GRAPH = 10000;
+
+    //- ATTRIBUTS
+
+    /**
+     * La dernière photographie construite par freeze, ou null si le graphe a
+     * été modifié depuis.
+     */
+    private CsrGraph snapshot;
+
+    /**
+     * Indexe les sommets de ce graphe par leur nom.
+     */
+    private final VertexRegistry registry;
+
+    /**
+     * Les sommets de ce graphe triés par nom.
+     */
+    private final SortedSet<Vertex> sortedVertices;
+
+    /**
+     * Les degrés des sommets de ce graphe.
+     */
+    private final DegreeIndex degrees;
+
+    //- CONSTRUCTEURS
+
+    protected AbstractGraph() {
+        this.registry = new VertexRegistry();
+        this.sortedVertices = new TreeSet<Vertex>();
+        this.degrees = new DegreeIndex();
+    }
+
+    //- MÉTHODES
+
+    /**
+     * Recherche l'objet décrivant le sommet dont le nom est strictement égal à
+     * la chaine dénotée par search. On considère le nom d'un graphe comme
+     * étant unique, un nom ne peut donc être attribué qu'à un seul graphe.
+     *
+     * @param search Le nom du sommet à rechercher le graphe.
+     * @return L'objet décrivant le sommet trouvé, ou null s'il n'existe pas.
+     */
+    @Override
+    public Vertex findVertexByName(String search) {
+        Assert.check(search != null, "search must not be null");
+        return registry.find(search);
+    }
+
+    /**
+     * @return Une vue non modifiable sur l'ensemble des sommets contenus dans
+     * ce graphe triés dans l'ordre alphabétique par leur nom.
+     */
+    @Override
+    public SortedSet<Vertex> vertexSetByName() {
+        return Collections.unmodifiableSortedSet(sortedVertices);
+    }
+
+    /**
+     * @return Un ensemble non modifiable contenant tous les sommets contenus
+     * dans ce graphe triés par degré sortant décroissant, puis par nom (voir
+     * DegreeIndex.vertexSetByOutDegree).
+     */
+    @Override
+    public SortedSet<Vertex> vertexSetByDegree() {
+        return degrees.vertexSetByOutDegree();
+    }
+
+    /**
+     * @param x Un sommet du graphe.
+     * @return Le nombre d'arcs partant du sommet dénoté par x.
+     * @throws VertexNotFound Si le sommet n'appartient pas à ce graphe.
+     */
+    @Override
+    public int outDegree(Vertex x) throws VertexNotFound {
+        Assert.check(x != null, "x must not be null");
+        if (!degrees.contains(x)) {
+            throw new VertexNotFound(x);
+        }
+        return degrees.outDegree(x);
+    }
+
+    /**
+     * @param x Un sommet du graphe.
+     * @return Le nombre d'arcs arrivant au sommet dénoté par x.
+     * @throws VertexNotFound Si le sommet n'appartient pas à ce graphe.
+     */
+    @Override
+    public int inDegree(Vertex x) throws VertexNotFound {
+        Assert.check(x != null, "x must not be null");
+        if (!degrees.contains(x)) {
+            throw new VertexNotFound(x);
+        }
+        return degrees.inDegree(x);
+    }
+
+    /**
+     * @param k Le nombre de sommets souhaités.
+     * @return Les k sommets de plus fort degré sortant, par degré décroissant
+     * puis par nom.
+     */
+    @Override
+    public List<Vertex> topKByOutDegree(int k) {
+        return degrees.topKByOutDegree(k);
+    }
+
+    /**
+     * @param k Le nombre de sommets souhaités.
+     * @return Les k sommets de plus fort degré entrant, par degré décroissant
+     * puis par nom.
+     */
+    @Override
+    public List<Vertex> topKByInDegree(int k) {
+        return degrees.topKByInDegree(k);
+    }
+
+    /**
+     * @param min Le degré sortant minimal.
+     * @param max Le degré sortant maximal.
+     * @return Les sommets dont le degré sortant est compris entre min et max
+     * inclus, par degré décroissant puis par nom.
+     */
+    @Override
+    public List<Vertex> verticesByOutDegree(int min, int max) {
+        return degrees.withOutDegree(min, max);
+    }
+
+    /**
+     * @param min Le degré entrant minimal.
+     * @param max Le degré entrant maximal.
+     * @return Les sommets dont le degré entrant est compris entre min et max
+     * inclus, par degré décroissant puis par nom.
+     */
+    @Override
+    public List<Vertex> verticesByInDegree(int min, int max) {
+        return degrees.withInDegree(min, max);
+    }
+
+    /**
+     * Vérifie que chaque arc peut être créé, puis les crée un à un via
+     * createArc(Vertex, Vertex, ArcLabel).
+     * @param arcs Les arcs à créer.
+     */
+    @Override
+    public void createArcs(List<Arc> arcs)
+            throws DuplicateArc, VertexNotFound {
+        Assert.check(arcs != null, "arcs must not be null");
+        for (Arc a : arcs) {
+            if (!containsVertex(a.getFrom())) {
+                throw new VertexNotFound(a.getFrom());
+            }
+            if (!containsVertex(a.getTo())) {
+                throw new VertexNotFound(a.getTo());
+            }
+            if (containsArc(a.getFrom(), a.getTo())) {
+                throw new DuplicateArc(a);
+            }
+        }
+        for (Arc a : arcs) {
+            createArc(a.getFrom(), a.getTo(), a.getLabel());
+        }
+    }
+
+    /**
+     * Calcule pour chaque sommet du graphe la distance du plus court chemin le
+     * séparant du sommet dénoté par x. Par définition, dist(x, x) == 0. Par
+     * définition, si il n'existe pas de chemin reliant x à un sommet y
+     * quelconque, alors dist(x, y) == Integer.MAX_VALUE.
+     * Si la photographie CSR du graphe est à jour, le parcours l'utilise avec
+     * les tableaux de travail réutilisables de CsrGraph.traverse : seule la
+     * Map résultat est allouée. Sinon il parcourt directement le graphe, en
+     * O(V + E), plutôt que de reconstruire une photographie après chaque
+     * modification (voir freeze).
+     * @param x Sommet source à partir duquel calculer les distances.
+     * @return Une Map liant chaque sommet du graphe à sa distance le séparant
+     * du sommet dénoté par x.
+     */
+    @Override
+    public Map<Vertex, Integer> shortestPathsFrom(Vertex x) {
+        Assert.check(containsVertex(x), "x does not belong to this graph.");
+        if (vertexCount() >= LARGE_GRAPH) {
+            return largeShortestPathsFrom(x);
+        }
+        Map<Vertex, Integer> distances =
+                new HashMap<Vertex, Integer>(2 * vertexCount());
+        CsrGraph csr = snapshot;
+        if (csr != null) {
+            for (int v = 0; v < csr.vertexCount(); ++v) {
+                distances.put(csr.vertexAt(v), Integer.MAX_VALUE);
+            }
+            csr.traverse(csr.indexOf(x), Integer.MAX_VALUE,
+                    new DistanceCollector(csr, distances));
+            return distances;
+        }
+        for (Vertex v : vertexSet()) {
+            distances.put(v, Integer.MAX_VALUE);
+        }
+        distances.put(x, 0);
+        Queue<Vertex> pqueue = new ArrayDeque<Vertex>();
+        pqueue.add(x);
+        while (!pqueue.isEmpty()) {
+            Vertex v = pqueue.poll();
+            int yDistance = distances.get(v) + 1;
+            for (Vertex y : vertexFrom(v)) {
+                if (distances.get(y) == Integer.MAX_VALUE) {
+                    distances.put(y, yDistance);
+                    pqueue.offer(y);
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Calcule la distance du plus court chemin séparant le sommet dénoté par
+     * x des sommets situés à au plus maxDepth arcs de lui. Le parcours
+     * s'arrête dès que maxResults sommets ont été atteints, les plus proches
+     * en premier. Les sommets non atteints ne figurent pas dans le résultat.
+     * Les successeurs de chaque sommet sont découverts dans l'ordre de leur
+     * nom : en cas de troncature, les sommets retenus sont les maxResults
+     * premiers découverts dans cet ordre, quel que soit le chemin emprunté.
+     * Si la photographie CSR du graphe est à jour, le parcours l'utilise (voir
+     * CsrGraph.traverse, dont les lignes sont triées dans ce même ordre) ;
+     * sinon il parcourt directement le graphe, une photographie coûtant bien
+     * plus à construire que le voisinage borné à explorer.
+     * @param x Sommet source à partir duquel calculer les distances.
+     * @param maxDepth La distance maximale des sommets à atteindre.
+     * @param maxResults Le nombre maximal de sommets à atteindre, x compris.
+     * @return Une Map liant chaque sommet atteint à sa distance le séparant
+     * du sommet dénoté par x, itérée par distance croissante.
+     */
+    @Override
+    public Map<Vertex, Integer> shortestPathsFrom(Vertex x, int maxDepth,
+                                                  int maxResults) {
+        Assert.check(containsVertex(x), "x does not belong to this graph.");
+        Assert.check(maxDepth >= 0, "maxDepth must not be negative");
+        Assert.check(maxResults > 0, "maxResults must be positive");
+        Map<Vertex, Integer> distances = new LinkedHashMap<Vertex, Integer>();
+        CsrGraph csr = snapshot;
+        if (csr != null) {
+            csr.traverse(csr.indexOf(x), maxDepth, maxResults,
+                    new DistanceCollector(csr, distances));
+            return distances;
+        }
+        distances.put(x, 0);
+        Queue<Vertex> pqueue = new ArrayDeque<Vertex>();
+        pqueue.add(x);
+        while (!pqueue.isEmpty() && distances.size() < maxResults) {
+            Vertex v = pqueue.poll();
+            int yDistance = distances.get(v) + 1;
+            if (yDistance > maxDepth) {
+                break;
+            }
+            Set<Vertex> successors = vertexFrom(v);
+            Vertex[] next = successors.toArray(new Vertex[successors.size()]);
+            Arrays.sort(next);
+            for (Vertex y : next) {
+                if (!distances.containsKey(y)) {
+                    distances.put(y, yDistance);
+                    if (distances.size() == maxResults) {
+                        break;
+                    }
+                    pqueue.offer(y);
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Calcule la distance du plus court chemin allant du sommet dénoté par x
+     * au sommet dénoté par y, par un parcours bidirectionnel (voir
+     * shortestPath).
+     * @param x Le sommet de départ.
+     * @param y Le sommet d'arrivée.
+     * @return La distance de x à y, ou Integer.MAX_VALUE si aucun chemin ne
+     * relie x à y.
+     */
+    @Override
+    public int distance(Vertex x, Vertex y) {
+        List<Vertex> path = shortestPath(x, y);
+        if (path.isEmpty()) {
+            return Integer.MAX_VALUE;
+        }
+        return path.size() - 1;
+    }
+
+    /**
+     * Recherche un plus court chemin allant du sommet dénoté par x au sommet
+     * dénoté par y par un parcours en largeur bidirectionnel : un parcours
+     * part de x en suivant les arcs sortants, un autre part de y en suivant
+     * les arcs entrants, et le niveau suivant est toujours développé depuis
+     * la plus petite des deux frontières. La recherche s'arrête dès que les
+     * deux parcours se rencontrent, ce qui ne visite typiquement qu'une
+     * fraction des sommets explorés par un parcours simple.
+     * @param x Le sommet de départ.
+     * @param y Le sommet d'arrivée.
+     * @return Les sommets du chemin, de x à y inclus, ou une liste vide si
+     * aucun chemin ne relie x à y.
+     */
+    @Override
+    public List<Vertex> shortestPath(Vertex x, Vertex y) {
+        Assert.check(containsVertex(x), "x does not belong to this graph.");
+        Assert.check(containsVertex(y), "y does not belong to this graph.");
+        List<Vertex> path = new LinkedList<Vertex>();
+        if (x.equals(y)) {
+            path.add(x);
+            return path;
+        }
+        // Chaque parcours associe un sommet visité au sommet depuis lequel il
+        // a été découvert, ce qui permet de reconstruire le chemin.
+        Map<Vertex, Vertex> forward = new HashMap<Vertex, Vertex>();
+        Map<Vertex, Vertex> backward = new HashMap<Vertex, Vertex>();
+        forward.put(x, null);
+        backward.put(y, null);
+        List<Vertex> forwardFrontier = new ArrayList<Vertex>();
+        List<Vertex> backwardFrontier = new ArrayList<Vertex>();
+        forwardFrontier.add(x);
+        backwardFrontier.add(y);
+        Vertex meeting = null;
+        while (meeting == null && !forwardFrontier.isEmpty()
+                && !backwardFrontier.isEmpty()) {
+            if (forwardFrontier.size() <= backwardFrontier.size()) {
+                List<Vertex> next = new ArrayList<Vertex>();
+                meeting = expand(forwardFrontier, true, forward, backward,
+                        next);
+                forwardFrontier = next;
+            } else {
+                List<Vertex> next = new ArrayList<Vertex>();
+                meeting = expand(backwardFrontier, false, backward, forward,
+                        next);
+                backwardFrontier = next;
+            }
+        }
+        if (meeting == null) {
+            return path;
+        }
+        for (Vertex v = meeting; v != null; v = forward.get(v)) {
+            path.add(0, v);
+        }
+        for (Vertex v = backward.get(meeting); v != null; v = backward.get(v)) {
+            path.add(v);
+        }
+        return path;
+    }
+
+    /**
+     * Transmet chaque sommet de ce graphe au visiteur dénoté par visitor. Le
+     * visiteur ne doit pas modifier le graphe.
+     * @param visitor Le visiteur recevant les sommets.
+     */
+    @Override
+    public void forEachVertex(VertexVisitor visitor) {
+        Assert.check(visitor != null, "visitor must not be null");
+        for (Vertex x : vertexSet()) {
+            visitor.visit(x);
+        }
+    }
+
+    /**
+     * Transmet chaque arc de ce graphe au visiteur dénoté par visitor. Le
+     * visiteur ne doit pas modifier le graphe.
+     * @param visitor Le visiteur recevant les arcs.
+     */
+    @Override
+    public void forEachArc(ArcVisitor visitor) {
+        Assert.check(visitor != null, "visitor must not be null");
+        for (Arc a : arcSet()) {
+            visitor.visit(a);
+        }
+    }
+
+    /**
+     * Construit une photographie immuable de l'état courant de ce graphe au
+     * format CSR, en un temps O(V log V + E). La photographie est conservée
+     * et rendue telle quelle par les appels suivants, jusqu'à la prochaine
+     * modification du graphe.
+     * @return Une photographie de ce graphe.
+     */
+    @Override
+    public CsrGraph freeze() {
+        if (snapshot == null) {
+            snapshot = new CsrGraph(vertexSet(), arcSet());
+        }
+        return snapshot;
+    }
+
+    //- COMMANDES
+
+    /**
+     * Signale l'ajout du sommet dénoté par x, sans aucun arc, et l'indexe.
+     * @pre
+     *      x vient d'être ajouté à ce graphe
+     * @param x Le sommet ajouté.
+     */
+    protected final void vertexAdded(Vertex x) {
+        registry.add(x);
+        sortedVertices.add(x);
+        degrees.add(x);
+        modified();
+    }
+
+    /**
+     * Signale le retrait du sommet dénoté par x et le retire des index. Le
+     * retrait de chacun de ses arcs doit avoir été signalé au préalable par
+     * arcRemoved.
+     * @pre
+     *      x vient d'être retiré de ce graphe
+     * @param x Le sommet retiré.
+     */
+    protected final void vertexRemoved(Vertex x) {
+        registry.remove(x);
+        sortedVertices.remove(x);
+        degrees.remove(x);
+        modified();
+    }
+
+    /**
+     * Signale l'ajout de l'arc partant de x et pointant vers y.
+     * @param x Le sommet de départ de l'arc.
+     * @param y Le sommet d'arrivée de l'arc.
+     */
+    protected final void arcAdded(Vertex x, Vertex y) {
+        degrees.arcAdded(x, y);
+        modified();
+    }
+
+    /**
+     * Signale le retrait de l'arc partant de x et pointant vers y.
+     * @param x Le sommet de départ de l'arc.
+     * @param y Le sommet d'arrivée de l'arc.
+     */
+    protected final void arcRemoved(Vertex x, Vertex y) {
+        degrees.arcRemoved(x, y);
+        modified();
+    }
+
+    /**
+     * Signale les nouveaux degrés du sommet dénoté par x après l'ajout en
+     * bloc de plusieurs arcs, plutôt que d'appeler arcAdded pour chacun (voir
+     * DegreeIndex.update).
+     * @param x Le sommet dont les degrés ont changé.
+     * @param out Son nouveau degré sortant.
+     * @param in Son nouveau degré entrant.
+     */
+    protected final void degreesChanged(Vertex x, int out, int in) {
+        degrees.update(x, out, in);
+        modified();
+    }
+
+    /**
+     * Signale que tous les sommets et arcs de ce graphe ont été retirés, et
+     * vide les index.
+     */
+    protected final void cleared() {
+        registry.clear();
+        sortedVertices.clear();
+        degrees.clear();
+        modified();
+    }
+
+    //- OUTILS
+
+    /**
+     * Signale que ce graphe vient d'être modifié, ce qui invalide la
+     * photographie conservée par freeze. Appelée par chacun des signalements
+     * d'ajout ou de retrait de sommet ou d'arc.
+     */
+    private void modified() {
+        snapshot = null;
+    }
+
+    /**
+     * @param x Un sommet quelconque.
+     * @return L'objet décrivant, dans ce graphe, le sommet de même nom que
+     * celui dénoté par x, ou null s'il n'y en a pas.
+     */
+    protected final Vertex registeredVertex(Vertex x) {
+        return registry.get(x);
+    }
+
+    /**
+     * Version de shortestPathsFrom destinée aux grands graphes : le parcours
+     * est effectué en parallèle sur une photographie CSR du graphe par un
+     * DirectionOptimizingBfs. La photographie n'est reconstruite qu'après
+     * une modification du graphe (voir freeze).
+     * @param x Sommet source à partir duquel calculer les distances.
+     * @return Une Map liant chaque sommet du graphe à sa distance le séparant
+     * du sommet dénoté par x.
+     */
+    private Map<Vertex, Integer> largeShortestPathsFrom(Vertex x) {
+        CsrGraph csr = freeze();
+        int[] d = new DirectionOptimizingBfs(csr,
+                Runtime.getRuntime().availableProcessors())
+                .distancesFrom(csr.indexOf(x));
+        Map<Vertex, Integer> distances =
+                new HashMap<Vertex, Integer>(2 * d.length);
+        for (int v = 0; v < d.length; ++v) {
+            distances.put(csr.vertexAt(v), d[v]);
+        }
+        return distances;
+    }
+
+    /**
+     * Développe un niveau d'un des deux parcours de shortestPath.
+     * @param frontier Les sommets du niveau courant.
+     * @param outgoing true pour suivre les arcs sortants, false pour suivre
+     * les arcs entrants.
+     * @param visited Les sommets visités par ce parcours.
+     * @param other Les sommets visités par l'autre parcours.
+     * @param next Reçoit les sommets du niveau suivant.
+     * @return Le premier sommet visité par les deux parcours, ou null.
+     */
+    private Vertex expand(List<Vertex> frontier, boolean outgoing,
+                          Map<Vertex, Vertex> visited,
+                          Map<Vertex, Vertex> other, List<Vertex> next) {
+        for (Vertex v : frontier) {
+            Set<Vertex> neighbours;
+            if (outgoing) {
+                neighbours = vertexFrom(v);
+            } else {
+                neighbours = vertexTo(v);
+            }
+            for (Vertex w : neighbours) {
+                if (!visited.containsKey(w)) {
+                    visited.put(w, v);
+                    if (other.containsKey(w)) {
+                        return w;
+                    }
+                    next.add(w);
+                }
+            }
+        }
+        return null;
+    }
+
+    //- TYPES IMBRIQUÉS
+
+    /**
+     * Un visiteur enregistrant dans une Map la distance de chaque sommet
+     * atteint par un parcours d'une photographie.
+     */
+    private static final class DistanceCollector implements DistanceVisitor {
+
+        /**
+         * La photographie parcourue.
+         */
+        private final CsrGraph csr;
+
+        /**
+         * Reçoit la distance de chaque sommet atteint.
+         */
+        private final Map<Vertex, Integer> distances;
+
+        /**
+         * Un visiteur enregistrant dans distances les sommets de csr.
+         * @param csr La photographie parcourue.
+         * @param distances La Map recevant les distances.
+         */
+        private DistanceCollector(CsrGraph csr,
+                                  Map<Vertex, Integer> distances) {
+            this.csr = csr;
+            this.distances = distances;
+        }
+
+        @Override
+        public void visit(int vertex, int distance) {
+            distances.put(csr.vertexAt(vertex), distance);
+        }
+    }
+}
@@ -0,0 +1,539 @@
+package graph;
+
+import graph.exceptions.ArcNotFound;
+import graph.exceptions.DuplicateArc;
+import graph.exceptions.DuplicateVertex;
+import graph.exceptions.VertexNotFound;
+import util.Assert;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Une implémentation de l'interface Graph conservant, pour chaque sommet, la
+ * liste de ses successeurs et celle de ses prédécesseurs. Contrairement à
+ * StdGraph, les requêtes de voisinage (vertexFrom, vertexTo) et la
+ * suppression d'un sommet ne parcourent que les arcs impliquant le sommet
+ * concerné, et s'exécutent donc en un temps proportionnel à son degré.
+ * Les voisins de chaque sommet sont en outre regroupés par étiquette d'arc :
+ * vertexFrom(Vertex, ArcLabel) et vertexTo(Vertex, ArcLabel) ne parcourent
+ * que les voisins reliés par l'étiquette demandée.
+ */
+public class AdjacencyGraph extends AbstractGraph {
+
+    //- ATTRIBUTS
+
+    /**
+     * Associe chaque sommet de ce graphe à ses listes d'adjacence.
+     */
+    private final Map<Vertex, Adjacency> vertices;
+
+    /**
+     * Un ensemble contenant les arcs de ce graphe.
+     */
+    private final Set<Arc> arcs;
+
+    //- CONSTRUCTEURS
+
+    public AdjacencyGraph() {
+        this.vertices = new HashMap<Vertex, Adjacency>();
+        this.arcs = new HashSet<Arc>();
+    }
+
+    //- MÉTHODES
+
+    /**
+     * Insère le sommet dénoté par x dans le graphe. Ce sommet sera en aucun
+     * cas relié à un autre sommet du graphe par une relation. Si le sommet se
+     * trouve déjà dans le graphe, une exception DuplicateVertex est levée.
+     *
+     * @param x Le sommet à ajouter dans le graphe.
+     */
+    @Override
+    public void addVertex(Vertex x) throws DuplicateVertex {
+        Assert.check(x != null, "x must not be null");
+        if (vertices.containsKey(x)) {
+            throw new DuplicateVertex(x);
+        }
+        vertices.put(x, new Adjacency(x));
+        vertexAdded(x);
+    }
+
+    /**
+     * Retire le sommet dénoté par x dans le graphe. Supprime également toutes
+     * les relations impliquant ce sommet dans le graphe. Si le sommet ne se
+     * trouve pas dans le graphe, une exception VertexNotFound est levée.
+     *
+     * @param x Le sommet à retirer du graphe.
+     */
+    @Override
+    public void removeVertex(Vertex x) throws VertexNotFound {
+        Assert.check(x != null, "x must not be null");
+        Adjacency adj = adjacencyOf(x);
+        for (Arc a : adj.out.values()) {
+            Adjacency to = vertices.get(a.getTo());
+            to.in.remove(x);
+            removeLabelled(to.inByLabel, a.getLabel(), x);
+            arcs.remove(a);
+            arcRemoved(a.getFrom(), a.getTo());
+        }
+        for (Arc a : adj.in.values()) {
+            Adjacency from = vertices.get(a.getFrom());
+            from.out.remove(x);
+            removeLabelled(from.outByLabel, a.getLabel(), x);
+            arcs.remove(a);
+            arcRemoved(a.getFrom(), a.getTo());
+        }
+        vertices.remove(x);
+        vertexRemoved(x);
+    }
+
+    /**
+     * Indique si le sommet dénoté par x est contenu dans ce graphe.
+     *
+     * @param x Le sommet à rechercher dans le graphe.
+     * @return true ou false selon si le sommet est contenu dans ce graphe.
+     */
+    @Override
+    public boolean containsVertex(Vertex x) {
+        Assert.check(x != null, "x must not be null");
+        return vertices.containsKey(x);
+    }
+
+    /**
+     * Recherche l'objet décrivant le sommet dénoté par x dans ce graphe. Si le
+     * sommet n'existe pas, une exception VertexNotFound est levée.
+     *
+     * @param x Le sommet à rechercher dans ce graphe.
+     * @return L'objet décrivant le sommet dans le graphe.
+     */
+    @Override
+    public Vertex getVertex(Vertex x) throws VertexNotFound {
+        Assert.check(x != null, "x must not be null");
+        return adjacencyOf(x).vertex;
+    }
+
+    /**
+     * Crée un arc partant du sommet dénoté par x et pointant vers le sommet
+     * dénoté par y. Le sommet dénoté par x sera alors en relation avec le
+     * sommet dénoté par y. Si un des deux sommets n'est pas contenu dans le
+     * graphe, une exception VertexNotFound est levée. Si un arc reliant ces
+     * deux sommets existe déjà, une exception DuplicateArc est levée.
+     *
+     * @param x Le sommet de départ de l'arc.
+     * @param y Le sommet d'arrivée de l'arc.
+     */
+    @Override
+    public void createArc(Vertex x, Vertex y)
+            throws DuplicateArc, VertexNotFound {
+        createArc(x, y, null);
+    }
+
+    /**
+     * Crée un arc étiqueté par label partant du sommet dénoté par x et
+     * pointant vers le sommet dénoté par y, dans les mêmes conditions que
+     * createArc(Vertex, Vertex).
+     *
+     * @param x Le sommet de départ de l'arc.
+     * @param y Le sommet d'arrivée de l'arc.
+     * @param label L'étiquette de l'arc, ou null.
+     */
+    @Override
+    public void createArc(Vertex x, Vertex y, ArcLabel label)
+            throws DuplicateArc, VertexNotFound {
+        Assert.check(x != null, "x must not be null");
+        Assert.check(y != null, "y must not be null");
+        Adjacency from = adjacencyOf(x);
+        Adjacency to = adjacencyOf(y);
+        if (from.out.containsKey(to.vertex)) {
+            throw new DuplicateArc(from.out.get(to.vertex));
+        }
+        Arc a = new Arc(from.vertex, to.vertex, label);
+        from.out.put(to.vertex, a);
+        to.in.put(from.vertex, a);
+        addLabelled(from.outByLabel, label, to.vertex);
+        addLabelled(to.inByLabel, label, from.vertex);
+        arcs.add(a);
+        arcAdded(from.vertex, to.vertex);
+    }
+
+    /**
+     * Crée en une fois les arcs de la liste dénotée par arcs. Les listes
+     * d'adjacence de chaque extrémité ne sont recherchées qu'une fois par
+     * arc, et l'index des degrés n'est mis à jour qu'une fois les arcs
+     * insérés : chaque sommet n'y change d'ensemble qu'une fois, quel que
+     * soit le nombre de ses nouveaux arcs.
+     *
+     * @param arcs Les arcs à créer.
+     */
+    @Override
+    public void createArcs(List<Arc> arcs)
+            throws DuplicateArc, VertexNotFound {
+        Assert.check(arcs != null, "arcs must not be null");
+        Adjacency[] from = new Adjacency[arcs.size()];
+        Adjacency[] to = new Adjacency[arcs.size()];
+        int i = 0;
+        for (Arc a : arcs) {
+            from[i] = adjacencyOf(a.getFrom());
+            to[i] = adjacencyOf(a.getTo());
+            Arc b = from[i].out.get(to[i].vertex);
+            if (b != null) {
+                throw new DuplicateArc(b);
+            }
+            ++i;
+        }
+        i = 0;
+        for (Arc a : arcs) {
+            Adjacency x = from[i];
+            Adjacency y = to[i];
+            ++i;
+            Arc b = a;
+            if (a.getFrom() != x.vertex || a.getTo() != y.vertex) {
+                b = new Arc(x.vertex, y.vertex, a.getLabel());
+            }
+            Assert.check(x.out.put(y.vertex, b) == null,
+                    "arcs contains the same arc twice");
+            y.in.put(x.vertex, b);
+            addLabelled(x.outByLabel, b.getLabel(), y.vertex);
+            addLabelled(y.inByLabel, b.getLabel(), x.vertex);
+            this.arcs.add(b);
+        }
+        for (int k = 0; k < from.length; ++k) {
+            degreesChanged(from[k].vertex, from[k].out.size(),
+                    from[k].in.size());
+            degreesChanged(to[k].vertex, to[k].out.size(), to[k].in.size());
+        }
+    }
+
+    /**
+     * Supprime l'arc partant du sommet dénoté par x et pointant vers le sommet
+     * dénoté par y. Le sommet dénoté par x ne sera alors plus en relation avec
+     * le sommet dénoté par y. Si un des deux sommets n'est pas contenu dans le
+     * graphe, une exception VertexNotFound est levée. Si l'arc reliant ces
+     * deux sommets n'existe pas, une exception ArcNotFound est levée.
+     *
+     * @param x Le sommet de départ de l'arc.
+     * @param y Le sommet d'arrivée de l'arc.
+     */
+    @Override
+    public void deleteArc(Vertex x, Vertex y)
+            throws ArcNotFound, VertexNotFound {
+        Assert.check(x != null, "x must not be null");
+        Assert.check(y != null, "y must not be null");
+        Adjacency from = adjacencyOf(x);
+        Adjacency to = adjacencyOf(y);
+        Arc a = from.out.remove(to.vertex);
+        if (a == null) {
+            throw new ArcNotFound(new Arc(x, y));
+        }
+        to.in.remove(from.vertex);
+        removeLabelled(from.outByLabel, a.getLabel(), to.vertex);
+        removeLabelled(to.inByLabel, a.getLabel(), from.vertex);
+        arcs.remove(a);
+        arcRemoved(from.vertex, to.vertex);
+    }
+
+    /**
+     * Surcharge de deleteArc(Vertex, Vertex) prenant en charge un objet Arc
+     * obtenu à l'aide de la méthode getArc.
+     *
+     * @param a Arc à supprimer du graphe.
+     */
+    @Override
+    public void deleteArc(Arc a) throws ArcNotFound, VertexNotFound {
+        deleteArc(a.getFrom(), a.getTo());
+    }
+
+    /**
+     * Indique si un arc partant du sommet dénoté par x et pointant vers le
+     * sommet dénoté par y existe dans le graphe. Si un des deux sommets
+     * n'existe pas, une exception VertexNotFound est levée.
+     *
+     * @param x Le sommet de départ de l'arc.
+     * @param y Le sommet d'arrivée de l'arc.
+     * @return true ou false selon si un arc de x vers y existe dans le graphe.
+     */
+    @Override
+    public boolean containsArc(Vertex x, Vertex y) throws VertexNotFound {
+        Assert.check(x != null, "x must not be null");
+        Assert.check(y != null, "y must not be null");
+        Adjacency from = adjacencyOf(x);
+        adjacencyOf(y);
+        return from.out.containsKey(y);
+    }
+
+    /**
+     * Recherche l'objet décrivant l'arc du sommet dénoté par x et pointant
+     * vers le sommet dénoté par y dans le graphe. Si un des deux sommets
+     * n'existe pas, une exception VertexNotFound est levée. Si l'arc reliant
+     * ces deux sommets n'existe pas, une exception ArcNotFound est levée.
+     *
+     * @param x Le sommet de départ de l'arc.
+     * @param y Le sommet d'arrivée de l'arc.
+     * @return L'objet décrivant l'arc de x vers y dans le graphe.
+     */
+    @Override
+    public Arc getArc(Vertex x, Vertex y) throws ArcNotFound, VertexNotFound {
+        Assert.check(x != null, "x must not be null");
+        Assert.check(y != null, "y must not be null");
+        Adjacency from = adjacencyOf(x);
+        adjacencyOf(y);
+        Arc a = from.out.get(y);
+        if (a == null) {
+            throw new ArcNotFound(new Arc(x, y));
+        }
+        return a;
+    }
+
+    /**
+     * @return Le nombre de sommets contenu dans ce graphe.
+     */
+    @Override
+    public int vertexCount() {
+        return vertices.size();
+    }
+
+    /**
+     * @return Le nombre d'arcs contenu dans ce graphe.
+     */
+    @Override
+    public int arcCount() {
+        return arcs.size();
+    }
+
+    /**
+     * @return Une vue non modifiable sur l'ensemble des sommets contenus dans
+     * ce graphe.
+     */
+    @Override
+    public Set<Vertex> vertexSet() {
+        return Collections.unmodifiableSet(vertices.keySet());
+    }
+
+    /**
+     * @return Une vue non modifiable sur l'ensemble des arcs contenus dans ce
+     * graphe.
+     */
+    @Override
+    public Set<Arc> arcSet() {
+        return Collections.unmodifiableSet(arcs);
+    }
+
+    /**
+     * @return Informations générales sur ce graphe.
+     */
+    @Override
+    public String toString() {
+        return "[Graph] " + vertices.size() + " vertices - " + arcs.size()
+                + " arcs";
+    }
+
+    /**
+     * @param x Le sommet avec lequel rechercher.
+     * @return Une vue non modifiable sur les sommets à destination d'un arc
+     * partant du sommet dénoté par x.
+     */
+    @Override
+    public Set<Vertex> vertexFrom(Vertex x) {
+        return Collections.unmodifiableSet(adjacency(x).out.keySet());
+    }
+
+    /**
+     * @param x Le sommet avec lequel rechercher.
+     * @return Une vue non modifiable sur les sommets au départ d'un arc à
+     * destination du sommet dénoté par x.
+     */
+    @Override
+    public Set<Vertex> vertexTo(Vertex x) {
+        return Collections.unmodifiableSet(adjacency(x).in.keySet());
+    }
+
+    /**
+     * @param x Le sommet avec lequel rechercher.
+     * @param label L'étiquette des arcs à suivre.
+     * @return Une vue non modifiable sur les sommets à destination d'un arc
+     * étiqueté par label partant du sommet dénoté par x.
+     */
+    @Override
+    public Set<Vertex> vertexFrom(Vertex x, ArcLabel label) {
+        Assert.check(label != null, "label must not be null");
+        return labelled(adjacency(x).outByLabel, label);
+    }
+
+    /**
+     * @param x Le sommet avec lequel rechercher.
+     * @param label L'étiquette des arcs à suivre.
+     * @return Une vue non modifiable sur les sommets au départ d'un arc
+     * étiqueté par label à destination du sommet dénoté par x.
+     */
+    @Override
+    public Set<Vertex> vertexTo(Vertex x, ArcLabel label) {
+        Assert.check(label != null, "label must not be null");
+        return labelled(adjacency(x).inByLabel, label);
+    }
+
+    /**
+     * Réinitialise ce graphe : retire tous les sommets et supprime toutes les
+     * relations. À la fin de la méthode, ce graphe se trouvera dans le même
+     * état qu'à sa création.
+     */
+    @Override
+    public void clear() {
+        vertices.clear();
+        arcs.clear();
+        cleared();
+    }
+
+    //- OUTILS
+
+    /**
+     * @param x Le sommet dont on souhaite les listes d'adjacence.
+     * @return Les listes d'adjacence du sommet dénoté par x.
+     * @throws VertexNotFound Si le sommet n'appartient pas à ce graphe.
+     */
+    private Adjacency adjacencyOf(Vertex x) throws VertexNotFound {
+        Adjacency adj = vertices.get(x);
+        if (adj == null) {
+            throw new VertexNotFound(x);
+        }
+        return adj;
+    }
+
+    /**
+     * @pre
+     *      containsVertex(x)
+     * @param x Le sommet dont on souhaite les listes d'adjacence.
+     * @return Les listes d'adjacence du sommet dénoté par x.
+     */
+    private Adjacency adjacency(Vertex x) {
+        Assert.check(containsVertex(x), "x does not belong to this graph.");
+        return vertices.get(x);
+    }
+
+    /**
+     * @param index Les voisins d'un sommet regroupés par étiquette.
+     * @param label Une étiquette d'arc.
+     * @return Une vue non modifiable sur les voisins étiquetés par label.
+     * L'ensemble de ces voisins est recherché dans index à chaque appel de
+     * la vue, qui reflète ainsi les arcs ajoutés ou retirés ensuite sans
+     * que sa création ne modifie index.
+     */
+    private static Set<Vertex> labelled(
+            final Map<ArcLabel, Set<Vertex>> index, final ArcLabel label) {
+        return new AbstractSet<Vertex>() {
+            @Override
+            public Iterator<Vertex> iterator() {
+                return neighbours().iterator();
+            }
+
+            @Override
+            public int size() {
+                return neighbours().size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return neighbours().contains(o);
+            }
+
+            private Set<Vertex> neighbours() {
+                Set<Vertex> set = index.get(label);
+                if (set == null) {
+                    return Collections.emptySet();
+                }
+                return Collections.unmodifiableSet(set);
+            }
+        };
+    }
+
+    /**
+     * Ajoute le sommet dénoté par v aux voisins étiquetés par label.
+     * @param index Les voisins d'un sommet regroupés par étiquette.
+     * @param label L'étiquette de l'arc, ou null s'il n'est pas étiqueté.
+     * @param v Le voisin à ajouter.
+     */
+    private static void addLabelled(Map<ArcLabel, Set<Vertex>> index,
+                                    ArcLabel label, Vertex v) {
+        if (label == null) {
+            return;
+        }
+        Set<Vertex> set = index.get(label);
+        if (set == null) {
+            set = new HashSet<Vertex>();
+            index.put(label, set);
+        }
+        set.add(v);
+    }
+
+    /**
+     * Retire le sommet dénoté par v des voisins étiquetés par label. Les
+     * ensembles vidés sont retirés de index.
+     * @param index Les voisins d'un sommet regroupés par étiquette.
+     * @param label L'étiquette de l'arc, ou null s'il n'est pas étiqueté.
+     * @param v Le voisin à retirer.
+     */
+    private static void removeLabelled(Map<ArcLabel, Set<Vertex>> index,
+                                       ArcLabel label, Vertex v) {
+        if (label == null) {
+            return;
+        }
+        Set<Vertex> set = index.get(label);
+        set.remove(v);
+        if (set.isEmpty()) {
+            index.remove(label);
+        }
+    }
+
+    //- TYPES IMBRIQUÉS
+
+    /**
+     * Les listes d'adjacence d'un sommet : ses arcs sortants indexés par
+     * leur sommet d'arrivée, et ses arcs entrants indexés par leur sommet de
+     * départ, ainsi que ses voisins regroupés par étiquette d'arc.
+     */
+    private static final class Adjacency {
+
+        /**
+         * L'objet décrivant le sommet dans le graphe.
+         */
+        private final Vertex vertex;
+
+        /**
+         * Les arcs partant du sommet, indexés par leur sommet d'arrivée.
+         */
+        private final Map<Vertex, Arc> out;
+
+        /**
+         * Les arcs arrivant au sommet, indexés par leur sommet de départ.
+         */
+        private final Map<Vertex, Arc> in;
+
+        /**
+         * Les successeurs du sommet regroupés par étiquette d'arc.
+         */
+        private final Map<ArcLabel, Set<Vertex>> outByLabel;
+
+        /**
+         * Les prédécesseurs du sommet regroupés par étiquette d'arc.
+         */
+        private final Map<ArcLabel, Set<Vertex>> inByLabel;
+
+        /**
+         * Des listes d'adjacence vides pour le sommet dénoté par vertex.
+         * @param vertex Le sommet décrit.
+         */
+        private Adjacency(Vertex vertex) {
+            this.vertex = vertex;
+            this.out = new HashMap<Vertex, Arc>();
+            this.in = new HashMap<Vertex, Arc>();
+            this.outByLabel = new HashMap<ArcLabel, Set<Vertex>>();
+            this.inByLabel = new HashMap<ArcLabel, Set<Vertex>>();
+        }
+    }
+}
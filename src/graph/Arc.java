@@ -8,6 +8,9 @@ import util.Constants;
  * y deux sommets dans un graphe, on dit que x est en relation avec y s'il
  * existe un arc partant du sommet dénoté par x et pointant vers le sommet
  * dénoté par y.
+ * Un arc peut porter une étiquette décrivant la nature de la relation. Deux
+ * sommets ne pouvant être reliés que par un seul arc, l'étiquette n'intervient
+ * pas dans la comparaison des arcs.
  */
 public class Arc implements Comparable<Arc> {
 
@@ -23,6 +26,11 @@ public class Arc implements Comparable<Arc> {
      */
     private final Vertex to;
 
+    /**
+     * L'étiquette de cet arc, ou null.
+     */
+    private final ArcLabel label;
+
     //- CONSTRUCTEURS
 
     /**
@@ -32,10 +40,22 @@ public class Arc implements Comparable<Arc> {
      * @param to Le sommet d'arrivée de cet arc.
      */
     public Arc(Vertex from, Vertex to) {
+        this(from, to, null);
+    }
+
+    /**
+     * Un arc étiqueté par label reliant le sommet dénoté par from et pointant
+     * vers le sommet dénoté par to.
+     * @param from Le sommet de départ de cet arc.
+     * @param to Le sommet d'arrivée de cet arc.
+     * @param label L'étiquette de cet arc, ou null.
+     */
+    public Arc(Vertex from, Vertex to, ArcLabel label) {
         Assert.check(from != null, "from must not be null");
         Assert.check(to != null, "to must not be null");
         this.from = from;
         this.to = to;
+        this.label = label;
     }
 
     //- REQUÊTES
@@ -54,6 +74,13 @@ public class Arc implements Comparable<Arc> {
         return to;
     }
 
+    /**
+     * @return L'étiquette de cet arc, ou null s'il n'est pas étiqueté.
+     */
+    public ArcLabel getLabel() {
+        return label;
+    }
+
     /**
      * @param x Le sommet à comparer à cet arc.
      * @return true ou false selon si le sommet dénoté par x est impliqué dans
@@ -0,0 +1,12 @@
+package graph;
+
+/**
+ * L'étiquette d'un arc, décrivant la nature de la relation qu'il représente.
+ * Les graphes indexent les arcs par étiquette, de sorte que les voisins d'un
+ * sommet reliés par une relation donnée s'obtiennent sans parcourir ses
+ * autres voisins (voir Graph.vertexFrom(Vertex, ArcLabel)). Les étiquettes
+ * sont comparées par equals et sont typiquement les constantes d'une
+ * énumération.
+ */
+public interface ArcLabel {
+}
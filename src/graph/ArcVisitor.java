@@ -0,0 +1,13 @@
+package graph;
+
+/**
+ * Reçoit les arcs d'un graphe un à un lors d'un appel à Graph.forEachArc.
+ */
+public interface ArcVisitor {
+
+    /**
+     * Appelée une fois pour chaque arc du graphe.
+     * @param a L'arc visité.
+     */
+    void visit(Arc a);
+}
@@ -0,0 +1,140 @@
+package graph;
+
+import util.Assert;
+
+import java.util.Arrays;
+
+/**
+ * Les tableaux de travail d'un parcours en largeur sur des identifiants
+ * entiers, réutilisés d'un parcours à l'autre par le thread qui les possède.
+ * Plutôt que de réinitialiser les distances avant chaque parcours, chaque
+ * parcours reçoit un numéro d'époque : un sommet n'est considéré comme
+ * atteint que si son tampon porte l'époque courante. Les tableaux ne sont
+ * remis à zéro que lorsque le compteur d'époques déborde.
+ * Un thread ne possède qu'un jeu de tableaux : un parcours ne peut donc pas
+ * en démarrer un autre dans le même thread (par exemple depuis un visiteur),
+ * ce que vérifient begin et end.
+ */
+final class BfsScratch {
+
+    //- ATTRIBUTS
+
+    /**
+     * Les tableaux de travail de chaque thread.
+     */
+    private static final ThreadLocal<BfsScratch> LOCAL =
+            new ThreadLocal<BfsScratch>() {
+                @Override
+                protected BfsScratch initialValue() {
+                    return new BfsScratch();
+                }
+            };
+
+    /**
+     * L'époque à laquelle chaque sommet a été atteint pour la dernière fois.
+     */
+    private int[] stamps;
+
+    /**
+     * La distance de chaque sommet, valide si son époque est l'époque
+     * courante.
+     */
+    private int[] distances;
+
+    /**
+     * La file du parcours.
+     */
+    private int[] queue;
+
+    /**
+     * L'époque du parcours courant.
+     */
+    private int epoch;
+
+    /**
+     * Indique si un parcours utilise actuellement ces tableaux.
+     */
+    private boolean busy;
+
+    //- CONSTRUCTEURS
+
+    private BfsScratch() {
+        this.stamps = new int[0];
+        this.distances = new int[0];
+        this.queue = new int[0];
+    }
+
+    //- REQUÊTES
+
+    /**
+     * @param n Le nombre de sommets du graphe à parcourir.
+     * @return Les tableaux de travail du thread courant, prêts pour un
+     * nouveau parcours d'un graphe de n sommets. Le parcours doit les
+     * rendre par end une fois terminé.
+     * @pre
+     *      aucun parcours n'est en cours dans le thread courant
+     */
+    static BfsScratch begin(int n) {
+        BfsScratch s = LOCAL.get();
+        Assert.check(!s.busy, "a traversal is already running in this thread");
+        s.busy = true;
+        if (s.stamps.length < n) {
+            s.stamps = new int[n];
+            s.distances = new int[n];
+            s.queue = new int[n];
+            s.epoch = 0;
+        }
+        ++s.epoch;
+        if (s.epoch == 0) {
+            Arrays.fill(s.stamps, 0);
+            s.epoch = 1;
+        }
+        return s;
+    }
+
+    /**
+     * @param v Un identifiant de sommet.
+     * @return true ou false selon si v a été atteint par le parcours courant.
+     */
+    boolean isReached(int v) {
+        return stamps[v] == epoch;
+    }
+
+    /**
+     * @param v Un identifiant de sommet atteint par le parcours courant.
+     * @return La distance de v à la source.
+     */
+    int distance(int v) {
+        return distances[v];
+    }
+
+    /**
+     * @param i Un indice de la file.
+     * @return Le sommet occupant la position i de la file.
+     */
+    int queued(int i) {
+        return queue[i];
+    }
+
+    //- COMMANDES
+
+    /**
+     * Termine le parcours courant et libère ces tableaux.
+     */
+    void end() {
+        busy = false;
+    }
+
+    /**
+     * Marque le sommet v comme atteint à la distance d et l'ajoute à la
+     * position i de la file.
+     * @param v Un identifiant de sommet.
+     * @param d Sa distance à la source.
+     * @param i La position de la file à occuper.
+     */
+    void reach(int v, int d, int i) {
+        stamps[v] = epoch;
+        distances[v] = d;
+        queue[i] = v;
+    }
+}
@@ -0,0 +1,371 @@
+package graph;
+
+import util.Assert;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Une photographie immuable d'un graphe au format CSR (Compressed Sparse
+ * Row). Les sommets y sont identifiés par des entiers denses compris entre 0
+ * et vertexCount() - 1, attribués dans l'ordre alphabétique de leur nom. Les
+ * successeurs du sommet v occupent les cases outStart(v) à outEnd(v) - 1 du
+ * tableau des arcs sortants, et ses prédécesseurs les cases inStart(v) à
+ * inEnd(v) - 1 du tableau transposé. Dans chaque ligne, les voisins sont
+ * triés par identifiant croissant.
+ * Une telle photographie est obtenue via Graph.freeze() et n'est pas
+ * affectée par les modifications ultérieures du graphe d'origine : elle peut
+ * donc être parcourue par des algorithmes d'analyse pendant que le graphe
+ * continue d'être modifié.
+ */
+public final class CsrGraph {
+
+    //- ATTRIBUTS
+
+    /**
+     * Les sommets de la photographie, indexés par leur identifiant.
+     */
+    private final VertexRegistry vertices;
+
+    /**
+     * Les bornes des lignes du tableau outTargets : les successeurs du sommet
+     * v sont outTargets[outOffsets[v]] à outTargets[outOffsets[v + 1] - 1].
+     */
+    private final int[] outOffsets;
+
+    /**
+     * Les identifiants des sommets d'arrivée des arcs, groupés par sommet de
+     * départ.
+     */
+    private final int[] outTargets;
+
+    /**
+     * Les bornes des lignes du tableau inSources.
+     */
+    private final int[] inOffsets;
+
+    /**
+     * Les identifiants des sommets de départ des arcs, groupés par sommet
+     * d'arrivée.
+     */
+    private final int[] inSources;
+
+    //- CONSTRUCTEURS
+
+    /**
+     * Construit la photographie du graphe formé des sommets dénotés par
+     * vertices et des arcs dénotés par arcs, en O(V log V + E).
+     * @pre
+     *      vertices != null && arcs != null
+     *      forall a in arcs:
+     *          vertices.contains(a.getFrom()) && vertices.contains(a.getTo())
+     * @param vertices Les sommets du graphe.
+     * @param arcs Les arcs du graphe.
+     */
+    public CsrGraph(Collection<Vertex> vertices, Collection<Arc> arcs) {
+        Assert.check(vertices != null, "vertices must not be null");
+        Assert.check(arcs != null, "arcs must not be null");
+        Vertex[] sorted = vertices.toArray(new Vertex[vertices.size()]);
+        Arrays.sort(sorted);
+        int n = sorted.length;
+        this.vertices = new VertexRegistry(n);
+        for (Vertex x : sorted) {
+            this.vertices.add(x);
+        }
+        int m = arcs.size();
+        int[] from = new int[m];
+        int[] to = new int[m];
+        int k = 0;
+        for (Arc a : arcs) {
+            int x = this.vertices.indexOf(a.getFrom());
+            int y = this.vertices.indexOf(a.getTo());
+            Assert.check(x >= 0 && y >= 0,
+                    "arcs must join vertices of the vertex set");
+            from[k] = x;
+            to[k] = y;
+            ++k;
+        }
+        // Les lignes sont triées par deux transpositions successives : la
+        // première groupe les arcs par départ, la seconde lit ces lignes dans
+        // l'ordre des départs pour remplir les arrivées, et inversement.
+        int[] rawOffsets = new int[n + 1];
+        int[] raw = transpose(from, to, n, rawOffsets);
+        this.outOffsets = new int[n + 1];
+        this.outTargets = transposeRows(rawOffsets, raw, n, outOffsets);
+        this.inOffsets = new int[n + 1];
+        this.inSources = transposeRows(outOffsets, outTargets, n, inOffsets);
+    }
+
+    //- REQUÊTES
+
+    /**
+     * @return Le nombre de sommets de cette photographie.
+     */
+    public int vertexCount() {
+        return vertices.size();
+    }
+
+    /**
+     * @return Le nombre d'arcs de cette photographie.
+     */
+    public int arcCount() {
+        return outTargets.length;
+    }
+
+    /**
+     * @param x Un sommet quelconque.
+     * @return L'identifiant du sommet dénoté par x, ou -1 s'il n'appartient
+     * pas à cette photographie.
+     */
+    public int indexOf(Vertex x) {
+        return vertices.indexOf(x);
+    }
+
+    /**
+     * @param name Un nom de sommet.
+     * @return L'identifiant du sommet portant le nom dénoté par name, ou -1
+     * s'il n'appartient pas à cette photographie.
+     */
+    public int indexOf(String name) {
+        return vertices.indexOf(name);
+    }
+
+    /**
+     * @param v Un identifiant de sommet.
+     * @return Le sommet identifié par v.
+     */
+    public Vertex vertexAt(int v) {
+        return vertices.vertexAt(v);
+    }
+
+    /**
+     * @param v Un identifiant de sommet.
+     * @return Le nombre d'arcs partant du sommet identifié par v.
+     */
+    public int outDegree(int v) {
+        return outOffsets[v + 1] - outOffsets[v];
+    }
+
+    /**
+     * @param v Un identifiant de sommet.
+     * @return Le nombre d'arcs arrivant au sommet identifié par v.
+     */
+    public int inDegree(int v) {
+        return inOffsets[v + 1] - inOffsets[v];
+    }
+
+    /**
+     * @param v Un identifiant de sommet.
+     * @return L'indice du premier successeur de v pour outTarget.
+     */
+    public int outStart(int v) {
+        return outOffsets[v];
+    }
+
+    /**
+     * @param v Un identifiant de sommet.
+     * @return L'indice suivant le dernier successeur de v pour outTarget.
+     */
+    public int outEnd(int v) {
+        return outOffsets[v + 1];
+    }
+
+    /**
+     * @param i Un indice compris entre outStart(v) et outEnd(v) - 1.
+     * @return L'identifiant du sommet d'arrivée de l'arc d'indice i.
+     */
+    public int outTarget(int i) {
+        return outTargets[i];
+    }
+
+    /**
+     * @param v Un identifiant de sommet.
+     * @return L'indice du premier prédécesseur de v pour inSource.
+     */
+    public int inStart(int v) {
+        return inOffsets[v];
+    }
+
+    /**
+     * @param v Un identifiant de sommet.
+     * @return L'indice suivant le dernier prédécesseur de v pour inSource.
+     */
+    public int inEnd(int v) {
+        return inOffsets[v + 1];
+    }
+
+    /**
+     * @param i Un indice compris entre inStart(v) et inEnd(v) - 1.
+     * @return L'identifiant du sommet de départ de l'arc d'indice i.
+     */
+    public int inSource(int i) {
+        return inSources[i];
+    }
+
+    /**
+     * Calcule la distance du plus court chemin séparant le sommet identifié
+     * par source de chaque sommet de la photographie. Par définition,
+     * dist(source, source) == 0, et dist(source, v) == Integer.MAX_VALUE si
+     * aucun chemin ne relie source à v.
+     * @param source Identifiant du sommet source.
+     * @return Un tableau indexé par identifiant de sommet contenant les
+     * distances depuis source.
+     */
+    public int[] shortestPathsFrom(int source) {
+        int n = vertices.size();
+        Assert.check(source >= 0 && source < n,
+                "source does not belong to this graph.");
+        int[] distances = new int[n];
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        distances[source] = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            int v = queue[head++];
+            int d = distances[v] + 1;
+            for (int i = outOffsets[v]; i < outOffsets[v + 1]; ++i) {
+                int y = outTargets[i];
+                if (distances[y] == Integer.MAX_VALUE) {
+                    distances[y] = d;
+                    queue[tail++] = y;
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Parcourt en largeur la photographie depuis le sommet identifié par
+     * source, jusqu'à la distance maxDepth, et transmet chaque sommet atteint
+     * au visiteur dénoté par visitor par distance croissante. Les sommets non
+     * atteints ne sont pas transmis. Le parcours réutilise des tableaux de
+     * travail propres au thread appelant : une fois ces tableaux alloués, un
+     * parcours n'alloue plus aucun objet. Plusieurs threads peuvent parcourir
+     * simultanément une même photographie, mais le visiteur ne doit pas
+     * lancer un autre parcours depuis le thread appelant.
+     * @pre
+     *      0 <= source < vertexCount()
+     *      maxDepth >= 0
+     *      visitor != null
+     * @param source Identifiant du sommet source.
+     * @param maxDepth La distance maximale des sommets à atteindre.
+     * @param visitor Le visiteur recevant les sommets atteints.
+     */
+    public void traverse(int source, int maxDepth, DistanceVisitor visitor) {
+        traverse(source, maxDepth, Integer.MAX_VALUE, visitor);
+    }
+
+    /**
+     * Version de traverse(int, int, DistanceVisitor) qui cesse de découvrir
+     * de nouveaux sommets dès que maxResults sommets ont été atteints, source
+     * comprise : seuls ces sommets, les plus proches en premier, sont
+     * transmis au visiteur.
+     * @pre
+     *      0 <= source < vertexCount()
+     *      maxDepth >= 0
+     *      maxResults > 0
+     *      visitor != null
+     * @param source Identifiant du sommet source.
+     * @param maxDepth La distance maximale des sommets à atteindre.
+     * @param maxResults Le nombre maximal de sommets à atteindre.
+     * @param visitor Le visiteur recevant les sommets atteints.
+     */
+    public void traverse(int source, int maxDepth, int maxResults,
+                         DistanceVisitor visitor) {
+        int n = vertices.size();
+        Assert.check(source >= 0 && source < n,
+                "source does not belong to this graph.");
+        Assert.check(maxDepth >= 0, "maxDepth must not be negative");
+        Assert.check(maxResults > 0, "maxResults must be positive");
+        Assert.check(visitor != null, "visitor must not be null");
+        BfsScratch scratch = BfsScratch.begin(n);
+        try {
+            int head = 0;
+            int tail = 0;
+            scratch.reach(source, 0, tail++);
+            while (head < tail) {
+                int v = scratch.queued(head++);
+                int d = scratch.distance(v);
+                visitor.visit(v, d);
+                if (d < maxDepth) {
+                    for (int i = outOffsets[v]; i < outOffsets[v + 1]; ++i) {
+                        int y = outTargets[i];
+                        if (tail == maxResults) {
+                            break;
+                        }
+                        if (!scratch.isReached(y)) {
+                            scratch.reach(y, d + 1, tail++);
+                        }
+                    }
+                }
+            }
+        } finally {
+            scratch.end();
+        }
+    }
+
+    /**
+     * @return Informations générales sur cette photographie.
+     */
+    @Override
+    public String toString() {
+        return "[CsrGraph] " + vertexCount() + " vertices - " + arcCount()
+                + " arcs";
+    }
+
+    //- OUTILS
+
+    /**
+     * Groupe les arcs (from[i], to[i]) par sommet d'arrivée.
+     * @param from Les départs des arcs.
+     * @param to Les arrivées des arcs.
+     * @param n Le nombre de sommets.
+     * @param offsets Reçoit les bornes des lignes (taille n + 1).
+     * @return Les départs des arcs groupés par arrivée.
+     */
+    private static int[] transpose(int[] from, int[] to, int n,
+                                   int[] offsets) {
+        for (int y : to) {
+            ++offsets[y + 1];
+        }
+        for (int v = 0; v < n; ++v) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] cursor = Arrays.copyOf(offsets, n);
+        int[] result = new int[from.length];
+        for (int i = 0; i < from.length; ++i) {
+            result[cursor[to[i]]++] = from[i];
+        }
+        return result;
+    }
+
+    /**
+     * Transpose une représentation CSR : chaque arc (v, rows[i]) de la
+     * ligne v devient un arc (rows[i], v). Les lignes étant lues dans l'ordre
+     * croissant de v, les lignes produites sont triées.
+     * @param offsets Les bornes des lignes à transposer.
+     * @param rows Le contenu des lignes à transposer.
+     * @param n Le nombre de sommets.
+     * @param result Reçoit les bornes des lignes transposées.
+     * @return Le contenu des lignes transposées.
+     */
+    private static int[] transposeRows(int[] offsets, int[] rows, int n,
+                                       int[] result) {
+        for (int y : rows) {
+            ++result[y + 1];
+        }
+        for (int v = 0; v < n; ++v) {
+            result[v + 1] += result[v];
+        }
+        int[] cursor = Arrays.copyOf(result, n);
+        int[] transposed = new int[rows.length];
+        for (int v = 0; v < n; ++v) {
+            for (int i = offsets[v]; i < offsets[v + 1]; ++i) {
+                transposed[cursor[rows[i]]++] = v;
+            }
+        }
+        return transposed;
+    }
+}
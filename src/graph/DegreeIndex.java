@@ -0,0 +1,519 @@
+package graph;
+
+import util.Assert;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+
+/**
+ * Maintient le degré sortant et le degré entrant de chaque sommet d'un
+ * graphe, ainsi que deux index ordonnés regroupant les sommets par degré.
+ * Chaque index associe un degré à l'ensemble des sommets de ce degré : un
+ * ajout ou un retrait d'arc ne coûte qu'un déplacement entre deux ensembles
+ * en temps constant, et les k sommets de plus fort degré ou les sommets dont
+ * le degré appartient à un intervalle s'obtiennent sans trier l'ensemble des
+ * sommets : seuls les ensembles retenus en entier sont triés par nom, et les
+ * premiers noms du dernier ensemble parcouru sont extraits par un tas borné.
+ * Le graphe propriétaire doit notifier l'index de chaque ajout et retrait de
+ * sommet ou d'arc.
+ */
+public class DegreeIndex {
+
+    //- ATTRIBUTS
+
+    /**
+     * Les degrés de chaque sommet indexé.
+     */
+    private final Map<Vertex, Degrees> degrees;
+
+    /**
+     * Les sommets regroupés par degré sortant.
+     */
+    private final NavigableMap<Integer, Set<Vertex>> byOut;
+
+    /**
+     * Les sommets regroupés par degré entrant.
+     */
+    private final NavigableMap<Integer, Set<Vertex>> byIn;
+
+    //- CONSTRUCTEURS
+
+    public DegreeIndex() {
+        this.degrees = new HashMap<Vertex, Degrees>();
+        this.byOut = new TreeMap<Integer, Set<Vertex>>();
+        this.byIn = new TreeMap<Integer, Set<Vertex>>();
+    }
+
+    //- REQUÊTES
+
+    /**
+     * @param x Un sommet quelconque.
+     * @return true ou false selon si le sommet dénoté par x est indexé.
+     */
+    public boolean contains(Vertex x) {
+        Assert.check(x != null, "x must not be null");
+        return degrees.containsKey(x);
+    }
+
+    /**
+     * @pre
+     *      contains(x)
+     * @param x Un sommet indexé.
+     * @return Le nombre d'arcs partant du sommet dénoté par x.
+     */
+    public int outDegree(Vertex x) {
+        return degreesOf(x).out;
+    }
+
+    /**
+     * @pre
+     *      contains(x)
+     * @param x Un sommet indexé.
+     * @return Le nombre d'arcs arrivant au sommet dénoté par x.
+     */
+    public int inDegree(Vertex x) {
+        return degreesOf(x).in;
+    }
+
+    /**
+     * @pre
+     *      k >= 0
+     * @param k Le nombre de sommets souhaités.
+     * @return Les k sommets de plus fort degré sortant (tous les sommets s'il
+     * y en a moins de k), par degré décroissant puis par nom.
+     */
+    public List<Vertex> topKByOutDegree(int k) {
+        Assert.check(k >= 0, "k must not be negative");
+        return collect(byOut.descendingMap(), k);
+    }
+
+    /**
+     * @pre
+     *      k >= 0
+     * @param k Le nombre de sommets souhaités.
+     * @return Les k sommets de plus fort degré entrant (tous les sommets s'il
+     * y en a moins de k), par degré décroissant puis par nom.
+     */
+    public List<Vertex> topKByInDegree(int k) {
+        Assert.check(k >= 0, "k must not be negative");
+        return collect(byIn.descendingMap(), k);
+    }
+
+    /**
+     * @pre
+     *      0 <= min <= max
+     * @param min Le degré sortant minimal.
+     * @param max Le degré sortant maximal.
+     * @return Les sommets dont le degré sortant est compris entre min et max
+     * inclus, par degré décroissant puis par nom.
+     */
+    public List<Vertex> withOutDegree(int min, int max) {
+        Assert.check(0 <= min && min <= max, "invalid degree range");
+        return collect(byOut.subMap(min, true, max, true).descendingMap(),
+                Integer.MAX_VALUE);
+    }
+
+    /**
+     * @pre
+     *      0 <= min <= max
+     * @param min Le degré entrant minimal.
+     * @param max Le degré entrant maximal.
+     * @return Les sommets dont le degré entrant est compris entre min et max
+     * inclus, par degré décroissant puis par nom.
+     */
+    public List<Vertex> withInDegree(int min, int max) {
+        Assert.check(0 <= min && min <= max, "invalid degree range");
+        return collect(byIn.subMap(min, true, max, true).descendingMap(),
+                Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return Un nouvel ensemble non modifiable contenant tous les sommets
+     * indexés triés par degré sortant décroissant, puis par nom. L'ensemble
+     * est construit en parcourant les degrés dans l'ordre, seuls les sommets
+     * de même degré étant triés par nom. Chaque sommet y est ordonné par le
+     * degré qu'il avait à la création de l'ensemble, ce qui garde l'ensemble
+     * cohérent lorsque les degrés changent ensuite. Un sommet qui n'était pas
+     * indexé à la création de l'ensemble n'y appartient pas : contains rend
+     * false, et son comparateur, headSet, tailSet et subSet le rejettent en
+     * levant IllegalArgumentException.
+     */
+    public SortedSet<Vertex> vertexSetByOutDegree() {
+        Vertex[] order = new Vertex[degrees.size()];
+        int n = 0;
+        for (Set<Vertex> set : byOut.descendingMap().values()) {
+            int start = n;
+            for (Vertex x : set) {
+                order[n++] = x;
+            }
+            Arrays.sort(order, start, n);
+        }
+        Map<Vertex, Integer> ranks = new HashMap<Vertex, Integer>(2 * n);
+        for (int i = 0; i < n; ++i) {
+            ranks.put(order[i], i);
+        }
+        return new RankedSet(order, ranks, 0, n);
+    }
+
+    //- COMMANDES
+
+    /**
+     * Indexe le sommet dénoté par x, sans aucun arc.
+     * @pre
+     *      x != null && !contains(x)
+     * @param x Le sommet à indexer.
+     */
+    public void add(Vertex x) {
+        Assert.check(!contains(x), "x is already indexed");
+        degrees.put(x, new Degrees());
+        bucket(byOut, 0).add(x);
+        bucket(byIn, 0).add(x);
+    }
+
+    /**
+     * Retire le sommet dénoté par x de l'index. Les arcs impliquant x doivent
+     * avoir été notifiés via arcRemoved au préalable.
+     * @pre
+     *      contains(x)
+     * @param x Le sommet à retirer.
+     */
+    public void remove(Vertex x) {
+        Degrees d = degreesOf(x);
+        unbucket(byOut, d.out, x);
+        unbucket(byIn, d.in, x);
+        degrees.remove(x);
+    }
+
+    /**
+     * Notifie l'ajout de l'arc partant de x et pointant vers y.
+     * @pre
+     *      contains(x) && contains(y)
+     * @param x Le sommet de départ de l'arc.
+     * @param y Le sommet d'arrivée de l'arc.
+     */
+    public void arcAdded(Vertex x, Vertex y) {
+        Degrees from = degreesOf(x);
+        Degrees to = degreesOf(y);
+        unbucket(byOut, from.out, x);
+        bucket(byOut, ++from.out).add(x);
+        unbucket(byIn, to.in, y);
+        bucket(byIn, ++to.in).add(y);
+    }
+
+    /**
+     * Notifie le retrait de l'arc partant de x et pointant vers y.
+     * @pre
+     *      contains(x) && contains(y)
+     *      outDegree(x) > 0 && inDegree(y) > 0
+     * @param x Le sommet de départ de l'arc.
+     * @param y Le sommet d'arrivée de l'arc.
+     */
+    public void arcRemoved(Vertex x, Vertex y) {
+        Degrees from = degreesOf(x);
+        Degrees to = degreesOf(y);
+        Assert.check(from.out > 0 && to.in > 0, "arc is not indexed");
+        unbucket(byOut, from.out, x);
+        bucket(byOut, --from.out).add(x);
+        unbucket(byIn, to.in, y);
+        bucket(byIn, --to.in).add(y);
+    }
+
+    /**
+     * Fixe les degrés du sommet dénoté par x, après l'ajout en bloc de
+     * plusieurs arcs : le sommet ne change d'ensemble qu'une fois dans chaque
+     * index, quel que soit le nombre d'arcs ajoutés.
+     * @pre
+     *      contains(x)
+     *      out >= 0 && in >= 0
+     * @param x Le sommet dont les degrés ont changé.
+     * @param out Son nouveau degré sortant.
+     * @param in Son nouveau degré entrant.
+     */
+    public void update(Vertex x, int out, int in) {
+        Assert.check(out >= 0 && in >= 0, "degrees must not be negative");
+        Degrees d = degreesOf(x);
+        if (d.out != out) {
+            unbucket(byOut, d.out, x);
+            d.out = out;
+            bucket(byOut, out).add(x);
+        }
+        if (d.in != in) {
+            unbucket(byIn, d.in, x);
+            d.in = in;
+            bucket(byIn, in).add(x);
+        }
+    }
+
+    /**
+     * Retire tous les sommets de l'index.
+     */
+    public void clear() {
+        degrees.clear();
+        byOut.clear();
+        byIn.clear();
+    }
+
+    //- OUTILS
+
+    /**
+     * @param x Un sommet indexé.
+     * @return Les degrés du sommet dénoté par x.
+     */
+    private Degrees degreesOf(Vertex x) {
+        Assert.check(x != null, "x must not be null");
+        Degrees d = degrees.get(x);
+        Assert.check(d != null, "x is not indexed");
+        return d;
+    }
+
+    /**
+     * @param index Un index par degré.
+     * @param degree Un degré.
+     * @return L'ensemble des sommets de degré degree dans index, créé s'il
+     * n'existait pas.
+     */
+    private static Set<Vertex> bucket(
+            NavigableMap<Integer, Set<Vertex>> index, int degree) {
+        Set<Vertex> set = index.get(degree);
+        if (set == null) {
+            set = new HashSet<Vertex>();
+            index.put(degree, set);
+        }
+        return set;
+    }
+
+    /**
+     * Retire le sommet dénoté par x de l'ensemble des sommets de degré
+     * degree dans index, et supprime cet ensemble s'il devient vide.
+     * @param index Un index par degré.
+     * @param degree Le degré courant du sommet.
+     * @param x Le sommet à retirer.
+     */
+    private static void unbucket(
+            NavigableMap<Integer, Set<Vertex>> index, int degree,
+            Vertex x) {
+        Set<Vertex> set = index.get(degree);
+        set.remove(x);
+        if (set.isEmpty()) {
+            index.remove(degree);
+        }
+    }
+
+    /**
+     * @param index Un index par degré, dans l'ordre de parcours souhaité.
+     * @param k Le nombre maximal de sommets à collecter.
+     * @return Les k premiers sommets de index, dans l'ordre de ses degrés
+     * puis par nom. Les ensembles retenus en entier sont triés ; du dernier
+     * ensemble parcouru, seuls les k - result.size() premiers noms sont
+     * extraits, en O(n log k).
+     */
+    private static List<Vertex> collect(
+            NavigableMap<Integer, Set<Vertex>> index, int k) {
+        List<Vertex> result = new ArrayList<Vertex>();
+        for (Set<Vertex> set : index.values()) {
+            int remaining = k - result.size();
+            if (remaining == 0) {
+                break;
+            }
+            if (set.size() <= remaining) {
+                Vertex[] sorted = set.toArray(new Vertex[set.size()]);
+                Arrays.sort(sorted);
+                result.addAll(Arrays.asList(sorted));
+            } else {
+                result.addAll(smallest(set, remaining));
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @pre
+     *      0 < m < set.size()
+     * @param set Un ensemble de sommets.
+     * @param m Le nombre de sommets souhaités.
+     * @return Les m premiers sommets de set par nom, triés. Un tas de taille
+     * m conserve les plus petits sommets vus, son sommet étant le plus grand
+     * d'entre eux.
+     */
+    private static List<Vertex> smallest(Set<Vertex> set, int m) {
+        PriorityQueue<Vertex> heap = new PriorityQueue<Vertex>(m,
+                Collections.<Vertex>reverseOrder());
+        for (Vertex x : set) {
+            if (heap.size() < m) {
+                heap.add(x);
+            } else if (x.compareTo(heap.peek()) < 0) {
+                heap.poll();
+                heap.add(x);
+            }
+        }
+        Vertex[] sorted = heap.toArray(new Vertex[m]);
+        Arrays.sort(sorted);
+        return Arrays.asList(sorted);
+    }
+
+    //- TYPES IMBRIQUÉS
+
+    /**
+     * Un ensemble ordonné non modifiable de sommets, formé des sommets de
+     * rang from inclus à to exclu d'un tableau trié. Le rang de chaque
+     * sommet du tableau est conservé dans une table partagée avec les
+     * sous-ensembles, qui ne copient rien.
+     */
+    private static final class RankedSet extends AbstractSet<Vertex>
+            implements SortedSet<Vertex> {
+
+        /**
+         * Les sommets dans l'ordre de l'ensemble.
+         */
+        private final Vertex[] order;
+
+        /**
+         * Le rang de chaque sommet de order.
+         */
+        private final Map<Vertex, Integer> ranks;
+
+        /**
+         * Le rang du premier sommet de cet ensemble.
+         */
+        private final int from;
+
+        /**
+         * Le rang suivant celui du dernier sommet de cet ensemble.
+         */
+        private final int to;
+
+        /**
+         * L'ensemble des sommets de order de rang from inclus à to exclu.
+         */
+        private RankedSet(Vertex[] order, Map<Vertex, Integer> ranks,
+                          int from, int to) {
+            this.order = order;
+            this.ranks = ranks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            Integer r = ranks.get(o);
+            return r != null && from <= r && r < to;
+        }
+
+        @Override
+        public Iterator<Vertex> iterator() {
+            return Collections.unmodifiableList(
+                    Arrays.asList(order).subList(from, to)).iterator();
+        }
+
+        @Override
+        public Comparator<? super Vertex> comparator() {
+            return new Comparator<Vertex>() {
+                @Override
+                public int compare(Vertex o1, Vertex o2) {
+                    return Integer.compare(rank(o1), rank(o2));
+                }
+            };
+        }
+
+        @Override
+        public SortedSet<Vertex> subSet(Vertex fromElement,
+                                        Vertex toElement) {
+            int lo = bound(fromElement);
+            int hi = bound(toElement);
+            if (lo > hi) {
+                throw new IllegalArgumentException("fromElement > toElement");
+            }
+            return new RankedSet(order, ranks, lo, hi);
+        }
+
+        @Override
+        public SortedSet<Vertex> headSet(Vertex toElement) {
+            return new RankedSet(order, ranks, from, bound(toElement));
+        }
+
+        @Override
+        public SortedSet<Vertex> tailSet(Vertex fromElement) {
+            return new RankedSet(order, ranks, bound(fromElement), to);
+        }
+
+        @Override
+        public Vertex first() {
+            if (from == to) {
+                throw new NoSuchElementException();
+            }
+            return order[from];
+        }
+
+        @Override
+        public Vertex last() {
+            if (from == to) {
+                throw new NoSuchElementException();
+            }
+            return order[to - 1];
+        }
+
+        /**
+         * @param x Un sommet.
+         * @return Le rang du sommet dénoté par x.
+         * @throws IllegalArgumentException Si x n'était pas indexé à la
+         * création de l'ensemble.
+         */
+        private int rank(Vertex x) {
+            Integer r = ranks.get(x);
+            if (r == null) {
+                throw new IllegalArgumentException(x + " is not in this set");
+            }
+            return r;
+        }
+
+        /**
+         * @param x Une borne d'un sous-ensemble.
+         * @return Le rang du sommet dénoté par x.
+         * @throws IllegalArgumentException Si x n'appartient pas à l'ensemble
+         * complet ou se trouve hors des bornes de cet ensemble.
+         */
+        private int bound(Vertex x) {
+            int r = rank(x);
+            if (r < from || r > to) {
+                throw new IllegalArgumentException(x + " is out of range");
+            }
+            return r;
+        }
+    }
+
+    /**
+     * Les degrés d'un sommet.
+     */
+    private static final class Degrees {
+
+        /**
+         * Le nombre d'arcs partant du sommet.
+         */
+        private int out;
+
+        /**
+         * Le nombre d'arcs arrivant au sommet.
+         */
+        private int in;
+    }
+}
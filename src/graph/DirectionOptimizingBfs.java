@@ -0,0 +1,316 @@
+package graph;
+
+import util.Assert;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Un parcours en largeur d'une photographie CSR alternant entre deux
+ * stratégies selon la taille de la frontière (Beamer et al.) :
+ * - descendante : chaque sommet de la frontière visite ses successeurs et
+ *   s'approprie ceux qui ne sont pas encore visités ;
+ * - ascendante : chaque sommet non visité cherche parmi ses prédécesseurs un
+ *   sommet de la frontière, et s'arrête au premier trouvé.
+ * La stratégie ascendante devient avantageuse lorsque la frontière couvre une
+ * grande part des arcs restant à explorer. Les frontières et l'ensemble des
+ * sommets visités sont représentés par des ensembles de bits, et chaque
+ * niveau est découpé en tranches de mots traitées en parallèle dans le
+ * ForkJoinPool partagé entre les parcours. Le parcours étant synchronisé
+ * niveau par niveau, les distances obtenues sont exactement celles de
+ * Graph.shortestPathsFrom, quel que soit le nombre de threads.
+ */
+public class DirectionOptimizingBfs {
+
+    //- CONSTANTES
+
+    /**
+     * Passage en mode ascendant lorsque les arcs partant de la frontière
+     * dépassent les arcs restant à explorer divisés par ALPHA.
+     */
+    private static final int ALPHA = 14;
+
+    /**
+     * Retour en mode descendant lorsque la frontière compte moins de
+     * vertexCount() / BETA sommets.
+     */
+    private static final int BETA = 24;
+
+    /**
+     * Le nombre de mots de 64 bits d'une tranche, unité de travail d'un
+     * niveau.
+     */
+    private static final int WORDS_PER_TASK = 256;
+
+    /**
+     * Le nombre de bits d'un mot.
+     */
+    private static final int WORD_BITS = 64;
+
+    //- ATTRIBUTS
+
+    /**
+     * La photographie à parcourir.
+     */
+    private final CsrGraph graph;
+
+    /**
+     * Le nombre de threads utilisés pour un parcours.
+     */
+    private final int parallelism;
+
+    //- CONSTRUCTEURS
+
+    /**
+     * Un parcours de la photographie dénotée par graph utilisant parallelism
+     * threads.
+     * @pre
+     *      graph != null
+     *      parallelism > 0
+     * @param graph La photographie à parcourir.
+     * @param parallelism Le nombre de threads, 1 pour un parcours séquentiel.
+     */
+    public DirectionOptimizingBfs(CsrGraph graph, int parallelism) {
+        Assert.check(graph != null, "graph must not be null");
+        Assert.check(parallelism > 0, "parallelism must be positive");
+        this.graph = graph;
+        this.parallelism = parallelism;
+    }
+
+    //- REQUÊTES
+
+    /**
+     * Calcule la distance du plus court chemin séparant le sommet identifié
+     * par source de chaque sommet de la photographie.
+     * @param source Identifiant du sommet source.
+     * @return Un tableau indexé par identifiant de sommet contenant les
+     * distances depuis source, Integer.MAX_VALUE pour les sommets non
+     * atteignables.
+     */
+    public int[] distancesFrom(int source) {
+        int n = graph.vertexCount();
+        Assert.check(source >= 0 && source < n,
+                "source does not belong to this graph.");
+        Level level = new Level(graph, source);
+        long unexplored = graph.arcCount() - graph.outDegree(source);
+        long frontierArcs = graph.outDegree(source);
+        int frontierSize = 1;
+        boolean bottomUp = false;
+        while (frontierSize > 0) {
+            if (!bottomUp && frontierArcs > unexplored / ALPHA) {
+                bottomUp = true;
+            } else if (bottomUp && frontierSize < n / BETA) {
+                bottomUp = false;
+            }
+            run(parallelism, level, bottomUp);
+            frontierSize = level.advance();
+            frontierArcs = level.frontierArcs();
+            unexplored -= frontierArcs;
+        }
+        return level.distances;
+    }
+
+    //- OUTILS
+
+    /**
+     * Développe un niveau sur toutes les tranches de WORDS_PER_TASK mots,
+     * réparties entre au plus parallelism threads du pool partagé.
+     * @param parallelism Le nombre maximal de threads, 1 pour développer le
+     * niveau dans le thread courant.
+     * @param level L'état du parcours.
+     * @param bottomUp true pour un développement ascendant.
+     */
+    private static void run(int parallelism, final Level level,
+                            final boolean bottomUp) {
+        int slices = (level.words + WORDS_PER_TASK - 1) / WORDS_PER_TASK;
+        ForkJoinPools.invoke(parallelism, slices, new ForkJoinPools.Work() {
+            @Override
+            public void run(int k) {
+                int lo = k * WORDS_PER_TASK;
+                level.step(bottomUp, lo,
+                        Math.min(level.words, lo + WORDS_PER_TASK));
+            }
+        });
+    }
+
+    //- TYPES IMBRIQUÉS
+
+    /**
+     * L'état d'un parcours : distances, sommets visités, frontière courante
+     * et frontière suivante.
+     */
+    private static final class Level {
+
+        /**
+         * La photographie parcourue.
+         */
+        private final CsrGraph graph;
+
+        /**
+         * Le nombre de mots des ensembles de bits.
+         */
+        private final int words;
+
+        /**
+         * Les distances depuis la source.
+         */
+        private final int[] distances;
+
+        /**
+         * Les sommets visités.
+         */
+        private final AtomicLongArray visited;
+
+        /**
+         * La frontière du niveau courant.
+         */
+        private long[] frontier;
+
+        /**
+         * La frontière du niveau suivant, en cours de construction.
+         */
+        private AtomicLongArray next;
+
+        /**
+         * La distance des sommets de la frontière courante.
+         */
+        private int depth;
+
+        /**
+         * L'état initial d'un parcours depuis le sommet identifié par source.
+         * @param graph La photographie parcourue.
+         * @param source Identifiant du sommet source.
+         */
+        private Level(CsrGraph graph, int source) {
+            int n = graph.vertexCount();
+            this.graph = graph;
+            this.words = (n + WORD_BITS - 1) / WORD_BITS;
+            this.distances = new int[n];
+            Arrays.fill(distances, Integer.MAX_VALUE);
+            this.visited = new AtomicLongArray(words);
+            this.frontier = new long[words];
+            this.next = new AtomicLongArray(words);
+            distances[source] = 0;
+            setBit(visited, source);
+            frontier[source / WORD_BITS] |= 1L << source;
+        }
+
+        /**
+         * Développe le niveau courant pour les sommets des mots lo à hi - 1.
+         * En mode descendant, ce sont les sommets de la frontière de ces mots
+         * qui sont développés ; en mode ascendant, ce sont les sommets non
+         * visités de ces mots qui cherchent un prédécesseur.
+         * @param bottomUp true pour un développement ascendant.
+         * @param lo Le premier mot.
+         * @param hi Le mot suivant le dernier mot.
+         */
+        void step(boolean bottomUp, int lo, int hi) {
+            int d = depth + 1;
+            int n = distances.length;
+            for (int w = lo; w < hi; ++w) {
+                if (bottomUp) {
+                    long unvisited = ~visited.get(w);
+                    long found = 0L;
+                    while (unvisited != 0) {
+                        int bit = Long.numberOfTrailingZeros(unvisited);
+                        unvisited &= unvisited - 1;
+                        int v = w * WORD_BITS + bit;
+                        if (v >= n) {
+                            break;
+                        }
+                        for (int i = graph.inStart(v); i < graph.inEnd(v);
+                                ++i) {
+                            if (testBit(frontier, graph.inSource(i))) {
+                                distances[v] = d;
+                                found |= 1L << bit;
+                                break;
+                            }
+                        }
+                    }
+                    // Les mots de cette tranche n'appartiennent qu'à elle.
+                    if (found != 0) {
+                        visited.set(w, visited.get(w) | found);
+                        next.set(w, found);
+                    }
+                } else {
+                    long bits = frontier[w];
+                    while (bits != 0) {
+                        int v = w * WORD_BITS
+                                + Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        for (int i = graph.outStart(v); i < graph.outEnd(v);
+                                ++i) {
+                            int y = graph.outTarget(i);
+                            if (setBit(visited, y)) {
+                                distances[y] = d;
+                                setBit(next, y);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Passe au niveau suivant : la frontière suivante devient la
+         * frontière courante.
+         * @return Le nombre de sommets de la nouvelle frontière.
+         */
+        int advance() {
+            int size = 0;
+            for (int w = 0; w < words; ++w) {
+                frontier[w] = next.get(w);
+                size += Long.bitCount(frontier[w]);
+            }
+            next = new AtomicLongArray(words);
+            ++depth;
+            return size;
+        }
+
+        /**
+         * @return La somme des degrés sortants des sommets de la frontière.
+         */
+        long frontierArcs() {
+            long sum = 0;
+            for (int w = 0; w < words; ++w) {
+                long bits = frontier[w];
+                while (bits != 0) {
+                    int v = w * WORD_BITS
+                            + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    sum += graph.outDegree(v);
+                }
+            }
+            return sum;
+        }
+
+        /**
+         * @param bits Un ensemble de bits.
+         * @param v Un indice de bit.
+         * @return true ou false selon si le bit v est à 1.
+         */
+        private static boolean testBit(long[] bits, int v) {
+            return (bits[v / WORD_BITS] & (1L << v)) != 0;
+        }
+
+        /**
+         * Met à 1 le bit v de l'ensemble dénoté par bits, de manière
+         * atomique.
+         * @param bits Un ensemble de bits partagé.
+         * @param v Un indice de bit.
+         * @return true si le bit était à 0 et a été mis à 1 par cet appel.
+         */
+        private static boolean setBit(AtomicLongArray bits, int v) {
+            int w = v / WORD_BITS;
+            long mask = 1L << v;
+            long old = bits.get(w);
+            while ((old & mask) == 0) {
+                if (bits.compareAndSet(w, old, old | mask)) {
+                    return true;
+                }
+                old = bits.get(w);
+            }
+            return false;
+        }
+    }
+}
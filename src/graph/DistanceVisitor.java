@@ -0,0 +1,17 @@
+package graph;
+
+/**
+ * Reçoit les sommets atteints par un parcours en largeur d'une photographie
+ * CSR (voir CsrGraph.traverse), identifiés par leur identifiant entier. Les
+ * sommets sont transmis par distance croissante, sans qu'aucun objet ne soit
+ * alloué par le parcours.
+ */
+public interface DistanceVisitor {
+
+    /**
+     * Appelée une fois pour chaque sommet atteint par le parcours.
+     * @param vertex L'identifiant du sommet atteint.
+     * @param distance La distance séparant ce sommet de la source.
+     */
+    void visit(int vertex, int distance);
+}
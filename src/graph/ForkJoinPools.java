@@ -0,0 +1,175 @@
+package graph;
+
+import util.Assert;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Le pool de threads partagé par les calculs parallèles de ce paquetage
+ * (PageRank, DirectionOptimizingBfs). Créer un ForkJoinPool démarre ses
+ * propres threads : plutôt que d'en créer un à chaque calcul, un seul pool
+ * est partagé par tous les calculs. Il est dimensionné pour le plus grand
+ * niveau de parallélisme demandé jusqu'ici, et remplacé, l'ancien étant
+ * arrêté, lorsqu'un calcul en demande davantage : le nombre de threads reste
+ * ainsi borné quelle que soit la suite des niveaux demandés.
+ * Un calcul demandant moins de threads que le pool n'en compte est limité
+ * par invoke à autant de tâches que son niveau de parallélisme. Les threads
+ * d'un ForkJoinPool sont des démons : le pool partagé ne retient pas la JVM.
+ */
+final class ForkJoinPools {
+
+    //- ATTRIBUTS
+
+    /**
+     * Le pool partagé, ou null tant qu'aucun calcul parallèle n'a eu lieu.
+     */
+    private static ForkJoinPool pool;
+
+    //- CONSTRUCTEURS
+
+    private ForkJoinPools() {
+    }
+
+    //- COMMANDES
+
+    /**
+     * Exécute les parts 0 à count - 1 du travail dénoté par work, réparties
+     * entre au plus parallelism tâches du pool partagé qui se les
+     * distribuent au fur et à mesure. Les parts sont exécutées dans le thread
+     * courant si parallelism vaut 1 ou s'il n'y a qu'une part.
+     * @pre
+     *      parallelism > 0
+     *      count >= 0
+     *      work != null
+     * @param parallelism Le nombre maximal de threads à occuper.
+     * @param count Le nombre de parts du travail.
+     * @param work Le travail à exécuter.
+     */
+    static void invoke(int parallelism, int count, Work work) {
+        Assert.check(parallelism > 0, "parallelism must be positive");
+        Assert.check(count >= 0, "count must not be negative");
+        Assert.check(work != null, "work must not be null");
+        int tasks = Math.min(parallelism, count);
+        if (tasks <= 1) {
+            for (int k = 0; k < count; ++k) {
+                work.run(k);
+            }
+            return;
+        }
+        while (true) {
+            ForkJoinPool p = get(tasks);
+            try {
+                p.invoke(new Workers(work, count, tasks));
+                return;
+            } catch (RejectedExecutionException e) {
+                // Le pool vient d'être remplacé par un plus grand : aucune
+                // part n'a été exécutée, le calcul est soumis au nouveau.
+                if (!p.isShutdown()) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    //- OUTILS
+
+    /**
+     * @pre
+     *      parallelism > 1
+     * @param parallelism Un nombre de threads.
+     * @return Le pool partagé, d'au moins parallelism threads.
+     */
+    private static synchronized ForkJoinPool get(int parallelism) {
+        Assert.check(parallelism > 1, "parallelism must be greater than 1");
+        if (pool == null || pool.getParallelism() < parallelism) {
+            if (pool != null) {
+                pool.shutdown();
+            }
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+
+    //- TYPES IMBRIQUÉS
+
+    /**
+     * Un travail découpé en parts indépendantes, exécutables dans n'importe
+     * quel ordre et par n'importe quel thread.
+     */
+    interface Work {
+
+        /**
+         * Exécute la part numéro k du travail.
+         * @param k Le numéro de la part.
+         */
+        void run(int k);
+    }
+
+    /**
+     * Une tâche lançant tasks exécutants qui se distribuent les parts d'un
+     * travail. Les tâches ne sont jamais sérialisées.
+     */
+    @SuppressWarnings("serial")
+    private static final class Workers extends RecursiveAction {
+
+        /**
+         * Le travail à exécuter.
+         */
+        private final Work work;
+
+        /**
+         * Le nombre de parts du travail.
+         */
+        private final int count;
+
+        /**
+         * Le nombre d'exécutants, ou 0 pour un exécutant.
+         */
+        private final int tasks;
+
+        /**
+         * La prochaine part à exécuter, partagée par les exécutants.
+         */
+        private final AtomicInteger next;
+
+        /**
+         * La tâche lançant tasks exécutants des count parts de work.
+         * @param work Le travail à exécuter.
+         * @param count Le nombre de parts du travail.
+         * @param tasks Le nombre d'exécutants.
+         */
+        private Workers(Work work, int count, int tasks) {
+            this(work, count, tasks, new AtomicInteger());
+        }
+
+        /**
+         * Un exécutant (tasks vaut 0) ou la tâche les lançant.
+         */
+        private Workers(Work work, int count, int tasks, AtomicInteger next) {
+            this.work = work;
+            this.count = count;
+            this.tasks = tasks;
+            this.next = next;
+        }
+
+        @Override
+        protected void compute() {
+            if (tasks == 0) {
+                int k = next.getAndIncrement();
+                while (k < count) {
+                    work.run(k);
+                    k = next.getAndIncrement();
+                }
+            } else {
+                Workers[] workers = new Workers[tasks];
+                for (int i = 0; i < tasks; ++i) {
+                    workers[i] = new Workers(work, count, 0, next);
+                }
+                invokeAll(workers);
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@ import graph.exceptions.DuplicateArc;
 import graph.exceptions.DuplicateVertex;
 import graph.exceptions.VertexNotFound;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
@@ -76,6 +77,29 @@ public interface Graph {
      */
     void createArc(Vertex x, Vertex y) throws DuplicateArc, VertexNotFound;
 
+    /**
+     * Crée un arc étiqueté par label partant du sommet dénoté par x et
+     * pointant vers le sommet dénoté par y, dans les mêmes conditions que
+     * createArc(Vertex, Vertex).
+     * @param x Le sommet de départ de l'arc.
+     * @param y Le sommet d'arrivée de l'arc.
+     * @param label L'étiquette de l'arc, ou null.
+     */
+    void createArc(Vertex x, Vertex y, ArcLabel label)
+            throws DuplicateArc, VertexNotFound;
+
+    /**
+     * Crée en une fois les arcs de la liste dénotée par arcs, chacun avec son
+     * étiquette, dans les mêmes conditions que
+     * createArc(Vertex, Vertex, ArcLabel). Si une exception est levée, aucun
+     * arc n'a été créé.
+     * @pre
+     *      arcs != null
+     *      arcs ne contient pas deux arcs reliant les mêmes sommets
+     * @param arcs Les arcs à créer.
+     */
+    void createArcs(List<Arc> arcs) throws DuplicateArc, VertexNotFound;
+
     /**
      * Supprime l'arc partant du sommet dénoté par x et pointant vers le sommet
      * dénoté par y. Le sommet dénoté par x ne sera alors plus en relation avec
@@ -128,27 +152,102 @@ public interface Graph {
     int arcCount();
 
     /**
-     * @return Un ensemble contenant tous les sommets contenus dans ce graphe.
+     * Les ensembles renvoyés par vertexSet, vertexSetByName et arcSet sont des
+     * vues non modifiables sur le contenu du graphe, et non des copies : leur
+     * obtention ne coûte rien et elles reflètent les modifications ultérieures
+     * du graphe. Modifier le graphe pendant le parcours d'une de ces vues
+     * lève une ConcurrentModificationException ; pour modifier le graphe au
+     * fil d'un parcours, il faut parcourir une copie de la vue.
+     * @return Une vue sur l'ensemble des sommets contenus dans ce graphe.
      */
     Set<Vertex> vertexSet();
 
     /**
-     * @return Un ensemble contenant tous les sommets contenus dans ce graphe
-     * triés dans l'ordre alphabétique par leur nom.
+     * @return Une vue sur l'ensemble des sommets contenus dans ce graphe
+     * triés dans l'ordre alphabétique par leur nom (voir vertexSet).
      */
     SortedSet<Vertex> vertexSetByName();
 
     /**
-     * @return Un ensemble contenant tous les sommets contenus dans ce graphe
-     * triés par degré sortant.
+     * @return Un ensemble non modifiable contenant tous les sommets contenus
+     * dans ce graphe triés par degré sortant, tel qu'il était lors de
+     * l'appel : l'ensemble n'est pas affecté par les modifications
+     * ultérieures du graphe, et un sommet ajouté depuis n'y appartient pas.
      */
     SortedSet<Vertex> vertexSetByDegree();
 
     /**
-     * @return Un ensemble contenant tous les arcs contenus dans ce graphe.
+     * @param x Un sommet du graphe.
+     * @return Le nombre d'arcs partant du sommet dénoté par x.
+     * @throws VertexNotFound Si le sommet n'appartient pas à ce graphe.
+     */
+    int outDegree(Vertex x) throws VertexNotFound;
+
+    /**
+     * @param x Un sommet du graphe.
+     * @return Le nombre d'arcs arrivant au sommet dénoté par x.
+     * @throws VertexNotFound Si le sommet n'appartient pas à ce graphe.
+     */
+    int inDegree(Vertex x) throws VertexNotFound;
+
+    /**
+     * @pre
+     *      k >= 0
+     * @param k Le nombre de sommets souhaités.
+     * @return Les k sommets de plus fort degré sortant, par degré décroissant
+     * puis par nom.
+     */
+    List<Vertex> topKByOutDegree(int k);
+
+    /**
+     * @pre
+     *      k >= 0
+     * @param k Le nombre de sommets souhaités.
+     * @return Les k sommets de plus fort degré entrant, par degré décroissant
+     * puis par nom.
+     */
+    List<Vertex> topKByInDegree(int k);
+
+    /**
+     * @pre
+     *      0 <= min <= max
+     * @param min Le degré sortant minimal.
+     * @param max Le degré sortant maximal.
+     * @return Les sommets dont le degré sortant est compris entre min et max
+     * inclus, par degré décroissant puis par nom.
+     */
+    List<Vertex> verticesByOutDegree(int min, int max);
+
+    /**
+     * @pre
+     *      0 <= min <= max
+     * @param min Le degré entrant minimal.
+     * @param max Le degré entrant maximal.
+     * @return Les sommets dont le degré entrant est compris entre min et max
+     * inclus, par degré décroissant puis par nom.
+     */
+    List<Vertex> verticesByInDegree(int min, int max);
+
+    /**
+     * @return Une vue sur l'ensemble des arcs contenus dans ce graphe (voir
+     * vertexSet).
      */
     Set<Arc> arcSet();
 
+    /**
+     * Transmet chaque sommet de ce graphe au visiteur dénoté par visitor. Le
+     * visiteur ne doit pas modifier le graphe.
+     * @param visitor Le visiteur recevant les sommets.
+     */
+    void forEachVertex(VertexVisitor visitor);
+
+    /**
+     * Transmet chaque arc de ce graphe au visiteur dénoté par visitor. Le
+     * visiteur ne doit pas modifier le graphe.
+     * @param visitor Le visiteur recevant les arcs.
+     */
+    void forEachArc(ArcVisitor visitor);
+
     /**
      * @return Informations générales sur ce graphe.
      */
@@ -157,19 +256,49 @@ public interface Graph {
     //- Opérations générales
 
     /**
+     * Les ensembles renvoyés par vertexFrom et vertexTo ne sont pas
+     * modifiables. Ils peuvent être des vues sur le graphe (voir vertexSet) :
+     * pour modifier le graphe au fil d'un parcours, il faut parcourir une
+     * copie de l'ensemble.
+     * @pre
+     *      containsVertex(x)
      * @param x Le sommet avec lequel rechercher.
-     * @return Les sommets à destination d'un arc partant du sommet partant du
-     * sommet dénoté par x.
+     * @return Les sommets à destination d'un arc partant du sommet dénoté par
+     * x.
      */
     Set<Vertex> vertexFrom(Vertex x);
 
     /**
+     * @pre
+     *      containsVertex(x)
      * @param x Le sommet avec lequel rechercher.
      * @return Les sommets au départ d'un arc à destination du sommet dénoté
-     * par x.
+     * par x (voir vertexFrom).
      */
     Set<Vertex> vertexTo(Vertex x);
 
+    /**
+     * @pre
+     *      containsVertex(x)
+     *      label != null
+     * @param x Le sommet avec lequel rechercher.
+     * @param label L'étiquette des arcs à suivre.
+     * @return Les sommets à destination d'un arc étiqueté par label partant
+     * du sommet dénoté par x (voir vertexFrom).
+     */
+    Set<Vertex> vertexFrom(Vertex x, ArcLabel label);
+
+    /**
+     * @pre
+     *      containsVertex(x)
+     *      label != null
+     * @param x Le sommet avec lequel rechercher.
+     * @param label L'étiquette des arcs à suivre.
+     * @return Les sommets au départ d'un arc étiqueté par label à destination
+     * du sommet dénoté par x (voir vertexFrom).
+     */
+    Set<Vertex> vertexTo(Vertex x, ArcLabel label);
+
     /**
      * Calcule pour chaque sommet du graphe la distance du plus court chemin le
      * séparant du sommet dénoté par x. Par définition, dist(x, x) == 0. Par
@@ -181,6 +310,61 @@ public interface Graph {
      */
     Map<Vertex, Integer> shortestPathsFrom(Vertex x);
 
+    /**
+     * Calcule la distance du plus court chemin séparant le sommet dénoté par
+     * x des sommets situés à au plus maxDepth arcs de lui. Le parcours
+     * s'arrête dès que maxResults sommets ont été atteints, les plus proches
+     * en premier. Les successeurs de chaque sommet étant découverts dans
+     * l'ordre de leur nom, les sommets retenus en cas de troncature sont les
+     * maxResults premiers découverts dans cet ordre. Les sommets non atteints
+     * ne figurent pas dans le résultat.
+     * @pre
+     *      containsVertex(x)
+     *      maxDepth >= 0
+     *      maxResults > 0
+     * @param x Sommet source à partir duquel calculer les distances.
+     * @param maxDepth La distance maximale des sommets à atteindre.
+     * @param maxResults Le nombre maximal de sommets à atteindre, x compris.
+     * @return Une Map liant chaque sommet atteint à sa distance le séparant
+     * du sommet dénoté par x, itérée par distance croissante.
+     */
+    Map<Vertex, Integer> shortestPathsFrom(Vertex x, int maxDepth,
+                                           int maxResults);
+
+    /**
+     * Calcule la distance du plus court chemin allant du sommet dénoté par x
+     * au sommet dénoté par y. Le parcours s'arrête dès que y est atteint.
+     * @pre
+     *      containsVertex(x) && containsVertex(y)
+     * @param x Le sommet de départ.
+     * @param y Le sommet d'arrivée.
+     * @return La distance de x à y, ou Integer.MAX_VALUE si aucun chemin ne
+     * relie x à y.
+     */
+    int distance(Vertex x, Vertex y);
+
+    /**
+     * Recherche un plus court chemin allant du sommet dénoté par x au sommet
+     * dénoté par y.
+     * @pre
+     *      containsVertex(x) && containsVertex(y)
+     * @param x Le sommet de départ.
+     * @param y Le sommet d'arrivée.
+     * @return Les sommets du chemin, de x à y inclus, ou une liste vide si
+     * aucun chemin ne relie x à y.
+     */
+    List<Vertex> shortestPath(Vertex x, Vertex y);
+
+    /**
+     * Construit une photographie immuable de l'état courant de ce graphe au
+     * format CSR, sur laquelle peuvent être exécutés des algorithmes
+     * d'analyse. Les modifications ultérieures de ce graphe ne sont pas
+     * répercutées sur la photographie. Tant que le graphe n'est pas modifié,
+     * une implémentation peut rendre la même photographie à chaque appel.
+     * @return Une photographie de ce graphe.
+     */
+    CsrGraph freeze();
+
     /**
      * Réinitialise ce graphe : retire tous les sommets et supprime toutes les
      * relations. À la fin de la méthode, ce graphe se trouvera dans le même
@@ -0,0 +1,324 @@
+package graph;
+
+import util.Assert;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Maintient le PageRank des sommets d'un graphe au fil de ses modifications,
+ * par la méthode de poussée locale ("local push"). Chaque sommet v porte une
+ * estimation p(v) et un résidu r(v) vérifiant en permanence l'invariant :
+ *      p(v) + r(v) = (1 - d) + d * somme pour u -> v de p(u) / deg+(u)
+ * où d est le facteur d'amortissement. Pousser un sommet u transfère son
+ * résidu dans son estimation et répartit d * r(u) / deg+(u) sur les résidus
+ * de ses successeurs. Lorsque tous les résidus sont inférieurs en valeur
+ * absolue à la tolérance, p est une approximation du PageRank.
+ * L'ajout ou le retrait d'un arc x -> y ne modifie que p(x), r(x) et r(y) ;
+ * seuls les sommets dont le résidu dépasse alors la tolérance sont poussés à
+ * la requête suivante, pour un coût proportionnel à l'ampleur de la
+ * modification et non à la taille du graphe.
+ * PageRank redistribue uniformément le rang des sommets sans successeur :
+ * cela revient à ajouter à chaque sommet une même part, en plus du saut
+ * (1 - d). Le système étant linéaire, sa solution est proportionnelle à
+ * celle de l'invariant ci-dessus, où ces sommets gardent leur rang : il
+ * suffit de normaliser p par sa somme, maintenue au fil des poussées, pour
+ * obtenir les rangs de PageRank, et le classement est le même à la
+ * tolérance près.
+ * Les méthodes de notification (vertexAdded, arcAdded...) doivent être
+ * appelées par le propriétaire du graphe à chaque modification de celui-ci ;
+ * les rangs ne sont mis à jour qu'à la requête suivante.
+ */
+public class IncrementalPageRank {
+
+    //- ATTRIBUTS
+
+    /**
+     * Le graphe dont les rangs sont maintenus.
+     */
+    private final Graph graph;
+
+    /**
+     * Le facteur d'amortissement.
+     */
+    private final double damping;
+
+    /**
+     * Le résidu maximal toléré.
+     */
+    private final double tolerance;
+
+    /**
+     * L'état de chaque sommet du graphe.
+     */
+    private final Map<Vertex, State> states;
+
+    /**
+     * La somme des estimations des sommets du graphe.
+     */
+    private double total;
+
+    /**
+     * Les sommets triés par estimation décroissante, puis par nom.
+     */
+    private final SortedSet<State> ranking;
+
+    /**
+     * Les sommets dont le résidu dépasse la tolérance.
+     */
+    private final Queue<State> pending;
+
+    //- CONSTRUCTEURS
+
+    /**
+     * Maintient le PageRank du graphe dénoté par graph, dont l'état courant
+     * est calculé immédiatement.
+     * @pre
+     *      graph != null
+     *      0 <= damping < 1
+     *      tolerance > 0
+     * @param graph Le graphe dont les rangs sont maintenus.
+     * @param damping Le facteur d'amortissement.
+     * @param tolerance Le résidu maximal toléré.
+     */
+    public IncrementalPageRank(Graph graph, double damping, double tolerance) {
+        Assert.check(graph != null, "graph must not be null");
+        Assert.check(damping >= 0 && damping < 1,
+                "damping must belong to [0, 1[");
+        Assert.check(tolerance > 0, "tolerance must be positive");
+        this.graph = graph;
+        this.damping = damping;
+        this.tolerance = tolerance;
+        this.states = new HashMap<Vertex, State>();
+        this.ranking = new TreeSet<State>(new Comparator<State>() {
+            @Override
+            public int compare(State o1, State o2) {
+                int d = Double.compare(o2.estimate, o1.estimate);
+                if (d != 0) {
+                    return d;
+                }
+                return o1.vertex.compareTo(o2.vertex);
+            }
+        });
+        this.pending = new ArrayDeque<State>();
+        for (Vertex x : graph.vertexSet()) {
+            vertexAdded(x);
+        }
+        for (State s : states.values()) {
+            s.degree = graph.vertexFrom(s.vertex).size();
+        }
+    }
+
+    //- REQUÊTES
+
+    /**
+     * @return Les sommets du graphe triés par rang décroissant, puis par nom.
+     */
+    public List<Vertex> ranking() {
+        propagate();
+        List<Vertex> result = new ArrayList<Vertex>(ranking.size());
+        for (State s : ranking) {
+            result.add(s.vertex);
+        }
+        return result;
+    }
+
+    /**
+     * @param x Un sommet du graphe.
+     * @return L'estimation du rang du sommet dénoté par x, normalisée pour
+     * que la somme des rangs vaille 1 comme dans PageRank.
+     */
+    public double rankOf(Vertex x) {
+        State s = states.get(x);
+        Assert.check(s != null, "x does not belong to this graph.");
+        propagate();
+        return s.estimate / total;
+    }
+
+    //- COMMANDES
+
+    /**
+     * Notifie l'ajout du sommet dénoté par x, sans aucun arc.
+     * @param x Le sommet ajouté au graphe.
+     */
+    public void vertexAdded(Vertex x) {
+        Assert.check(!states.containsKey(x), "x is already ranked");
+        State s = new State(x);
+        states.put(x, s);
+        ranking.add(s);
+        addResidual(s, 1.0 - damping);
+    }
+
+    /**
+     * Notifie le retrait imminent du sommet dénoté par x : ses arcs sont
+     * traités comme retirés un à un. Doit être appelée avant que le sommet
+     * soit retiré du graphe.
+     * @param x Le sommet sur le point d'être retiré.
+     */
+    public void vertexRemoving(Vertex x) {
+        State s = states.get(x);
+        Assert.check(s != null, "x does not belong to this graph.");
+        for (Vertex y : graph.vertexTo(x)) {
+            arcRemoved(y, x);
+        }
+        for (Vertex y : graph.vertexFrom(x)) {
+            if (!y.equals(x)) {
+                arcRemoved(x, y);
+            }
+        }
+        ranking.remove(s);
+        states.remove(x);
+        total -= s.estimate;
+        s.removed = true;
+    }
+
+    /**
+     * Notifie l'ajout de l'arc partant de x et pointant vers y.
+     * @param x Le sommet de départ de l'arc.
+     * @param y Le sommet d'arrivée de l'arc.
+     */
+    public void arcAdded(Vertex x, Vertex y) {
+        State from = states.get(x);
+        State to = states.get(y);
+        Assert.check(from != null && to != null,
+                "arc does not belong to this graph.");
+        int d = from.degree;
+        if (d == 0) {
+            addResidual(to, damping * from.estimate);
+        } else {
+            // p(x) est ajusté pour que les anciens successeurs reçoivent la
+            // même part : seul le nouveau successeur voit son résidu changer.
+            double p = from.estimate;
+            setEstimate(from, p * (d + 1) / d);
+            addResidual(from, -p / d);
+            addResidual(to, damping * p / d);
+        }
+        from.degree = d + 1;
+    }
+
+    /**
+     * Notifie le retrait de l'arc partant de x et pointant vers y.
+     * @param x Le sommet de départ de l'arc.
+     * @param y Le sommet d'arrivée de l'arc.
+     */
+    public void arcRemoved(Vertex x, Vertex y) {
+        State from = states.get(x);
+        State to = states.get(y);
+        Assert.check(from != null && to != null,
+                "arc does not belong to this graph.");
+        int d = from.degree;
+        Assert.check(d > 0, "x has no outgoing arc");
+        double p = from.estimate;
+        if (d > 1) {
+            setEstimate(from, p * (d - 1) / d);
+            addResidual(from, p / d);
+        }
+        addResidual(to, -damping * p / d);
+        from.degree = d - 1;
+    }
+
+    //- OUTILS
+
+    /**
+     * Pousse les sommets en attente jusqu'à ce que tous les résidus soient
+     * inférieurs à la tolérance.
+     */
+    private void propagate() {
+        while (!pending.isEmpty()) {
+            State s = pending.poll();
+            s.queued = false;
+            if (s.removed || Math.abs(s.residual) <= tolerance) {
+                continue;
+            }
+            double r = s.residual;
+            s.residual = 0.0;
+            setEstimate(s, s.estimate + r);
+            if (s.degree > 0) {
+                double share = damping * r / s.degree;
+                for (Vertex y : graph.vertexFrom(s.vertex)) {
+                    addResidual(states.get(y), share);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ajoute delta au résidu de l'état dénoté par s, et le met en attente si
+     * celui-ci dépasse la tolérance.
+     * @param s L'état à modifier.
+     * @param delta La quantité à ajouter.
+     */
+    private void addResidual(State s, double delta) {
+        s.residual += delta;
+        if (!s.queued && Math.abs(s.residual) > tolerance) {
+            s.queued = true;
+            pending.offer(s);
+        }
+    }
+
+    /**
+     * Modifie l'estimation de l'état dénoté par s en maintenant l'ordre du
+     * classement et la somme des estimations.
+     * @param s L'état à modifier.
+     * @param estimate La nouvelle estimation.
+     */
+    private void setEstimate(State s, double estimate) {
+        ranking.remove(s);
+        total += estimate - s.estimate;
+        s.estimate = estimate;
+        ranking.add(s);
+    }
+
+    //- TYPES IMBRIQUÉS
+
+    /**
+     * L'état d'un sommet pour la poussée locale.
+     */
+    private static final class State {
+
+        /**
+         * Le sommet décrit.
+         */
+        private final Vertex vertex;
+
+        /**
+         * L'estimation du rang du sommet.
+         */
+        private double estimate;
+
+        /**
+         * Le résidu du sommet.
+         */
+        private double residual;
+
+        /**
+         * Le degré sortant du sommet.
+         */
+        private int degree;
+
+        /**
+         * Indique si le sommet est dans la file des sommets à pousser.
+         */
+        private boolean queued;
+
+        /**
+         * Indique si le sommet a été retiré du graphe.
+         */
+        private boolean removed;
+
+        /**
+         * L'état initial du sommet dénoté par vertex.
+         * @param vertex Le sommet décrit.
+         */
+        private State(Vertex vertex) {
+            this.vertex = vertex;
+        }
+    }
+}
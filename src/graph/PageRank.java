@@ -0,0 +1,366 @@
+package graph;
+
+import util.Assert;
+
+import java.util.Arrays;
+
+/**
+ * Calcule le PageRank des sommets d'une photographie CSR par la méthode des
+ * puissances. Chaque itération lit le vecteur des rangs de l'itération
+ * précédente et écrit dans un second vecteur (double tampon) : le rang d'un
+ * sommet est tiré de ses prédécesseurs, chacun lui transmettant sa part
+ * rang / degré sortant. Le rang des sommets sans successeur (sommets
+ * pendants) est redistribué uniformément à tous les sommets, de sorte que la
+ * somme des rangs reste égale à 1.
+ * Le calcul s'arrête lorsque la distance (norme 1) entre deux itérations
+ * successives passe sous la tolérance, ou après un nombre maximal
+ * d'itérations.
+ * Les sommets sont découpés en blocs de taille fixe traités indépendamment,
+ * ce qui permet de répartir une itération sur plusieurs coeurs via le
+ * ForkJoinPool partagé entre les calculs (voir setParallelism). Chaque bloc
+ * n'écrit que dans ses propres cases, sans verrou, et les sommes globales
+ * sont réduites bloc par bloc dans un ordre fixe : le résultat est identique
+ * au bit près quel que soit le nombre de threads.
+ */
+public class PageRank {
+
+    //- CONSTANTES
+
+    /**
+     * Le facteur d'amortissement par défaut.
+     */
+    public static final double DEFAULT_DAMPING = 0.85;
+
+    /**
+     * La tolérance de convergence par défaut.
+     */
+    public static final double DEFAULT_TOLERANCE = 1e-9;
+
+    /**
+     * Le nombre maximal d'itérations par défaut.
+     */
+    public static final int DEFAULT_MAX_ITERATIONS = 100;
+
+    /**
+     * Le nombre de sommets d'un bloc, unité de travail d'une itération.
+     */
+    private static final int BLOCK_SIZE = 4096;
+
+    //- ATTRIBUTS
+
+    /**
+     * La photographie sur laquelle calculer les rangs.
+     */
+    private final CsrGraph graph;
+
+    /**
+     * La probabilité de suivre un arc plutôt que de sauter vers un sommet
+     * quelconque.
+     */
+    private double damping;
+
+    /**
+     * La distance entre deux itérations en deçà de laquelle le calcul
+     * s'arrête.
+     */
+    private double tolerance;
+
+    /**
+     * Le nombre maximal d'itérations.
+     */
+    private int maxIterations;
+
+    /**
+     * Le nombre de threads utilisés pour le calcul.
+     */
+    private int parallelism;
+
+    /**
+     * Le nombre d'itérations effectuées lors du dernier calcul.
+     */
+    private int iterations;
+
+    //- CONSTRUCTEURS
+
+    /**
+     * Un calcul de PageRank sur la photographie dénotée par graph, avec les
+     * paramètres par défaut.
+     * @pre
+     *      graph != null
+     * @param graph La photographie sur laquelle calculer les rangs.
+     */
+    public PageRank(CsrGraph graph) {
+        Assert.check(graph != null, "graph must not be null");
+        this.graph = graph;
+        this.damping = DEFAULT_DAMPING;
+        this.tolerance = DEFAULT_TOLERANCE;
+        this.maxIterations = DEFAULT_MAX_ITERATIONS;
+        this.parallelism = 1;
+    }
+
+    //- REQUÊTES
+
+    /**
+     * @return Le facteur d'amortissement.
+     */
+    public double getDamping() {
+        return damping;
+    }
+
+    /**
+     * @return La tolérance de convergence.
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * @return Le nombre maximal d'itérations.
+     */
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    /**
+     * @return Le nombre de threads utilisés pour le calcul.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return Le nombre d'itérations effectuées lors du dernier calcul.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Calcule le PageRank de chaque sommet de la photographie.
+     * @return Un tableau indexé par identifiant de sommet contenant son rang.
+     * La somme des rangs vaut 1 (à l'erreur d'arrondi près).
+     */
+    public double[] compute() {
+        int n = graph.vertexCount();
+        iterations = 0;
+        if (n == 0) {
+            return new double[0];
+        }
+        Iteration it = new Iteration(graph, damping);
+        double delta = Double.POSITIVE_INFINITY;
+        while (iterations < maxIterations && delta >= tolerance) {
+            run(parallelism, it, Iteration.SHARE);
+            it.reduceDangling();
+            run(parallelism, it, Iteration.PULL);
+            delta = it.swap();
+            ++iterations;
+        }
+        return it.rank;
+    }
+
+    //- COMMANDES
+
+    /**
+     * @pre
+     *      0 <= damping < 1
+     * @param damping Le nouveau facteur d'amortissement.
+     */
+    public void setDamping(double damping) {
+        Assert.check(damping >= 0 && damping < 1,
+                "damping must belong to [0, 1[");
+        this.damping = damping;
+    }
+
+    /**
+     * @pre
+     *      tolerance >= 0
+     * @param tolerance La nouvelle tolérance de convergence.
+     */
+    public void setTolerance(double tolerance) {
+        Assert.check(tolerance >= 0, "tolerance must not be negative");
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * @pre
+     *      maxIterations > 0
+     * @param maxIterations Le nouveau nombre maximal d'itérations.
+     */
+    public void setMaxIterations(int maxIterations) {
+        Assert.check(maxIterations > 0, "maxIterations must be positive");
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * @pre
+     *      parallelism > 0
+     * @param parallelism Le nombre de threads à utiliser pour le calcul, 1
+     * pour un calcul séquentiel.
+     */
+    public void setParallelism(int parallelism) {
+        Assert.check(parallelism > 0, "parallelism must be positive");
+        this.parallelism = parallelism;
+    }
+
+    //- OUTILS
+
+    /**
+     * Exécute une phase de l'itération sur tous les blocs, répartis entre au
+     * plus parallelism threads du pool partagé.
+     * @param parallelism Le nombre maximal de threads, 1 pour exécuter les
+     * blocs dans le thread courant.
+     * @param it L'itération en cours.
+     * @param phase La phase à exécuter.
+     */
+    private static void run(int parallelism, final Iteration it,
+                            final int phase) {
+        ForkJoinPools.invoke(parallelism, it.blockCount(),
+                new ForkJoinPools.Work() {
+                    @Override
+                    public void run(int b) {
+                        it.runBlock(phase, b);
+                    }
+                });
+    }
+
+    //- TYPES IMBRIQUÉS
+
+    /**
+     * L'état d'un calcul de PageRank : les deux vecteurs de rangs, les parts
+     * transmises par chaque sommet et les sommes partielles de chaque bloc.
+     */
+    private static final class Iteration {
+
+        /**
+         * La phase calculant la part transmise par chaque sommet.
+         */
+        static final int SHARE = 0;
+
+        /**
+         * La phase tirant le nouveau rang de chaque sommet.
+         */
+        static final int PULL = 1;
+
+        /**
+         * La photographie sur laquelle calculer les rangs.
+         */
+        private final CsrGraph graph;
+
+        /**
+         * Le facteur d'amortissement.
+         */
+        private final double damping;
+
+        /**
+         * Les rangs de l'itération précédente.
+         */
+        private double[] rank;
+
+        /**
+         * Les rangs de l'itération en cours.
+         */
+        private double[] next;
+
+        /**
+         * La part de son rang que chaque sommet transmet à ses successeurs.
+         */
+        private final double[] share;
+
+        /**
+         * Les sommes partielles (rang pendant, puis écart) de chaque bloc.
+         */
+        private final double[] partial;
+
+        /**
+         * Le rang reçu par chaque sommet indépendamment de ses prédécesseurs.
+         */
+        private double base;
+
+        /**
+         * Un calcul dont tous les rangs valent initialement 1 / n.
+         * @param graph La photographie sur laquelle calculer les rangs.
+         * @param damping Le facteur d'amortissement.
+         */
+        private Iteration(CsrGraph graph, double damping) {
+            int n = graph.vertexCount();
+            this.graph = graph;
+            this.damping = damping;
+            this.rank = new double[n];
+            this.next = new double[n];
+            this.share = new double[n];
+            this.partial = new double[(n + BLOCK_SIZE - 1) / BLOCK_SIZE];
+            Arrays.fill(rank, 1.0 / n);
+        }
+
+        /**
+         * @return Le nombre de blocs de sommets.
+         */
+        int blockCount() {
+            return partial.length;
+        }
+
+        /**
+         * Exécute la phase dénotée par phase sur le bloc b.
+         * @param phase SHARE ou PULL.
+         * @param b L'indice du bloc.
+         */
+        void runBlock(int phase, int b) {
+            int lo = b * BLOCK_SIZE;
+            int hi = Math.min(lo + BLOCK_SIZE, rank.length);
+            double sum = 0.0;
+            if (phase == SHARE) {
+                for (int v = lo; v < hi; ++v) {
+                    int degree = graph.outDegree(v);
+                    if (degree == 0) {
+                        sum += rank[v];
+                        share[v] = 0.0;
+                    } else {
+                        share[v] = rank[v] / degree;
+                    }
+                }
+            } else {
+                for (int v = lo; v < hi; ++v) {
+                    double in = 0.0;
+                    for (int i = graph.inStart(v); i < graph.inEnd(v); ++i) {
+                        in += share[graph.inSource(i)];
+                    }
+                    next[v] = base + damping * in;
+                    sum += Math.abs(next[v] - rank[v]);
+                }
+            }
+            partial[b] = sum;
+        }
+
+        /**
+         * Répartit le rang des sommets pendants, réduit bloc par bloc, entre
+         * tous les sommets.
+         */
+        void reduceDangling() {
+            int n = rank.length;
+            base = (1.0 - damping + damping * sum(partial)) / n;
+        }
+
+        /**
+         * Termine l'itération en échangeant les deux vecteurs de rangs.
+         * @return L'écart (norme 1) entre les deux dernières itérations.
+         */
+        double swap() {
+            double[] tmp = rank;
+            rank = next;
+            next = tmp;
+            return sum(partial);
+        }
+
+        /**
+         * @param values Les valeurs à sommer.
+         * @return La somme des valeurs, dans l'ordre des indices.
+         */
+        private static double sum(double[] values) {
+            double s = 0.0;
+            for (double x : values) {
+                s += x;
+            }
+            return s;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package graph;
+
+import util.Assert;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Calcule une approximation du PageRank personnalisé depuis un sommet
+ * source par poussée avant ("forward push"). Le marcheur aléatoire part de la
+ * source, suit un arc sortant avec la probabilité d (facteur
+ * d'amortissement) et revient à la source sinon ; un marcheur arrivé sur un
+ * sommet sans successeur revient également à la source.
+ * Chaque sommet u porte une estimation p(u) et un résidu r(u). Pousser u
+ * ajoute (1 - d) * r(u) à p(u) et répartit d * r(u) entre ses successeurs.
+ * Seuls les sommets dont le résidu dépasse epsilon fois leur degré sont
+ * poussés, et le nombre total de poussées est borné : le coût d'un calcul ne
+ * dépend donc que de epsilon et du budget, et non de la taille du graphe.
+ */
+public class PersonalizedPageRank {
+
+    //- ATTRIBUTS
+
+    /**
+     * Le graphe sur lequel calculer les rangs.
+     */
+    private final Graph graph;
+
+    /**
+     * La probabilité de suivre un arc plutôt que de revenir à la source.
+     */
+    private final double damping;
+
+    /**
+     * Le résidu par arc sortant en deçà duquel un sommet n'est plus poussé.
+     */
+    private final double epsilon;
+
+    /**
+     * Le nombre maximal de poussées d'un calcul.
+     */
+    private final int budget;
+
+    //- CONSTRUCTEURS
+
+    /**
+     * @pre
+     *      graph != null
+     *      0 <= damping < 1
+     *      epsilon > 0
+     *      budget > 0
+     * @param graph Le graphe sur lequel calculer les rangs.
+     * @param damping Le facteur d'amortissement.
+     * @param epsilon Le résidu par arc sortant toléré.
+     * @param budget Le nombre maximal de poussées d'un calcul.
+     */
+    public PersonalizedPageRank(Graph graph, double damping, double epsilon,
+                                int budget) {
+        Assert.check(graph != null, "graph must not be null");
+        Assert.check(damping >= 0 && damping < 1,
+                "damping must belong to [0, 1[");
+        Assert.check(epsilon > 0, "epsilon must be positive");
+        Assert.check(budget > 0, "budget must be positive");
+        this.graph = graph;
+        this.damping = damping;
+        this.epsilon = epsilon;
+        this.budget = budget;
+    }
+
+    //- REQUÊTES
+
+    /**
+     * Calcule le PageRank personnalisé depuis le sommet dénoté par source.
+     * @pre
+     *      graph.containsVertex(source)
+     * @param source Le sommet depuis lequel partent les marches.
+     * @return Les sommets atteints associés à l'estimation de leur rang. Les
+     * sommets absents ont un rang estimé nul.
+     */
+    public Map<Vertex, Double> from(Vertex source) {
+        Assert.check(graph.containsVertex(source),
+                "source does not belong to this graph.");
+        Map<Vertex, Double> estimate = new HashMap<Vertex, Double>();
+        Map<Vertex, Double> residual = new HashMap<Vertex, Double>();
+        Set<Vertex> queued = new HashSet<Vertex>();
+        Queue<Vertex> pending = new ArrayDeque<Vertex>();
+        residual.put(source, 1.0);
+        queued.add(source);
+        pending.add(source);
+        int pushes = 0;
+        while (!pending.isEmpty() && pushes < budget) {
+            Vertex u = pending.poll();
+            queued.remove(u);
+            Set<Vertex> out = graph.vertexFrom(u);
+            double r = residual.get(u);
+            if (r <= epsilon * Math.max(out.size(), 1)) {
+                continue;
+            }
+            residual.put(u, 0.0);
+            add(estimate, u, (1.0 - damping) * r);
+            if (out.isEmpty()) {
+                addResidual(residual, queued, pending, source, damping * r);
+            } else {
+                double share = damping * r / out.size();
+                for (Vertex v : out) {
+                    addResidual(residual, queued, pending, v, share);
+                }
+            }
+            ++pushes;
+        }
+        return estimate;
+    }
+
+    //- OUTILS
+
+    /**
+     * Ajoute delta au résidu du sommet dénoté par v, et le met en attente si
+     * ce résidu dépasse epsilon. Le seuil dépendant du degré n'est vérifié
+     * qu'au moment de pousser le sommet.
+     * @param residual Les résidus.
+     * @param queued Les sommets en attente.
+     * @param pending La file des sommets en attente.
+     * @param v Le sommet dont le résidu augmente.
+     * @param delta La quantité ajoutée.
+     */
+    private void addResidual(Map<Vertex, Double> residual, Set<Vertex> queued,
+                             Queue<Vertex> pending, Vertex v, double delta) {
+        add(residual, v, delta);
+        if (residual.get(v) > epsilon && queued.add(v)) {
+            pending.offer(v);
+        }
+    }
+
+    /**
+     * Ajoute delta à la valeur associée à la clé dénotée par v.
+     * @param map La table à modifier.
+     * @param v La clé.
+     * @param delta La quantité ajoutée.
+     */
+    private static void add(Map<Vertex, Double> map, Vertex v, double delta) {
+        Double old = map.get(v);
+        if (old == null) {
+            map.put(v, delta);
+        } else {
+            map.put(v, old + delta);
+        }
+    }
+}
@@ -6,23 +6,17 @@ import graph.exceptions.DuplicateVertex;
 import graph.exceptions.VertexNotFound;
 import util.Assert;
 
-import java.util.ArrayDeque;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 /**
  * Une implémentation de l'interface Graph en utilisant une TreeSet pour
  * contenir l'ensemble des sommets du graphe, ainsi qu'une HashSet pour
  * contenir l'ensemble des arcs du graphe.
  */
-public class StdGraph implements Graph {
+public class StdGraph extends AbstractGraph {
 
     //- ATTRIBUTS
 
@@ -59,6 +53,7 @@ public class StdGraph implements Graph {
             throw new DuplicateVertex(x);
         }
         vertices.add(x);
+        vertexAdded(x);
     }
 
     /**
@@ -79,9 +74,11 @@ public class StdGraph implements Graph {
             Arc a = it.next();
             if (a.isImplied(x)) {
                 it.remove();
+                arcRemoved(a.getFrom(), a.getTo());
             }
         }
         vertices.remove(x);
+        vertexRemoved(x);
     }
 
     /**
@@ -106,33 +103,11 @@ public class StdGraph implements Graph {
     @Override
     public Vertex getVertex(Vertex x) throws VertexNotFound {
         Assert.check(x != null, "x must not be null");
-        for (Vertex y : vertices) {
-            if (x.equals(y)) {
-                return y;
-            }
-        }
-        throw new VertexNotFound(x);
-    }
-
-    /**
-     * Recherche l'objet décrivant le sommet dont le nom est strictement égal à
-     * la chaine dénotée par search. On considère le nom d'un graphe comme
-     * étant unique, un nom ne peut donc être attribué qu'à un seul graphe.
-     *
-     * @param search Le nom du sommet à rechercher le graphe.
-     * @return L'objet décrivant le sommet trouvé, ou null s'il n'existe pas.
-     */
-    @Override
-    public Vertex findVertexByName(String search) {
-        Assert.check(search != null, "search must not be null");
-        Vertex result = null;
-        for (Vertex x : vertices) {
-            if (x.getName().equals(search)) {
-                result = x;
-                break;
-            }
+        Vertex y = registeredVertex(x);
+        if (y == null) {
+            throw new VertexNotFound(x);
         }
-        return result;
+        return y;
     }
 
     /**
@@ -148,6 +123,21 @@ public class StdGraph implements Graph {
     @Override
     public void createArc(Vertex x, Vertex y)
             throws DuplicateArc, VertexNotFound {
+        createArc(x, y, null);
+    }
+
+    /**
+     * Crée un arc étiqueté par label partant du sommet dénoté par x et
+     * pointant vers le sommet dénoté par y, dans les mêmes conditions que
+     * createArc(Vertex, Vertex).
+     *
+     * @param x Le sommet de départ de l'arc.
+     * @param y Le sommet d'arrivée de l'arc.
+     * @param label L'étiquette de l'arc, ou null.
+     */
+    @Override
+    public void createArc(Vertex x, Vertex y, ArcLabel label)
+            throws DuplicateArc, VertexNotFound {
         Assert.check(x != null, "x must not be null");
         Assert.check(y != null, "y must not be null");
         if (!vertices.contains(x)) {
@@ -156,11 +146,12 @@ public class StdGraph implements Graph {
         if (!vertices.contains(y)) {
             throw new VertexNotFound(y);
         }
-        Arc a = new Arc(x, y);
+        Arc a = new Arc(x, y, label);
         if (arcs.contains(a)) {
             throw new DuplicateArc(a);
         }
         arcs.add(a);
+        arcAdded(x, y);
     }
 
     /**
@@ -188,6 +179,7 @@ public class StdGraph implements Graph {
         for (Arc b : arcs) {
             if (b.equals(a)) {
                 arcs.remove(b);
+                arcRemoved(x, y);
                 return;
             }
         }
@@ -274,48 +266,21 @@ public class StdGraph implements Graph {
     }
 
     /**
-     * @return Un ensemble contenant tous les sommets contenus dans ce graphe.
+     * @return Une vue non modifiable sur l'ensemble des sommets contenus dans
+     * ce graphe.
      */
     @Override
     public Set<Vertex> vertexSet() {
-        return new HashSet<Vertex>(vertices);
+        return Collections.unmodifiableSet(vertices);
     }
 
     /**
-     * @return Un ensemble contenant tous les sommets contenus dans ce graphe
-     * triés dans l'ordre alphabétique par leur nom.
-     */
-    @Override
-    public SortedSet<Vertex> vertexSetByName() {
-        return new TreeSet<Vertex>(vertices);
-    }
-
-    /**
-     * @return Un ensemble contenant tous les sommets contenus dans ce graphe
-     * triés par degré sortant.
-     */
-    @Override
-    public SortedSet<Vertex> vertexSetByDegree() {
-        SortedSet<Vertex> set = new TreeSet<Vertex>(new Comparator<Vertex>() {
-            @Override
-            public int compare(Vertex o1, Vertex o2) {
-                int d = vertexFrom(o2).size() - vertexFrom(o1).size();
-                if (d != 0) {
-                    return d;
-                }
-                return o1.compareTo(o2);
-            }
-        });
-        set.addAll(vertices);
-        return set;
-    }
-
-    /**
-     * @return Un ensemble contenant tous les arcs contenus dans ce graphe.
+     * @return Une vue non modifiable sur l'ensemble des arcs contenus dans ce
+     * graphe.
      */
     @Override
     public Set<Arc> arcSet() {
-        return new HashSet<Arc>(arcs);
+        return Collections.unmodifiableSet(arcs);
     }
 
     /**
@@ -329,65 +294,74 @@ public class StdGraph implements Graph {
 
     /**
      * @param x Le sommet avec lequel rechercher.
-     * @return Les sommets à destination d'un arc partant du sommet partant du
-     * sommet dénoté par x.
+     * @return Un ensemble non modifiable des sommets à destination d'un arc
+     * partant du sommet dénoté par x.
      */
+    @Override
     public Set<Vertex> vertexFrom(Vertex x) {
+        Assert.check(containsVertex(x), "x does not belong to this graph.");
         Set<Vertex> set = new HashSet<Vertex>();
         for (Arc a : arcs) {
             if (a.getFrom().equals(x)) {
                 set.add(a.getTo());
             }
         }
-        return set;
+        return Collections.unmodifiableSet(set);
     }
 
     /**
      * @param x Le sommet avec lequel rechercher.
-     * @return Les sommets au départ d'un arc à destination du sommet dénoté
-     * par x.
+     * @return Un ensemble non modifiable des sommets au départ d'un arc à
+     * destination du sommet dénoté par x.
      */
+    @Override
     public Set<Vertex> vertexTo(Vertex x) {
+        Assert.check(containsVertex(x), "x does not belong to this graph.");
         Set<Vertex> set = new HashSet<Vertex>();
         for (Arc a : arcs) {
             if (a.getTo().equals(x)) {
                 set.add(a.getFrom());
             }
         }
-        return set;
+        return Collections.unmodifiableSet(set);
     }
 
     /**
-     * Calcule pour chaque sommet du graphe la distance du plus court chemin le
-     * séparant du sommet dénoté par x. Par définition, dist(x, x) == 0. Par
-     * définition, si il n'existe pas de chemin reliant x à un sommet y
-     * quelconque, alors dist(x, y) == Integer.MAX_VALUE.
-     * @param x Sommet source à partir duquel calculer les distances.
-     * @return Une Map liant chaque sommet du graphe à sa distance le séparant
-     * du sommet dénoté par x.
+     * @param x Le sommet avec lequel rechercher.
+     * @param label L'étiquette des arcs à suivre.
+     * @return Un ensemble non modifiable des sommets à destination d'un arc
+     * étiqueté par label partant du sommet dénoté par x.
      */
-    public Map<Vertex, Integer> shortestPathsFrom(Vertex x) {
+    @Override
+    public Set<Vertex> vertexFrom(Vertex x, ArcLabel label) {
         Assert.check(containsVertex(x), "x does not belong to this graph.");
-        Map<Vertex, Integer> distances = new HashMap<Vertex, Integer>();
-        for (Vertex y : vertexSet()) {
-            distances.put(y, Integer.MAX_VALUE);
+        Assert.check(label != null, "label must not be null");
+        Set<Vertex> set = new HashSet<Vertex>();
+        for (Arc a : arcs) {
+            if (a.getFrom().equals(x) && label.equals(a.getLabel())) {
+                set.add(a.getTo());
+            }
         }
-        distances.put(x, 0);
-        Queue<Vertex> pqueue = new ArrayDeque<Vertex>();
-        pqueue.add(x);
-        while (!pqueue.isEmpty()) {
-            Vertex v = pqueue.poll();
-            int xDistance = distances.get(v);
-            for (Vertex y : vertexFrom(v)) {
-                int yDistance = distances.get(y);
-                if (yDistance > xDistance + 1) {
-                    yDistance = xDistance + 1;
-                    distances.put(y, yDistance);
-                    pqueue.offer(y);
-                }
+        return Collections.unmodifiableSet(set);
+    }
+
+    /**
+     * @param x Le sommet avec lequel rechercher.
+     * @param label L'étiquette des arcs à suivre.
+     * @return Un ensemble non modifiable des sommets au départ d'un arc
+     * étiqueté par label à destination du sommet dénoté par x.
+     */
+    @Override
+    public Set<Vertex> vertexTo(Vertex x, ArcLabel label) {
+        Assert.check(containsVertex(x), "x does not belong to this graph.");
+        Assert.check(label != null, "label must not be null");
+        Set<Vertex> set = new HashSet<Vertex>();
+        for (Arc a : arcs) {
+            if (a.getTo().equals(x) && label.equals(a.getLabel())) {
+                set.add(a.getFrom());
             }
         }
-        return distances;
+        return Collections.unmodifiableSet(set);
     }
 
     /**
@@ -399,5 +373,6 @@ public class StdGraph implements Graph {
     public void clear() {
         vertices.clear();
         arcs.clear();
+        cleared();
     }
 }
@@ -9,14 +9,24 @@ import util.Constants;
  * avoir deux sommets identifiables par un même nom au sein d'un même graphe.
  * Un sommet peut également contenir des métadonnées supplémentaires en
  * fonction de l'implémentation qui en est réalisée.
+ * Le nom d'un sommet ne doit pas changer au cours de sa vie : son hashcode
+ * est calculé une seule fois puis conservé.
  */
 public abstract class Vertex implements Comparable<Vertex> {
 
+    //- ATTRIBUTS
+
+    /**
+     * Le hashcode de ce sommet, ou 0 s'il n'a pas encore été calculé.
+     */
+    private int hash;
+
     //- REQUÊTES
 
     /**
      * @return Le nom de ce sommet et par lequel il est identifiable dans un
-     * graphe.
+     * graphe. Les implémentations doivent renvoyer une chaine déjà construite
+     * plutôt que d'en allouer une nouvelle à chaque appel.
      */
     public abstract String getName();
 
@@ -27,6 +37,9 @@ public abstract class Vertex implements Comparable<Vertex> {
      */
     @Override
     public int compareTo(Vertex o) {
+        if (this == o) {
+            return 0;
+        }
         return getName().compareTo(o.getName());
     }
 
@@ -37,9 +50,13 @@ public abstract class Vertex implements Comparable<Vertex> {
      */
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof Vertex) {
             Vertex x = (Vertex) obj;
-            return getName().equals(x.getName());
+            return hashCode() == x.hashCode()
+                    && getName().equals(x.getName());
         }
         return false;
     }
@@ -49,9 +66,13 @@ public abstract class Vertex implements Comparable<Vertex> {
      */
     @Override
     public int hashCode() {
-        int hash = 7;
-        hash += Constants.HASH_MULTIPLIER * hash + getName().hashCode();
-        return hash;
+        int h = hash;
+        if (h == 0) {
+            h = 7;
+            h += Constants.HASH_MULTIPLIER * h + getName().hashCode();
+            hash = h;
+        }
+        return h;
     }
 
     /**
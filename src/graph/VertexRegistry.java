@@ -0,0 +1,170 @@
+package graph;
+
+import util.Assert;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Un registre attribuant à chaque sommet enregistré un identifiant entier
+ * dense compris entre 0 et size() - 1, et indexant ces identifiants par le
+ * nom des sommets. La recherche d'un sommet par son nom ou par un sommet
+ * équivalent se fait ainsi en temps constant, et les identifiants peuvent
+ * servir d'indices dans des tableaux primitifs.
+ * Pour conserver des identifiants denses, le retrait d'un sommet attribue
+ * son identifiant au dernier sommet enregistré : seul l'identifiant de ce
+ * dernier change.
+ */
+public class VertexRegistry {
+
+    //- ATTRIBUTS
+
+    /**
+     * Les sommets enregistrés, indexés par leur identifiant.
+     */
+    private final List<Vertex> vertices;
+
+    /**
+     * Associe le nom de chaque sommet enregistré à son identifiant.
+     */
+    private final Map<String, Integer> ids;
+
+    //- CONSTRUCTEURS
+
+    public VertexRegistry() {
+        this.vertices = new ArrayList<Vertex>();
+        this.ids = new HashMap<String, Integer>();
+    }
+
+    /**
+     * Un registre vide pouvant contenir capacity sommets sans être
+     * redimensionné.
+     * @param capacity Le nombre de sommets attendus.
+     */
+    public VertexRegistry(int capacity) {
+        Assert.check(capacity >= 0, "capacity must not be negative");
+        this.vertices = new ArrayList<Vertex>(capacity);
+        this.ids = new HashMap<String, Integer>(2 * capacity);
+    }
+
+    //- REQUÊTES
+
+    /**
+     * @return Le nombre de sommets enregistrés.
+     */
+    public int size() {
+        return vertices.size();
+    }
+
+    /**
+     * @param x Un sommet quelconque.
+     * @return true ou false selon si un sommet équivalent à x est enregistré.
+     */
+    public boolean contains(Vertex x) {
+        Assert.check(x != null, "x must not be null");
+        return ids.containsKey(x.getName());
+    }
+
+    /**
+     * @param x Un sommet quelconque.
+     * @return L'identifiant du sommet équivalent à x, ou -1 s'il n'est pas
+     * enregistré.
+     */
+    public int indexOf(Vertex x) {
+        Assert.check(x != null, "x must not be null");
+        return indexOf(x.getName());
+    }
+
+    /**
+     * @param name Un nom de sommet.
+     * @return L'identifiant du sommet portant le nom dénoté par name, ou -1
+     * s'il n'est pas enregistré.
+     */
+    public int indexOf(String name) {
+        Assert.check(name != null, "name must not be null");
+        Integer id = ids.get(name);
+        if (id == null) {
+            return -1;
+        }
+        return id;
+    }
+
+    /**
+     * @param id Un identifiant compris entre 0 et size() - 1.
+     * @return Le sommet enregistré sous l'identifiant id.
+     */
+    public Vertex vertexAt(int id) {
+        return vertices.get(id);
+    }
+
+    /**
+     * @param x Un sommet quelconque.
+     * @return L'objet enregistré équivalent au sommet dénoté par x, ou null
+     * s'il n'est pas enregistré.
+     */
+    public Vertex get(Vertex x) {
+        Assert.check(x != null, "x must not be null");
+        return find(x.getName());
+    }
+
+    /**
+     * @param name Un nom de sommet.
+     * @return L'objet enregistré portant le nom dénoté par name, ou null
+     * s'il n'est pas enregistré.
+     */
+    public Vertex find(String name) {
+        int id = indexOf(name);
+        if (id < 0) {
+            return null;
+        }
+        return vertices.get(id);
+    }
+
+    //- COMMANDES
+
+    /**
+     * Enregistre le sommet dénoté par x sous l'identifiant size().
+     * @pre
+     *      x != null && !contains(x)
+     * @param x Le sommet à enregistrer.
+     * @return L'identifiant attribué au sommet.
+     */
+    public int add(Vertex x) {
+        Assert.check(x != null, "x must not be null");
+        Assert.check(!contains(x), "x is already registered");
+        int id = vertices.size();
+        vertices.add(x);
+        ids.put(x.getName(), id);
+        return id;
+    }
+
+    /**
+     * Retire le sommet équivalent à x du registre. Le dernier sommet
+     * enregistré reçoit l'identifiant ainsi libéré.
+     * @pre
+     *      x != null && contains(x)
+     * @param x Le sommet à retirer.
+     * @return L'identifiant qu'occupait le sommet retiré.
+     */
+    public int remove(Vertex x) {
+        Assert.check(x != null, "x must not be null");
+        Integer id = ids.remove(x.getName());
+        Assert.check(id != null, "x is not registered");
+        Vertex last = vertices.remove(vertices.size() - 1);
+        if (id < vertices.size()) {
+            vertices.set(id, last);
+            ids.put(last.getName(), id);
+        }
+        return id;
+    }
+
+    /**
+     * Retire tous les sommets du registre.
+     */
+    public void clear() {
+        vertices.clear();
+        ids.clear();
+    }
+}
@@ -0,0 +1,14 @@
+package graph;
+
+/**
+ * Reçoit les sommets d'un graphe un à un lors d'un appel à
+ * Graph.forEachVertex.
+ */
+public interface VertexVisitor {
+
+    /**
+     * Appelée une fois pour chaque sommet du graphe.
+     * @param x Le sommet visité.
+     */
+    void visit(Vertex x);
+}
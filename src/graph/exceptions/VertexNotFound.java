@@ -15,6 +15,11 @@ public class VertexNotFound extends Exception {
      */
     private final Vertex vertex;
 
+    /**
+     * Le nom du sommet n'ayant pas été trouvé dans le graphe.
+     */
+    private final String name;
+
     //- CONSTRUCTEURS
 
     /**
@@ -25,14 +30,36 @@ public class VertexNotFound extends Exception {
     public VertexNotFound(Vertex vertex) {
         super(vertex + " could not be not found in graph");
         this.vertex = vertex;
+        this.name = vertex == null ? null : vertex.getName();
+    }
+
+    /**
+     * Une nouvelle exception VertexNotFound concernant un sommet dont seul le
+     * nom, dénoté par name, est connu : c'est le cas d'un nom lu dans un
+     * fichier, qui ne permet pas de savoir s'il désigne un utilisateur ou une
+     * page.
+     * @param name Le nom du sommet n'ayant pas pu être trouvé dans le graphe.
+     */
+    public VertexNotFound(String name) {
+        super("\"" + name + "\" could not be found in graph");
+        this.vertex = null;
+        this.name = name;
     }
 
     //- REQUÊTES
 
     /**
-     * @return Le sommet n'ayant pas été trouvé dans le graphe.
+     * @return Le sommet n'ayant pas été trouvé dans le graphe, ou null si
+     * seul son nom est connu.
      */
     public Vertex getVertex() {
         return vertex;
     }
+
+    /**
+     * @return Le nom du sommet n'ayant pas été trouvé dans le graphe.
+     */
+    public String getName() {
+        return name;
+    }
 }
@@ -12,6 +12,8 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.IOException;
 import java.util.Observable;
@@ -19,11 +21,31 @@ import java.util.Observer;
 
 /**
  * À décrire.
+ * Un instantané indexé (voir MappedSnapshot) est d'abord ouvert en lecture
+ * seule : seuls ses effectifs sont affichés et la recherche consulte
+ * directement le fichier. Il n'est chargé entièrement qu'à la première
+ * modification.
+ * Un réseau chargé est journalisé (voir MutationLog) à côté du fichier
+ * chargé, sous le nom de ce fichier sans extension ; un réseau créé ici
+ * l'est au premier enregistrement, dans le répertoire courant. Si un
+ * journal existe déjà sous ce nom, par exemple après un arrêt brutal,
+ * l'utilisateur choisit de restaurer le réseau depuis ce journal ou de le
+ * remplacer : un journal n'est jamais remplacé sans son accord. Choisir un
+ * point de reprise (extension MutationLog.CHECKPOINT_EXTENSION) restaure
+ * directement le réseau. Le journal est fermé, et donc écrit, en quittant ;
+ * s'il cesse d'écrire après une erreur, l'utilisateur en est averti aussitôt.
+ * Enregistrer réécrit le fichier texte du réseau (voir SocialNetwork.save),
+ * sauf pour un réseau chargé depuis un manifeste : seuls les fragments
+ * modifiés depuis le chargement ou le précédent enregistrement sont alors
+ * réécrits (voir SocialNetwork.saveIncremental).
  */
 public class GUI {
 
     private JFrame mainFrame;
     private SocialNetwork model;
+    private MappedSnapshot snapshot;
+    private File base;
+    private boolean replaceLog;
 
     private JTextField firstNameUser;
     private JTextField lastNameUser;
@@ -66,8 +88,23 @@ public class GUI {
     }
 
     public GUI(String name, SocialNetwork models) {
+        this(name, models, null);
+    }
+
+    public GUI(String name, SocialNetwork models, File base) {
         names = name;
+        this.base = base;
         model = models;
+        model.enableIncrementalPageRank();
+        createView();
+        placeComponents();
+        createController();
+    }
+
+    public GUI(String name, MappedSnapshot snapshot, File base) {
+        names = name;
+        this.base = base;
+        this.snapshot = snapshot;
         createView();
         placeComponents();
         createController();
@@ -82,6 +119,7 @@ public class GUI {
 
     private void createModel() {
         model = new SocialNetwork(names);
+        model.enableIncrementalPageRank();
     }
 
     private void createView() {
@@ -240,17 +278,23 @@ public class GUI {
 
     private void createController() {
         mainFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-
-        ((Observable) model).addObserver(new Observer() {
+        mainFrame.addWindowListener(new WindowAdapter() {
             @Override
-            public void update(Observable o, Object arg) {
-                refresh();
+            public void windowClosing(WindowEvent e) {
+                closeLog();
             }
         });
 
+        if (model != null) {
+            observe();
+        }
+
         addUser.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
+                if (!editable()) {
+                    return;
+                }
                 try {
                     model.createUser(firstNameUser.getText(), lastNameUser.getText(), Integer.parseInt(age.getText()));
                 } catch (DuplicateVertex ex) {
@@ -263,6 +307,9 @@ public class GUI {
         delUser.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
+                if (!editable()) {
+                    return;
+                }
                 try {
                     model.removeUser(delName.getText());
                 } catch (VertexNotFound vertexNotFound) {
@@ -275,6 +322,9 @@ public class GUI {
         addPage.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
+                if (!editable()) {
+                    return;
+                }
                 try {
                     model.createPage(pageName.getText());
                 } catch (DuplicateVertex ex) {
@@ -287,6 +337,9 @@ public class GUI {
         delPage.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
+                if (!editable()) {
+                    return;
+                }
                 try {
                     model.removePage(delpageName.getText());
                 } catch (VertexNotFound vertexNotFound) {
@@ -299,7 +352,8 @@ public class GUI {
         search.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                VertexWindow w = new VertexWindow(searchName.getText(), model);
+                NetworkView view = model != null ? model : snapshot;
+                VertexWindow w = new VertexWindow(searchName.getText(), view);
                 w.display();
             }
         });
@@ -307,8 +361,20 @@ public class GUI {
         save.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
+                if (!editable()) {
+                    return;
+                }
                 try {
-                    model.save();
+                    if (model.getStore() != null) {
+                        model.saveIncremental();
+                    } else {
+                        model.save();
+                    }
+                    if (model.getLog() == null) {
+                        startLog();
+                    } else {
+                        model.getLog().sync();
+                    }
                 } catch (IOException ex) {
                     ex.printStackTrace();
                 }
@@ -325,10 +391,48 @@ public class GUI {
                 if (returnVal == JFileChooser.APPROVE_OPTION) {
                     file = fc.getSelectedFile();
                 }
+                if (file == null) {
+                    return;
+                }
                 try {
+                    File journal = journalBase(file);
+                    boolean recover = file.getName().endsWith(MutationLog.CHECKPOINT_EXTENSION);
+                    if (!recover && MutationLog.exists(journal)) {
+                        Object[] options = {"Recover", "Replace the journal", "Cancel"};
+                        int choice = JOptionPane.showOptionDialog(mainFrame,
+                                "A journal of " + journal.getName() + " already exists, "
+                                        + "possibly with changes that were never saved.\n"
+                                        + "Recover the network from this journal?",
+                                "Journal", JOptionPane.YES_NO_CANCEL_OPTION,
+                                JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
+                        if (choice == JOptionPane.YES_OPTION) {
+                            recover = true;
+                        } else if (choice != JOptionPane.NO_OPTION) {
+                            return;
+                        }
+                    }
+                    if (recover) {
+                        closeLog();
+                        news = SocialNetwork.recover(journal);
+                        mainFrame.dispose();
+                        new GUI(names, news, journal).display();
+                        return;
+                    }
+                    if (MappedSnapshot.isIndexed(file)) {
+                        MappedSnapshot view = MappedSnapshot.open(file);
+                        closeLog();
+                        mainFrame.dispose();
+                        GUI newg = new GUI(names, view, journal);
+                        newg.replaceLog = true;
+                        newg.display();
+                        return;
+                    }
                     news = SocialNetwork.init(file);
+                    closeLog();
                     mainFrame.dispose();
-                    GUI newg = new GUI(model.getName(), news);
+                    GUI newg = new GUI(names, news, journal);
+                    newg.replaceLog = true;
+                    newg.startLog();
                     newg.display();
                 } catch (IOException ex) {
                     ex.printStackTrace();
@@ -346,18 +450,105 @@ public class GUI {
         relation.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
+                if (!editable()) {
+                    return;
+                }
                 RelationWindow w = new RelationWindow(model);
                 w.display();
             }
         });
     }
 
+    private void observe() {
+        ((Observable) model).addObserver(new Observer() {
+            @Override
+            public void update(Observable o, Object arg) {
+                refresh();
+            }
+        });
+        if (model.getLog() != null) {
+            observeLog(model.getLog());
+        }
+    }
+
+    private void observeLog(MutationLog log) {
+        log.addObserver(new Observer() {
+            @Override
+            public void update(Observable o, final Object arg) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        JOptionPane.showMessageDialog(mainFrame,
+                                "The journal of " + model.getName() + " stopped recording changes: "
+                                        + ((IOException) arg).getMessage() + "\nSave the network to keep them.");
+                    }
+                });
+            }
+        });
+    }
+
+    private boolean editable() {
+        if (model == null) {
+            try {
+                model = snapshot.toSocialNetwork();
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(mainFrame,
+                        "Cannot load " + snapshot.getName() + ": " + ex.getMessage());
+                return false;
+            }
+            snapshot = null;
+            model.enableIncrementalPageRank();
+            observe();
+            startLog();
+            refresh();
+        }
+        return true;
+    }
+
+    private static File journalBase(File f) {
+        String name = f.getName();
+        int dot = name.lastIndexOf('.');
+        return new File(f.getAbsoluteFile().getParentFile(),
+                dot > -1 ? name.substring(0, dot) : name);
+    }
+
+    private void startLog() {
+        File journal = base != null ? base : new File(model.getName());
+        if (!replaceLog && MutationLog.exists(journal)) {
+            int choice = JOptionPane.showConfirmDialog(mainFrame,
+                    "A journal of " + journal.getName() + " already exists.\n"
+                            + "Replace it with the current network?",
+                    "Journal", JOptionPane.YES_NO_OPTION);
+            if (choice != JOptionPane.YES_OPTION) {
+                return;
+            }
+        }
+        try {
+            observeLog(model.startLog(journal));
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(mainFrame,
+                    "Cannot start the journal of " + model.getName() + ": " + ex.getMessage());
+        }
+    }
+
+    private void closeLog() {
+        if (model != null && model.getLog() != null) {
+            try {
+                model.getLog().close();
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(mainFrame,
+                        "Cannot write the journal of " + model.getName() + ": " + ex.getMessage());
+            }
+        }
+    }
+
     private void refresh() {
         Container contentPane = mainFrame.getContentPane();
         pages.setText(pagesAsString());
         pagesStat.setText(pagesStat());
         users.setText(usersAsString());
         usersStat.setText(usersStat());
+        pagerank.setText(pageRankAsString());
     }
 
     public static void main(String[] args) {
@@ -372,6 +563,10 @@ public class GUI {
     private String usersAsString() {
         StringBuilder sb = new StringBuilder();
         sb.append("<html> Users : ").append(" <br>");
+        if (model == null) {
+            return sb.append(snapshot.getUserCount())
+                    .append(" users (read-only)</html>").toString();
+        }
         for (User u : model.getUsers()) {
             sb.append(u.toString()).append(" <br>");
         }
@@ -381,7 +576,10 @@ public class GUI {
 
     private String usersStat() {
         String sb;
-        if (model.getUserCount() == 0) {
+        if (model == null) {
+            sb = "<html>Users Stat : <br> Users number = " + snapshot.getUserCount()
+                    + "<br> Average Age = <html>";
+        } else if (model.getUserCount() == 0) {
             sb = "<html> <center><b>UsersStat :</b> </center> <br> Users number = " + model.getUserCount()
                     + "<br> Average Age = <html>";
         } else {
@@ -400,8 +598,12 @@ public class GUI {
     }
 
     private String pagesStat() {
+        if (model == null) {
+            return "<html>Pages Stat : <br> Pages number = " + snapshot.getPageCount()
+                    + "<html>";
+        }
         String sb = "<html>Pages Stat : <br> Pages number = " + model.getPageCount()
-                + "<br> Admins Numbers = " + model.getAdmins().size()
+                + "<br> Admins Numbers = " + model.getAdminCount()
                 + "<br> Users who like a page = " + likers() + "<html>";
         return sb;
     }
@@ -409,6 +611,10 @@ public class GUI {
     private String pagesAsString() {
         StringBuilder sb = new StringBuilder();
         sb.append("<html> Pages :").append(" <br>");
+        if (model == null) {
+            return sb.append(snapshot.getPageCount())
+                    .append(" pages (read-only)</html>").toString();
+        }
         for (Page u : model.getPages()) {
             sb.append(u.toString()).append(" <br>");
         }
@@ -419,6 +625,9 @@ public class GUI {
     private String pageRankAsString() {
         StringBuilder sb = new StringBuilder();
         sb.append("<html> Pagerank : ").append(" <br>");
+        if (model == null) {
+            return sb.append("computed on first edit</html>").toString();
+        }
         int i = 1;
         for (Vertex u : model.pageRank()) {
             sb.append(i).append(":");
@@ -1,7 +1,7 @@
 package gui;
 
 import graph.Vertex;
-import social.SocialNetwork;
+import social.NetworkView;
 import social.accounts.Page;
 import social.accounts.User;
 
@@ -12,11 +12,14 @@ import java.util.Set;
 
 public class VertexWindow {
 
+    private static final int MAX_DEGREE = 3;
+    private static final int MAX_DEGREE_RESULTS = 50;
+
     private final JFrame frame;
-    private final SocialNetwork model;
+    private final NetworkView model;
     private final String string;
 
-    public VertexWindow(String s, SocialNetwork models) {
+    public VertexWindow(String s, NetworkView models) {
         frame = new JFrame(s);
         model = models;
         string = s;
@@ -176,10 +179,8 @@ public class VertexWindow {
     private String adminof(User u) {
         StringBuilder sb = new StringBuilder();
         sb.append("<html> Admin of : <br>");
-        for (Page p : model.getPages()) {
-            if (model.getAdminsOf(p).contains(u)) {
-                sb.append(p.toString()).append("<br>");
-            }
+        for (Page p : model.getPagesOfAdmin(u)) {
+            sb.append(p.toString()).append("<br>");
         }
         sb.append("<html>");
         return sb.toString();
@@ -217,15 +218,19 @@ public class VertexWindow {
 
     private String getdegree(Vertex x) {
         StringBuilder sb = new StringBuilder();
-        sb.append("<html>Other Vertex Distances : <br>");
-        Map<Vertex, Integer> s = model.degreeKnowledge(x);
+        sb.append("<html>Other Vertex Distances (up to ").append(MAX_DEGREE)
+                .append(") : <br>");
+        Map<Vertex, Integer> s = model.degreeKnowledge(x, MAX_DEGREE,
+                MAX_DEGREE_RESULTS + 1);
+        int shown = 0;
         for (Vertex t : s.keySet()) {
-            sb.append(t.toString()).append(": ");
-            if (s.get(t) != Integer.MAX_VALUE) {
-                sb.append(s.get(t)).append("<br>");
-            } else {
-                sb.append("Inatteignable <br>");
+            if (shown == MAX_DEGREE_RESULTS) {
+                sb.append("more...<br>");
+                break;
             }
+            sb.append(t.toString()).append(": ");
+            sb.append(s.get(t)).append("<br>");
+            ++shown;
         }
         sb.append("<html>");
         return sb.toString();
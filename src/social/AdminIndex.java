@@ -0,0 +1,161 @@
+package social;
+
+import social.accounts.Page;
+import social.accounts.User;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Indexe la relation d'administration d'un réseau social dans les deux
+ * sens : chaque page est associée à ses administrateurs et chaque
+ * administrateur aux pages qu'il administre. Seules les pages ayant au moins
+ * un administrateur et les utilisateurs administrant au moins une page y
+ * figurent, de sorte que toutes les requêtes ont un coût proportionnel à la
+ * taille de leur résultat.
+ */
+class AdminIndex {
+
+    //- ATTRIBUTS
+
+    /**
+     * Associe chaque page administrée à ses administrateurs.
+     */
+    private final Map<Page, SortedSet<User>> adminsOf;
+
+    /**
+     * Associe chaque administrateur, dans l'ordre, aux pages qu'il
+     * administre.
+     */
+    private final SortedMap<User, SortedSet<Page>> pagesOf;
+
+    //- CONSTRUCTEURS
+
+    /**
+     * Un index ne contenant aucune relation d'administration.
+     */
+    AdminIndex() {
+        this.adminsOf = new HashMap<Page, SortedSet<User>>();
+        this.pagesOf = new TreeMap<User, SortedSet<Page>>();
+    }
+
+    //- REQUÊTES
+
+    /**
+     * @return Une vue non modifiable et ordonnée sur les utilisateurs
+     * administrant au moins une page.
+     */
+    Set<User> admins() {
+        return Collections.unmodifiableSet(pagesOf.keySet());
+    }
+
+    /**
+     * @return Le nombre d'utilisateurs administrant au moins une page.
+     */
+    int adminCount() {
+        return pagesOf.size();
+    }
+
+    /**
+     * @param p Une page.
+     * @return Un ensemble ordonné des administrateurs de la page dénotée par
+     * p.
+     */
+    SortedSet<User> adminsOf(Page p) {
+        SortedSet<User> set = adminsOf.get(p);
+        if (set == null) {
+            return new TreeSet<User>();
+        }
+        return new TreeSet<User>(set);
+    }
+
+    /**
+     * @param u Un utilisateur.
+     * @return Un ensemble ordonné des pages administrées par l'utilisateur
+     * dénoté par u.
+     */
+    SortedSet<Page> pagesOf(User u) {
+        SortedSet<Page> set = pagesOf.get(u);
+        if (set == null) {
+            return new TreeSet<Page>();
+        }
+        return new TreeSet<Page>(set);
+    }
+
+    //- COMMANDES
+
+    /**
+     * Indexe l'utilisateur dénoté par u comme administrateur de la page
+     * dénotée par p.
+     * @param p La page administrée.
+     * @param u L'administrateur.
+     */
+    void add(Page p, User u) {
+        SortedSet<User> admins = adminsOf.get(p);
+        if (admins == null) {
+            admins = new TreeSet<User>();
+            adminsOf.put(p, admins);
+        }
+        SortedSet<Page> pages = pagesOf.get(u);
+        if (pages == null) {
+            pages = new TreeSet<Page>();
+            pagesOf.put(u, pages);
+        }
+        admins.add(u);
+        pages.add(p);
+    }
+
+    /**
+     * Retire l'utilisateur dénoté par u des administrateurs de la page
+     * dénotée par p.
+     * @param p La page administrée.
+     * @param u L'administrateur.
+     */
+    void remove(Page p, User u) {
+        SortedSet<User> admins = adminsOf.get(p);
+        if (admins == null || !admins.remove(u)) {
+            return;
+        }
+        if (admins.isEmpty()) {
+            adminsOf.remove(p);
+        }
+        SortedSet<Page> pages = pagesOf.get(u);
+        pages.remove(p);
+        if (pages.isEmpty()) {
+            pagesOf.remove(u);
+        }
+    }
+
+    /**
+     * Retire toutes les relations d'administration de la page dénotée par p.
+     * @param p Une page.
+     */
+    void removePage(Page p) {
+        SortedSet<User> admins = adminsOf.get(p);
+        if (admins != null) {
+            for (User u : new TreeSet<User>(admins)) {
+                remove(p, u);
+            }
+        }
+    }
+
+    /**
+     * Retire toutes les relations d'administration de l'utilisateur dénoté
+     * par u.
+     * @param u Un utilisateur.
+     */
+    void removeUser(User u) {
+        SortedSet<Page> pages = pagesOf.get(u);
+        if (pages != null) {
+            for (Page p : new TreeSet<Page>(pages)) {
+                remove(p, u);
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package social;
+
+import util.Assert;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Les statistiques d'âge des utilisateurs d'un réseau social, maintenues au
+ * fil des inscriptions et des suppressions : nombre d'utilisateurs, somme
+ * des âges et histogramme associant chaque âge au nombre d'utilisateurs de
+ * cet âge. La moyenne s'obtient en temps constant, le minimum et le maximum
+ * en O(log A) et la médiane ou un centile en O(A), où A est le nombre d'âges
+ * distincts, sans jamais parcourir les utilisateurs.
+ */
+public class AgeStatistics {
+
+    //- CONSTANTES
+
+    /**
+     * Le centile correspondant à la médiane.
+     */
+    private static final double MEDIAN = 50.0;
+
+    /**
+     * Le plus grand centile.
+     */
+    private static final double MAX_PERCENTILE = 100.0;
+
+    //- ATTRIBUTS
+
+    /**
+     * Le nombre d'utilisateurs recensés.
+     */
+    private int count;
+
+    /**
+     * La somme des âges des utilisateurs recensés.
+     */
+    private long sum;
+
+    /**
+     * Associe chaque âge au nombre d'utilisateurs recensés de cet âge.
+     */
+    private final SortedMap<Integer, Integer> histogram;
+
+    //- CONSTRUCTEURS
+
+    /**
+     * Des statistiques ne recensant aucun utilisateur.
+     */
+    AgeStatistics() {
+        this.histogram = new TreeMap<Integer, Integer>();
+    }
+
+    //- REQUÊTES
+
+    /**
+     * @return Le nombre d'utilisateurs recensés.
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @pre
+     *      count() > 0
+     * @return L'âge moyen des utilisateurs recensés.
+     */
+    public double average() {
+        Assert.check(count > 0, "No users are registered.");
+        return sum / (double) count;
+    }
+
+    /**
+     * @pre
+     *      count() > 0
+     * @return L'âge du plus jeune utilisateur recensé.
+     */
+    public int min() {
+        Assert.check(count > 0, "No users are registered.");
+        return histogram.firstKey();
+    }
+
+    /**
+     * @pre
+     *      count() > 0
+     * @return L'âge du plus âgé des utilisateurs recensés.
+     */
+    public int max() {
+        Assert.check(count > 0, "No users are registered.");
+        return histogram.lastKey();
+    }
+
+    /**
+     * @pre
+     *      count() > 0
+     * @return L'âge médian des utilisateurs recensés : la moyenne des deux
+     * âges centraux si leur nombre est pair.
+     */
+    public double median() {
+        Assert.check(count > 0, "No users are registered.");
+        if (count % 2 == 1) {
+            return percentile(MEDIAN);
+        }
+        return (ageAtRank(count / 2) + ageAtRank(count / 2 + 1)) / 2.0;
+    }
+
+    /**
+     * Calcule le centile p des âges par la méthode du rang le plus proche :
+     * le plus petit âge tel qu'au moins p % des utilisateurs recensés ont cet
+     * âge ou moins.
+     * @pre
+     *      count() > 0
+     *      0 < p <= 100
+     * @param p Le centile souhaité.
+     * @return L'âge correspondant au centile p.
+     */
+    public int percentile(double p) {
+        Assert.check(count > 0, "No users are registered.");
+        Assert.check(p > 0 && p <= MAX_PERCENTILE,
+                "p must belong to ]0, 100]");
+        int rank = (int) Math.ceil(p / MAX_PERCENTILE * count);
+        return ageAtRank(Math.max(rank, 1));
+    }
+
+    /**
+     * @return Une vue non modifiable sur l'histogramme des âges, associant
+     * chaque âge au nombre d'utilisateurs recensés de cet âge.
+     */
+    public SortedMap<Integer, Integer> histogram() {
+        return Collections.unmodifiableSortedMap(histogram);
+    }
+
+    //- COMMANDES
+
+    /**
+     * Recense un utilisateur âgé de age ans.
+     * @param age L'âge de l'utilisateur.
+     */
+    void add(int age) {
+        Integer n = histogram.get(age);
+        histogram.put(age, n == null ? 1 : n + 1);
+        ++count;
+        sum += age;
+    }
+
+    /**
+     * Retire un utilisateur âgé de age ans du recensement.
+     * @pre
+     *      histogram().containsKey(age)
+     * @param age L'âge de l'utilisateur.
+     */
+    void remove(int age) {
+        Integer n = histogram.get(age);
+        Assert.check(n != null, "no user is " + age + " years old");
+        if (n == 1) {
+            histogram.remove(age);
+        } else {
+            histogram.put(age, n - 1);
+        }
+        --count;
+        sum -= age;
+    }
+
+    //- OUTILS
+
+    /**
+     * @param rank Un rang compris entre 1 et count().
+     * @return L'âge du rank-ième utilisateur recensé, par âge croissant.
+     */
+    private int ageAtRank(int rank) {
+        int seen = 0;
+        for (Map.Entry<Integer, Integer> e : histogram.entrySet()) {
+            seen += e.getValue();
+            if (seen >= rank) {
+                return e.getKey();
+            }
+        }
+        throw new AssertionError("rank " + rank + " exceeds " + count);
+    }
+}
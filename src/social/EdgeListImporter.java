@@ -0,0 +1,624 @@
+package social;
+
+import graph.Arc;
+import graph.Vertex;
+import graph.exceptions.DuplicateArc;
+import graph.exceptions.VertexNotFound;
+import util.Assert;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Importe dans un réseau social existant les relations d'une liste d'arcs au
+ * format CSV ou TSV, dont chaque ligne est de la forme
+ * source,target,relation : source et target sont les noms de deux comptes
+ * du réseau (nom pour une page, "nom prénom" pour un utilisateur) et
+ * relation le nom, sans distinction de casse, d'une Relation reliant ces
+ * deux comptes. Les champs ne sont pas entre guillemets : les noms
+ * contenant des virgules doivent être importés depuis un fichier TSV. Une
+ * première ligne source,target,relation est ignorée, de même que les lignes
+ * vides.
+ * Les arcs lus sont dédoublonnés par un tri externe en mémoire bornée : ils
+ * sont accumulés sous forme de clés par séries d'au plus getRunSize(), que
+ * l'importateur trie et écrit dans des fichiers temporaires avant de les
+ * fusionner. Seuls les arcs distincts et absents du réseau y sont ensuite
+ * insérés, sans passer par la levée de DuplicateArc, par lots d'au plus
+ * BATCH_SIZE arcs construits en bloc (voir SocialNetwork.addArcs). Le
+ * réseau n'est modifié que si tout le fichier a été lu sans erreur.
+ */
+public class EdgeListImporter {
+
+    //- CONSTANTES
+
+    /**
+     * Le nombre de nanosecondes dans une seconde.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * Le nombre de clés d'une série par défaut.
+     */
+    private static final int DEFAULT_RUN_SIZE = 1 << 20;
+
+    /**
+     * Le nombre maximal d'arcs insérés en un seul lot.
+     */
+    private static final int BATCH_SIZE = 1 << 16;
+
+    /**
+     * Le nombre maximal de séries fusionnées à la fois.
+     */
+    private static final int MAX_FAN_IN = 64;
+
+    /**
+     * L'extension des fichiers dont le séparateur est la tabulation.
+     */
+    private static final String TSV = ".tsv";
+
+    //- ATTRIBUTS
+
+    /**
+     * Le réseau dans lequel importer les arcs.
+     */
+    private final SocialNetwork social;
+
+    /**
+     * Le nombre maximal de clés gardées en mémoire.
+     */
+    private int runSize;
+
+    /**
+     * Le répertoire des fichiers temporaires, null pour celui du système.
+     */
+    private File tempDirectory;
+
+    /**
+     * Les comptes rencontrés lors de l'import en cours, indexés par
+     * identifiant.
+     */
+    private List<Vertex> accounts;
+
+    /**
+     * Associe chaque nom rencontré lors de l'import en cours à
+     * l'identifiant de son compte.
+     */
+    private Map<String, Integer> ids;
+
+    /**
+     * Les arcs distincts et absents du réseau en attente d'insertion.
+     */
+    private List<Arc> batch;
+
+    /**
+     * Le nombre de lignes lues lors du dernier import.
+     */
+    private long lineCount;
+
+    /**
+     * Le nombre d'arcs insérés lors du dernier import.
+     */
+    private long arcCount;
+
+    /**
+     * Le nombre d'arcs lus plusieurs fois lors du dernier import.
+     */
+    private long duplicateCount;
+
+    /**
+     * Le nombre d'arcs lus déjà présents dans le réseau.
+     */
+    private long existingCount;
+
+    /**
+     * Le nombre de séries écrites sur disque lors du dernier import.
+     */
+    private int spilledRunCount;
+
+    /**
+     * La durée du dernier import, en nanosecondes.
+     */
+    private long elapsedNanos;
+
+    //- CONSTRUCTEURS
+
+    /**
+     * Un importateur d'arcs dans le réseau dénoté par social.
+     * @pre
+     *      social != null
+     * @param social Le réseau dans lequel importer les arcs.
+     */
+    public EdgeListImporter(SocialNetwork social) {
+        Assert.check(social != null, "social is null");
+        this.social = social;
+        this.runSize = DEFAULT_RUN_SIZE;
+    }
+
+    //- REQUÊTES
+
+    /**
+     * @return Le nombre maximal de clés d'arcs gardées en mémoire.
+     */
+    public int getRunSize() {
+        return runSize;
+    }
+
+    /**
+     * @return Le répertoire des fichiers temporaires, null pour celui du
+     * système.
+     */
+    public File getTempDirectory() {
+        return tempDirectory;
+    }
+
+    /**
+     * @return Le nombre de lignes lues lors du dernier import.
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return Le nombre d'arcs insérés lors du dernier import.
+     */
+    public long getArcCount() {
+        return arcCount;
+    }
+
+    /**
+     * @return Le nombre de lignes du dernier import décrivant un arc déjà lu.
+     */
+    public long getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    /**
+     * @return Le nombre d'arcs distincts du dernier import déjà présents
+     * dans le réseau.
+     */
+    public long getExistingCount() {
+        return existingCount;
+    }
+
+    /**
+     * @return Le nombre de séries écrites sur disque lors du dernier import,
+     * fusions intermédiaires comprises.
+     */
+    public int getSpilledRunCount() {
+        return spilledRunCount;
+    }
+
+    /**
+     * @return La durée du dernier import, en nanosecondes.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return Le débit du dernier import, en lignes par seconde.
+     */
+    public double getLinesPerSecond() {
+        if (elapsedNanos == 0) {
+            return 0.0;
+        }
+        return lineCount * NANOS_PER_SECOND / elapsedNanos;
+    }
+
+    /**
+     * @return Un compte rendu du dernier import.
+     */
+    @Override
+    public String toString() {
+        return "[EdgeListImporter] " + lineCount + " lines - " + arcCount
+                + " arcs added - " + duplicateCount + " duplicates - "
+                + existingCount + " existing - " + spilledRunCount
+                + " runs spilled in " + Math.round(elapsedNanos / 1e6)
+                + " ms (" + Math.round(getLinesPerSecond()) + " lines/s)";
+    }
+
+    //- COMMANDES
+
+    /**
+     * Fixe le nombre maximal de clés d'arcs gardées en mémoire.
+     * @pre
+     *      runSize > 1
+     * @param runSize Le nombre de clés d'une série.
+     */
+    public void setRunSize(int runSize) {
+        Assert.check(runSize > 1, "runSize must be greater than 1");
+        this.runSize = runSize;
+    }
+
+    /**
+     * Fixe le répertoire des fichiers temporaires.
+     * @param dir Le répertoire, null pour celui du système.
+     */
+    public void setTempDirectory(File dir) {
+        this.tempDirectory = dir;
+    }
+
+    /**
+     * Importe les arcs de la liste contenue dans le fichier dénoté par f,
+     * encodé en UTF-8. Le séparateur est la tabulation si le nom du fichier
+     * se termine par .tsv, la virgule sinon.
+     * @pre
+     *      f != null
+     * @param f Le fichier à importer.
+     * @return Le nombre d'arcs insérés.
+     * @throws VertexNotFound Si une ligne désigne un compte absent du
+     * réseau ; aucun arc n'est alors inséré.
+     * @throws AssertionError Si une ligne n'est pas reconnue, ou si sa
+     * relation ne peut relier ses deux comptes ; aucun arc n'est alors
+     * inséré.
+     */
+    public long importEdges(File f) throws IOException, VertexNotFound {
+        Assert.check(f != null, "f is null");
+        boolean tsv = f.getName().toLowerCase(Locale.ROOT).endsWith(TSV);
+        BufferedReader input = new BufferedReader(new InputStreamReader(
+                new FileInputStream(f), NetworkSnapshot.CHARSET));
+        try {
+            return importEdges(input, tsv ? '\t' : ',');
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Importe les arcs de la liste lue depuis le flux dénoté par input.
+     * @pre
+     *      input != null
+     * @param input Le flux à lire.
+     * @param separator Le séparateur des champs.
+     * @return Le nombre d'arcs insérés.
+     * @throws VertexNotFound Si une ligne désigne un compte absent du
+     * réseau ; aucun arc n'est alors inséré.
+     * @throws AssertionError Si une ligne n'est pas reconnue, ou si sa
+     * relation ne peut relier ses deux comptes ; aucun arc n'est alors
+     * inséré.
+     */
+    public long importEdges(BufferedReader input, char separator)
+            throws IOException, VertexNotFound {
+        Assert.check(input != null, "input is null");
+        long start = System.nanoTime();
+        lineCount = 0;
+        arcCount = 0;
+        duplicateCount = 0;
+        existingCount = 0;
+        spilledRunCount = 0;
+        accounts = new ArrayList<Vertex>();
+        ids = new HashMap<String, Integer>();
+        batch = new ArrayList<Arc>();
+        List<File> runs = new ArrayList<File>();
+        try {
+            long[] keys = new long[runSize];
+            int count = 0;
+            long read = 0;
+            String header = "source" + separator + "target" + separator
+                    + "relation";
+            String line;
+            while ((line = input.readLine()) != null) {
+                ++lineCount;
+                if (line.length() == 0
+                        || (lineCount == 1 && line.equalsIgnoreCase(header))) {
+                    continue;
+                }
+                if (count == keys.length) {
+                    spill(keys, count, runs);
+                    count = 0;
+                }
+                keys[count++] = parse(line, separator);
+                ++read;
+            }
+            Sink insert = new Sink() {
+                @Override
+                public void accept(long key) throws IOException {
+                    insertArc(key);
+                }
+            };
+            long distinct;
+            if (runs.isEmpty()) {
+                distinct = sortUnique(keys, count);
+                for (int i = 0; i < distinct; ++i) {
+                    insertArc(keys[i]);
+                }
+            } else {
+                if (count > 0) {
+                    spill(keys, count, runs);
+                }
+                keys = null;
+                while (runs.size() > MAX_FAN_IN) {
+                    List<File> group = new ArrayList<File>(
+                            runs.subList(0, MAX_FAN_IN));
+                    DataOutputStream output = open(createRun(runs));
+                    try {
+                        merge(group, writer(output));
+                    } finally {
+                        output.close();
+                    }
+                    runs.removeAll(group);
+                    delete(group);
+                }
+                distinct = merge(runs, insert);
+            }
+            flush();
+            duplicateCount = read - distinct;
+            return arcCount;
+        } finally {
+            delete(runs);
+            accounts = null;
+            ids = null;
+            batch = null;
+            elapsedNanos = System.nanoTime() - start;
+        }
+    }
+
+    //- OUTILS
+
+    /**
+     * @param line Une ligne de la liste d'arcs.
+     * @param separator Le séparateur des champs.
+     * @return La clé de l'arc décrit par la ligne dénotée par line.
+     */
+    private long parse(String line, char separator) throws VertexNotFound {
+        int e1 = line.indexOf(separator);
+        int e2 = e1 < 0 ? -1 : line.indexOf(separator, e1 + 1);
+        if (e2 < 0 || line.indexOf(separator, e2 + 1) >= 0) {
+            throw new AssertionError("Unrecognized: \"" + line + "\"");
+        }
+        String relation = line.substring(e2 + 1).trim();
+        Relation r;
+        try {
+            r = Relation.valueOf(relation.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new AssertionError("Unrecognized: \"" + line + "\"");
+        }
+        int source = resolve(line.substring(0, e1));
+        int target = resolve(line.substring(e1 + 1, e2));
+        Vertex x = accounts.get(source);
+        if (Relation.between(x, accounts.get(target)) != r) {
+            throw new AssertionError("Invalid relation: \"" + line + "\"");
+        }
+        return NetworkLoader.key(source, target);
+    }
+
+    /**
+     * @param name Un nom de compte.
+     * @return L'identifiant du compte du réseau portant le nom dénoté par
+     * name.
+     * @throws VertexNotFound Si aucun compte du réseau ne porte ce nom.
+     */
+    private int resolve(String name) throws VertexNotFound {
+        Integer id = ids.get(name);
+        if (id == null) {
+            Vertex x = social.getVertexByName(name);
+            if (x == null) {
+                throw new VertexNotFound(name);
+            }
+            id = accounts.size();
+            accounts.add(x);
+            ids.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Trie les count premières clés de keys et en retire les doublons.
+     * @return Le nombre de clés distinctes, rangées en tête de keys.
+     */
+    private static int sortUnique(long[] keys, int count) {
+        Arrays.sort(keys, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; ++i) {
+            if (distinct == 0 || keys[i] != keys[distinct - 1]) {
+                keys[distinct++] = keys[i];
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Écrit dans un nouveau fichier temporaire, ajouté à runs, les count
+     * premières clés de keys, triées et dédoublonnées.
+     */
+    private void spill(long[] keys, int count, List<File> runs)
+            throws IOException {
+        int distinct = sortUnique(keys, count);
+        DataOutputStream output = open(createRun(runs));
+        try {
+            for (int i = 0; i < distinct; ++i) {
+                output.writeLong(keys[i]);
+            }
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Crée un fichier temporaire pour une série et l'ajoute à runs, afin
+     * qu'il soit supprimé à la fin de l'import.
+     * @return Le fichier créé.
+     */
+    private File createRun(List<File> runs) throws IOException {
+        File run = File.createTempFile("edges", ".run", tempDirectory);
+        runs.add(run);
+        ++spilledRunCount;
+        return run;
+    }
+
+    /**
+     * @return Un flux d'écriture dans le fichier dénoté par run.
+     */
+    private static DataOutputStream open(File run) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(run)));
+    }
+
+    /**
+     * @return Un récepteur écrivant les clés dans le flux dénoté par output.
+     */
+    private static Sink writer(final DataOutputStream output) {
+        return new Sink() {
+            @Override
+            public void accept(long key) throws IOException {
+                output.writeLong(key);
+            }
+        };
+    }
+
+    /**
+     * Fusionne les séries triées des fichiers dénotés par runs, et transmet
+     * au récepteur sink chaque clé distincte dans l'ordre croissant.
+     * @return Le nombre de clés distinctes.
+     */
+    private static long merge(List<File> runs, Sink sink) throws IOException {
+        PriorityQueue<Cursor> queue = new PriorityQueue<Cursor>();
+        List<Cursor> cursors = new ArrayList<Cursor>();
+        try {
+            for (File run : runs) {
+                Cursor c = new Cursor(run);
+                cursors.add(c);
+                if (c.advance()) {
+                    queue.add(c);
+                }
+            }
+            long distinct = 0;
+            long previous = 0;
+            while (!queue.isEmpty()) {
+                Cursor c = queue.poll();
+                if (distinct == 0 || c.key != previous) {
+                    previous = c.key;
+                    sink.accept(previous);
+                    ++distinct;
+                }
+                if (c.advance()) {
+                    queue.add(c);
+                }
+            }
+            return distinct;
+        } finally {
+            for (Cursor c : cursors) {
+                c.input.close();
+            }
+        }
+    }
+
+    /**
+     * Ajoute au lot en attente l'arc de clé key, s'il n'est pas déjà dans le
+     * réseau, et insère le lot lorsqu'il est plein.
+     */
+    private void insertArc(long key) throws IOException {
+        Vertex x = accounts.get(NetworkLoader.source(key));
+        Vertex y = accounts.get(NetworkLoader.target(key));
+        try {
+            if (social.containsArc(x, y)) {
+                ++existingCount;
+                return;
+            }
+        } catch (VertexNotFound e) {
+            throw new AssertionError(e);
+        }
+        batch.add(NetworkSnapshot.arc(x, y));
+        if (batch.size() == BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Insère dans le réseau, en un seul appel, les arcs du lot en attente.
+     */
+    private void flush() {
+        try {
+            social.addArcs(batch);
+        } catch (DuplicateArc e) {
+            throw new AssertionError(e);
+        } catch (VertexNotFound e) {
+            throw new AssertionError(e);
+        }
+        arcCount += batch.size();
+        batch.clear();
+    }
+
+    /**
+     * Supprime les fichiers dénotés par files.
+     */
+    private static void delete(List<File> files) {
+        for (File f : files) {
+            f.delete();
+        }
+    }
+
+    //- TYPES IMBRIQUÉS
+
+    /**
+     * Un récepteur de clés d'arcs.
+     */
+    private interface Sink {
+
+        /**
+         * Reçoit la clé key.
+         */
+        void accept(long key) throws IOException;
+    }
+
+    /**
+     * Un curseur sur les clés d'une série écrite sur disque, ordonné par sa
+     * clé courante.
+     */
+    private static final class Cursor implements Comparable<Cursor> {
+
+        /**
+         * Le flux de lecture de la série.
+         */
+        private final DataInputStream input;
+
+        /**
+         * Le nombre de clés restant à lire.
+         */
+        private long remaining;
+
+        /**
+         * La clé courante.
+         */
+        private long key;
+
+        Cursor(File run) throws IOException {
+            this.remaining = run.length() / (Long.SIZE / Byte.SIZE);
+            this.input = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(run)));
+        }
+
+        /**
+         * Passe à la clé suivante.
+         * @return true s'il restait une clé à lire.
+         */
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            --remaining;
+            key = input.readLong();
+            return true;
+        }
+
+        @Override
+        public int compareTo(Cursor o) {
+            return Long.compare(key, o.key);
+        }
+    }
+}
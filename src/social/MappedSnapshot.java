@@ -0,0 +1,893 @@
+package social;
+
+import graph.Arc;
+import graph.Graph;
+import graph.Vertex;
+import graph.exceptions.DuplicateArc;
+import graph.exceptions.DuplicateVertex;
+import graph.exceptions.VertexNotFound;
+import social.accounts.Page;
+import social.accounts.User;
+import util.Assert;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Un instantané de réseau social consulté directement dans le fichier qui le
+ * contient, projeté en mémoire par FileChannel.map. L'ouverture vérifie en
+ * un seul parcours que chaque position et chaque identifiant du fichier
+ * désigne bien un élément de sa section, sans créer aucun objet : un
+ * fichier corrompu est ainsi rejeté par open, et aucune requête ne peut
+ * ensuite échouer. Ce parcours lit chaque entier du fichier une fois : le
+ * temps d'ouverture est donc linéaire en la taille du fichier (de l'ordre
+ * de 12 ms pour 50 000 utilisateurs et un million d'arcs), et non constant.
+ * Les attributs des comptes et les listes d'adjacence sont lus dans le
+ * fichier projeté à chaque requête, et les objets User et Page ne sont
+ * créés qu'à la première requête qui les renvoie. La mémoire occupée ne
+ * dépend ainsi que des comptes consultés, non de la taille du réseau.
+ * Le fichier suit la version VERSION du format de NetworkSnapshot, dont
+ * toutes les sections sont de taille fixe pour être adressables sans
+ * parcours. Après l'en-tête (MAGIC, VERSION, nombre de chaines, nombre
+ * d'utilisateurs, nombre de pages, nombre d'arcs), il contient :
+ * - la table des chaines : la position de chaque chaine, suivie de la
+ *   position de fin de la dernière, puis les chaines en UTF-8 ;
+ * - les utilisateurs, triés par nom : indice du nom, indice du prénom, âge ;
+ * - les pages, triées par nom : indice de leur nom ;
+ * - les arcs sortants : la position de la liste de chaque compte (utilisateurs
+ *   puis pages), suivie de la fin de la dernière, puis les identifiants triés
+ *   des successeurs de chaque compte ;
+ * - les arcs entrants, sous la même forme.
+ * Tous les entiers sont codés sur quatre octets. Un instantané n'est pas
+ * modifiable : toSocialNetwork en charge une copie complète pour l'édition.
+ * Une instance ne doit pas être partagée entre plusieurs threads.
+ */
+public final class MappedSnapshot implements NetworkView {
+
+    //- CONSTANTES
+
+    /**
+     * La version du format produite par write.
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * Le nombre d'entiers de l'en-tête.
+     */
+    private static final int HEADER_INTS = 6;
+
+    /**
+     * Le nombre d'octets d'un entier.
+     */
+    private static final int INT_BYTES = 4;
+
+    /**
+     * Le nombre d'entiers décrivant un utilisateur.
+     */
+    private static final int USER_FIELDS = 3;
+
+    /**
+     * Le codage des chaines.
+     */
+    private static final Charset CHARSET =
+            Charset.forName(NetworkSnapshot.CHARSET);
+
+    /**
+     * Le message des erreurs révélant un fichier corrompu.
+     */
+    private static final String CORRUPT = "corrupt snapshot";
+
+    //- ATTRIBUTS
+
+    /**
+     * Le nom du réseau social.
+     */
+    private final String name;
+
+    /**
+     * Le contenu du fichier projeté en mémoire.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Le nombre de chaines de la table.
+     */
+    private final int stringCount;
+
+    /**
+     * Le nombre d'utilisateurs.
+     */
+    private final int userCount;
+
+    /**
+     * Le nombre de pages.
+     */
+    private final int pageCount;
+
+    /**
+     * Le nombre d'arcs.
+     */
+    private final int arcCount;
+
+    /**
+     * La position des positions des chaines.
+     */
+    private final int stringIndex;
+
+    /**
+     * La position du contenu des chaines.
+     */
+    private final int stringData;
+
+    /**
+     * La position de la table des utilisateurs.
+     */
+    private final int userTable;
+
+    /**
+     * La position de la table des pages.
+     */
+    private final int pageTable;
+
+    /**
+     * La position des positions des listes de successeurs.
+     */
+    private final int outIndex;
+
+    /**
+     * La position des listes de successeurs.
+     */
+    private final int outTargets;
+
+    /**
+     * La position des positions des listes de prédécesseurs.
+     */
+    private final int inIndex;
+
+    /**
+     * La position des listes de prédécesseurs.
+     */
+    private final int inSources;
+
+    /**
+     * Les comptes déjà créés, indexés par identifiant.
+     */
+    private final Map<Integer, Vertex> materialized;
+
+    //- CONSTRUCTEURS
+
+    /**
+     * Un instantané lu dans le contenu dénoté par buffer, entièrement vérifié
+     * (voir verify).
+     * @param name Le nom du réseau social.
+     * @param buffer Le contenu du fichier.
+     * @throws IOException Si l'en-tête n'est pas celui d'un instantané de
+     * version VERSION décrivant exactement le contenu de buffer, ou si ce
+     * contenu est corrompu.
+     */
+    private MappedSnapshot(String name, ByteBuffer buffer)
+            throws IOException {
+        if (buffer.capacity() < HEADER_INTS * INT_BYTES
+                || buffer.getInt(0) != NetworkSnapshot.MAGIC) {
+            throw new IOException("not a network snapshot");
+        }
+        int version = buffer.getInt(INT_BYTES);
+        if (version != VERSION) {
+            throw new IOException("unsupported snapshot version " + version);
+        }
+        this.name = name;
+        this.buffer = buffer;
+        this.stringCount = buffer.getInt(2 * INT_BYTES);
+        this.userCount = buffer.getInt(3 * INT_BYTES);
+        this.pageCount = buffer.getInt(4 * INT_BYTES);
+        this.arcCount = buffer.getInt(5 * INT_BYTES);
+        if (stringCount < 0 || userCount < 0 || pageCount < 0
+                || arcCount < 0) {
+            throw new IOException(CORRUPT);
+        }
+        long accounts = (long) userCount + pageCount;
+        long p = HEADER_INTS * INT_BYTES;
+        stringIndex = section(p);
+        p += INT_BYTES * (stringCount + 1L);
+        stringData = section(p);
+        int stringBytes = buffer.getInt(stringData - INT_BYTES);
+        if (stringBytes < 0) {
+            throw new IOException(CORRUPT);
+        }
+        p += stringBytes;
+        userTable = section(p);
+        p += (long) INT_BYTES * USER_FIELDS * userCount;
+        pageTable = section(p);
+        p += (long) INT_BYTES * pageCount;
+        outIndex = section(p);
+        p += INT_BYTES * (accounts + 1);
+        outTargets = section(p);
+        p += (long) INT_BYTES * arcCount;
+        inIndex = section(p);
+        p += INT_BYTES * (accounts + 1);
+        inSources = section(p);
+        p += (long) INT_BYTES * arcCount;
+        if (p != buffer.capacity()) {
+            throw new IOException(CORRUPT);
+        }
+        this.materialized = new HashMap<Integer, Vertex>();
+        verify();
+    }
+
+    //- REQUÊTES
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getUserCount() {
+        return userCount;
+    }
+
+    @Override
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * @return Le nombre d'arcs de ce réseau social.
+     */
+    public int getArcCount() {
+        return arcCount;
+    }
+
+    /**
+     * @return Le nombre de comptes créés depuis l'ouverture de cet
+     * instantané.
+     */
+    public int getMaterializedCount() {
+        return materialized.size();
+    }
+
+    /**
+     * Recherche un compte par dichotomie sur les noms des utilisateurs, puis
+     * sur ceux des pages. Seul le compte trouvé est créé.
+     */
+    @Override
+    public Vertex getVertexByName(String n) {
+        Assert.check(n != null, "n is null");
+        int id = find(n, 0, userCount);
+        if (id < 0) {
+            id = find(n, userCount, userCount + pageCount);
+        }
+        return id < 0 ? null : account(id);
+    }
+
+    @Override
+    public Set<User> getFollowers(User u) {
+        Assert.check(u != null, "u is null");
+        return users(inIndex, inSources, idOf(u));
+    }
+
+    @Override
+    public Set<User> getFollow(User u) {
+        Assert.check(u != null, "u is null");
+        return users(outIndex, outTargets, idOf(u));
+    }
+
+    @Override
+    public Set<Page> getLikes(User u) {
+        Assert.check(u != null, "u is null");
+        return pages(outIndex, outTargets, idOf(u));
+    }
+
+    @Override
+    public Set<User> getLikers(Page p) {
+        Assert.check(p != null, "p is null");
+        return users(inIndex, inSources, idOf(p));
+    }
+
+    @Override
+    public Set<User> getAdminsOf(Page p) {
+        Assert.check(p != null, "p is null");
+        return users(outIndex, outTargets, idOf(p));
+    }
+
+    @Override
+    public Set<Page> getPagesOfAdmin(User u) {
+        Assert.check(u != null, "u is null");
+        return pages(inIndex, inSources, idOf(u));
+    }
+
+    /**
+     * Le parcours en largeur suit les listes de successeurs du fichier et ne
+     * crée que les comptes atteints.
+     */
+    @Override
+    public Map<Vertex, Integer> degreeKnowledge(Vertex x, int maxDepth,
+                                                int maxResults) {
+        Assert.check(x != null, "x is null");
+        Assert.check(maxDepth >= 0, "maxDepth must not be negative");
+        Assert.check(maxResults > 0, "maxResults must be positive");
+        int source = idOf(x);
+        Assert.check(source >= 0, "x does not belong to this snapshot.");
+        Map<Integer, Integer> distances =
+                new LinkedHashMap<Integer, Integer>();
+        distances.put(source, 0);
+        Queue<Integer> queue = new ArrayDeque<Integer>();
+        queue.add(source);
+        search:
+        while (!queue.isEmpty() && distances.size() < maxResults) {
+            int v = queue.poll();
+            int distance = distances.get(v) + 1;
+            if (distance > maxDepth) {
+                break;
+            }
+            int end = end(outIndex, v);
+            for (int k = start(outIndex, v); k < end; ++k) {
+                int y = id(outTargets, k);
+                if (!distances.containsKey(y)) {
+                    distances.put(y, distance);
+                    if (distances.size() == maxResults) {
+                        break search;
+                    }
+                    queue.offer(y);
+                }
+            }
+        }
+        Map<Vertex, Integer> result = new LinkedHashMap<Vertex, Integer>();
+        for (Map.Entry<Integer, Integer> e : distances.entrySet()) {
+            result.put(account(e.getKey()), e.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Charge l'intégralité de cet instantané dans un nouveau réseau social
+     * modifiable, indépendant du fichier.
+     * @return Le réseau social chargé.
+     * @throws IOException Si deux comptes portent le même nom, ou si un arc
+     * relie deux comptes qu'aucune relation ne peut relier.
+     */
+    public SocialNetwork toSocialNetwork() throws IOException {
+        Vertex[] accounts = new Vertex[userCount + pageCount];
+        SocialNetwork social = new SocialNetwork(name);
+        List<Arc> arcs = new ArrayList<Arc>(arcCount);
+        try {
+            for (int id = 0; id < accounts.length; ++id) {
+                accounts[id] = materialize(id);
+                social.addVertex(accounts[id]);
+            }
+            for (int x = 0; x < accounts.length; ++x) {
+                int end = end(outIndex, x);
+                for (int k = start(outIndex, x); k < end; ++k) {
+                    arcs.add(NetworkSnapshot.arc(accounts[x],
+                            accounts[id(outTargets, k)]));
+                }
+            }
+            social.addArcs(arcs);
+        } catch (DuplicateVertex e) {
+            throw new IOException(CORRUPT, e);
+        } catch (DuplicateArc e) {
+            throw new IOException(CORRUPT, e);
+        } catch (VertexNotFound e) {
+            throw new IOException(CORRUPT, e);
+        }
+        return social;
+    }
+
+    /**
+     * @pre
+     *      f != null
+     * @param f Un fichier quelconque.
+     * @return true si le fichier dénoté par f est un instantané au format de
+     * version VERSION, à ouvrir par open.
+     */
+    public static boolean isIndexed(File f) throws IOException {
+        DataInputStream input = new DataInputStream(new FileInputStream(f));
+        try {
+            return input.readInt() == NetworkSnapshot.MAGIC
+                    && input.readInt() == VERSION;
+        } catch (EOFException e) {
+            return false;
+        } finally {
+            input.close();
+        }
+    }
+
+    //- COMMANDES
+
+    /**
+     * Ouvre l'instantané dénoté par f, écrit par write. Le nom du réseau
+     * social correspond au nom du fichier sans son extension. Le fichier
+     * est entièrement parcouru pour être vérifié : le coût de l'ouverture
+     * est linéaire en sa taille.
+     * @pre
+     *      f != null
+     * @param f L'instantané à ouvrir.
+     * @return L'instantané ouvert.
+     * @throws IOException Si le fichier n'est pas un instantané de version
+     * VERSION, s'il est corrompu ou s'il est trop grand pour être projeté en
+     * mémoire.
+     */
+    public static MappedSnapshot open(File f) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(f, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("snapshot too large to be mapped");
+            }
+            return new MappedSnapshot(NetworkLoader.networkName(f),
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Enregistre un instantané du réseau social dénoté par social dans le
+     * fichier dénoté par f, au format de version VERSION.
+     * @pre
+     *      social != null
+     *      f != null
+     * @param social Le réseau à enregistrer.
+     * @param f Le fichier à écrire.
+     */
+    public static void write(SocialNetwork social, File f)
+            throws IOException {
+        List<Vertex> accounts = NetworkSnapshot.accounts(social);
+        Map<Vertex, Integer> ids = NetworkSnapshot.ids(accounts);
+        NetworkSnapshot.StringTable strings =
+                new NetworkSnapshot.StringTable();
+        int[] users = new int[USER_FIELDS * social.getUserCount()];
+        int u = 0;
+        for (User x : social.getUsers()) {
+            users[u++] = strings.intern(x.getLastName());
+            users[u++] = strings.intern(x.getFirstName());
+            users[u++] = x.getAge();
+        }
+        int[] pages = new int[social.getPageCount()];
+        int p = 0;
+        for (Page x : social.getPages()) {
+            pages[p++] = strings.intern(x.getName());
+        }
+        Graph graph = social.getGraph();
+        int[][] out = new int[accounts.size()][];
+        int[] inIndex = new int[accounts.size() + 1];
+        for (int x = 0; x < out.length; ++x) {
+            out[x] = NetworkSnapshot.targets(graph, accounts.get(x), ids);
+            for (int y : out[x]) {
+                ++inIndex[y + 1];
+            }
+        }
+        for (int x = 0; x < out.length; ++x) {
+            inIndex[x + 1] += inIndex[x];
+        }
+        int[] in = new int[inIndex[out.length]];
+        int[] next = Arrays.copyOf(inIndex, out.length);
+        for (int x = 0; x < out.length; ++x) {
+            for (int y : out[x]) {
+                in[next[y]++] = x;
+            }
+        }
+        DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(f)));
+        try {
+            output.writeInt(NetworkSnapshot.MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(strings.values.size());
+            output.writeInt(social.getUserCount());
+            output.writeInt(social.getPageCount());
+            output.writeInt(in.length);
+            byte[][] bytes = new byte[strings.values.size()][];
+            int position = 0;
+            for (int i = 0; i < bytes.length; ++i) {
+                bytes[i] = strings.values.get(i).getBytes(CHARSET);
+                output.writeInt(position);
+                position += bytes[i].length;
+            }
+            output.writeInt(position);
+            for (byte[] b : bytes) {
+                output.write(b);
+            }
+            writeInts(output, users);
+            writeInts(output, pages);
+            position = 0;
+            for (int[] targets : out) {
+                output.writeInt(position);
+                position += targets.length;
+            }
+            output.writeInt(position);
+            for (int[] targets : out) {
+                writeInts(output, targets);
+            }
+            writeInts(output, inIndex);
+            writeInts(output, in);
+        } finally {
+            output.close();
+        }
+    }
+
+    //- OUTILS
+
+    /**
+     * Vérifie que toutes les positions et tous les identifiants lus dans le
+     * fichier désignent bien un élément de sa section, que les âges sont
+     * valides et que chaque liste d'adjacence est strictement croissante.
+     * Les lectures suivantes ne peuvent alors plus échouer : les assertions
+     * des accesseurs (start, id, string) ne font que le rappeler.
+     * @throws IOException Si le fichier est corrompu.
+     */
+    private void verify() throws IOException {
+        int stringBytes = userTable - stringData;
+        int previous = 0;
+        for (int i = 0; i <= stringCount; ++i) {
+            int position = buffer.getInt(stringIndex + INT_BYTES * i);
+            check(previous <= position && position <= stringBytes);
+            previous = position;
+        }
+        for (int u = 0; u < userCount; ++u) {
+            int p = userTable + INT_BYTES * USER_FIELDS * u;
+            check(isString(buffer.getInt(p))
+                    && isString(buffer.getInt(p + INT_BYTES))
+                    && buffer.getInt(p + 2 * INT_BYTES) >= User.AGE_MINIMUM);
+        }
+        for (int p = 0; p < pageCount; ++p) {
+            check(isString(buffer.getInt(pageTable + INT_BYTES * p)));
+        }
+        verifyLists(outIndex, outTargets);
+        verifyLists(inIndex, inSources);
+    }
+
+    /**
+     * Vérifie une table de positions et les listes d'identifiants qu'elle
+     * délimite.
+     * @param index La position de la table de positions.
+     * @param lists La position des listes correspondantes.
+     * @throws IOException Si la table ou les listes sont corrompues.
+     */
+    private void verifyLists(int index, int lists) throws IOException {
+        int accounts = userCount + pageCount;
+        check(buffer.getInt(index) == 0
+                && buffer.getInt(index + INT_BYTES * accounts) == arcCount);
+        int start = 0;
+        for (int x = 0; x < accounts; ++x) {
+            int end = buffer.getInt(index + INT_BYTES * (x + 1));
+            check(start <= end);
+            int previous = -1;
+            for (int k = start; k < end; ++k) {
+                int y = buffer.getInt(lists + INT_BYTES * k);
+                check(previous < y && y < accounts);
+                previous = y;
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * @param i Un entier lu dans le fichier.
+     * @return true si i est un indice de la table des chaines.
+     */
+    private boolean isString(int i) {
+        return 0 <= i && i < stringCount;
+    }
+
+    /**
+     * @param condition Une condition vérifiée sur le fichier.
+     * @throws IOException Si condition est fausse.
+     */
+    private static void check(boolean condition) throws IOException {
+        if (!condition) {
+            throw new IOException(CORRUPT);
+        }
+    }
+
+    /**
+     * @param position La position d'une section calculée depuis l'en-tête.
+     * @return position, si elle appartient au fichier.
+     * @throws IOException Si position dépasse la fin du fichier.
+     */
+    private int section(long position) throws IOException {
+        if (position > buffer.capacity()) {
+            throw new IOException(CORRUPT);
+        }
+        return (int) position;
+    }
+
+    /**
+     * @param index La position d'une table de positions.
+     * @param id Un identifiant de compte.
+     * @return La position, en nombre d'arcs, du début de la liste du compte
+     * identifié par id.
+     */
+    private int start(int index, int id) {
+        int start = buffer.getInt(index + INT_BYTES * id);
+        Assert.check(0 <= start && start <= arcCount, CORRUPT);
+        return start;
+    }
+
+    /**
+     * @param index La position d'une table de positions.
+     * @param id Un identifiant de compte.
+     * @return La position, en nombre d'arcs, de la fin de la liste du compte
+     * identifié par id.
+     */
+    private int end(int index, int id) {
+        return start(index, id + 1);
+    }
+
+    /**
+     * @param lists La position de listes d'identifiants.
+     * @param k Une position dans ces listes, en nombre d'arcs.
+     * @return L'identifiant de compte lu à la position k.
+     */
+    private int id(int lists, int k) {
+        int id = buffer.getInt(lists + INT_BYTES * k);
+        Assert.check(0 <= id && id < userCount + pageCount, CORRUPT);
+        return id;
+    }
+
+    /**
+     * @param index La position d'une table de positions.
+     * @param lists La position des listes correspondantes.
+     * @param id Un identifiant de compte, ou -1.
+     * @return Les utilisateurs de la liste du compte identifié par id, vide
+     * si id vaut -1.
+     */
+    private SortedSet<User> users(int index, int lists, int id) {
+        SortedSet<User> result = new TreeSet<User>();
+        if (id >= 0) {
+            int end = end(index, id);
+            for (int k = start(index, id); k < end; ++k) {
+                int y = id(lists, k);
+                if (y < userCount) {
+                    result.add((User) account(y));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param index La position d'une table de positions.
+     * @param lists La position des listes correspondantes.
+     * @param id Un identifiant de compte, ou -1.
+     * @return Les pages de la liste du compte identifié par id, vide si id
+     * vaut -1.
+     */
+    private SortedSet<Page> pages(int index, int lists, int id) {
+        SortedSet<Page> result = new TreeSet<Page>();
+        if (id >= 0) {
+            int end = end(index, id);
+            for (int k = start(index, id); k < end; ++k) {
+                int y = id(lists, k);
+                if (y >= userCount) {
+                    result.add((Page) account(y));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param x Un compte.
+     * @return L'identifiant du compte dénoté par x dans cet instantané, -1
+     * s'il n'y figure pas.
+     */
+    private int idOf(Vertex x) {
+        if (x instanceof User) {
+            return find(x.getName(), 0, userCount);
+        }
+        if (x instanceof Page) {
+            return find(x.getName(), userCount, userCount + pageCount);
+        }
+        return -1;
+    }
+
+    /**
+     * Recherche un nom par dichotomie en comparant son codage UTF-8 aux
+     * octets du fichier, sans décoder aucune chaine.
+     * @param n Un nom de compte.
+     * @param from Le premier identifiant de la plage à explorer.
+     * @param to L'identifiant suivant le dernier de la plage à explorer.
+     * @return L'identifiant du compte de nom n dans la plage [from, to),
+     * triée par nom, -1 s'il n'y figure pas.
+     */
+    private int find(String n, int from, int to) {
+        byte[] key = n.getBytes(CHARSET);
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int d = compareName(mid, key);
+            if (d < 0) {
+                low = mid + 1;
+            } else if (d > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param id Un identifiant de compte.
+     * @param key Le codage UTF-8 d'un nom.
+     * @return Une valeur négative, nulle ou positive selon que le nom du
+     * compte identifié par id précède, égale ou suit le nom codé par key dans
+     * l'ordre de String.compareTo. Le nom d'un utilisateur est son nom de
+     * famille, une espace, puis son prénom (voir User.getName).
+     */
+    private int compareName(int id, byte[] key) {
+        if (id >= userCount) {
+            int i = buffer.getInt(pageTable + INT_BYTES * (id - userCount));
+            int d = compareString(i, key, 0);
+            if (d != 0) {
+                return d;
+            }
+            return stringLength(i) - key.length;
+        }
+        int p = userTable + INT_BYTES * USER_FIELDS * id;
+        int last = buffer.getInt(p);
+        int d = compareString(last, key, 0);
+        if (d != 0) {
+            return d;
+        }
+        int k = stringLength(last);
+        if (k >= key.length) {
+            return 1;
+        }
+        d = compareBytes(' ', key[k] & 0xFF);
+        if (d != 0) {
+            return d;
+        }
+        int first = buffer.getInt(p + INT_BYTES);
+        d = compareString(first, key, k + 1);
+        if (d != 0) {
+            return d;
+        }
+        return k + 1 + stringLength(first) - key.length;
+    }
+
+    /**
+     * @param i Un indice de la table des chaines.
+     * @param key Le codage UTF-8 d'un nom.
+     * @param k Une position dans key.
+     * @return Une valeur négative ou positive si la chaine d'indice i et les
+     * octets de key à partir de k diffèrent sur la longueur de la plus
+     * courte, selon l'ordre de String.compareTo ; 0 sinon.
+     */
+    private int compareString(int i, byte[] key, int k) {
+        int start = stringData + stringStart(i);
+        int length = Math.min(stringLength(i), key.length - k);
+        for (int j = 0; j < length; ++j) {
+            int d = compareBytes(buffer.get(start + j) & 0xFF,
+                    key[k + j] & 0xFF);
+            if (d != 0) {
+                return d;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Compare les premiers octets différents de deux codages UTF-8 qui
+     * s'accordent jusque-là. L'ordre des octets est celui des points de code,
+     * qui ne diffère de celui des unités UTF-16 de String.compareTo que pour
+     * les caractères de U+E000 à U+FFFF (octets de tête 0xEE et 0xEF), placés
+     * après les caractères supplémentaires (octets de tête 0xF0 à 0xF4).
+     * @param a Un octet du premier codage.
+     * @param b L'octet du second codage à la même position.
+     * @return Une valeur négative, nulle ou positive selon l'ordre de a et b.
+     */
+    private static int compareBytes(int a, int b) {
+        if (a == b) {
+            return 0;
+        }
+        return utf16Order(a) - utf16Order(b);
+    }
+
+    /**
+     * @param b Un octet d'un codage UTF-8.
+     * @return Une clé de b ordonnant les octets de tête comme les unités
+     * UTF-16 des caractères qu'ils commencent.
+     */
+    private static int utf16Order(int b) {
+        return b == 0xEE || b == 0xEF ? b + 7 : b;
+    }
+
+    /**
+     * @param id Un identifiant de compte.
+     * @return Le compte identifié par id, créé lors du premier appel.
+     */
+    private Vertex account(int id) {
+        Vertex x = materialized.get(id);
+        if (x == null) {
+            x = materialize(id);
+            materialized.put(id, x);
+        }
+        return x;
+    }
+
+    /**
+     * @param id Un identifiant de compte.
+     * @return Un nouveau compte identifié par id.
+     */
+    private Vertex materialize(int id) {
+        if (id < userCount) {
+            int p = userTable + INT_BYTES * USER_FIELDS * id;
+            return new User(string(buffer.getInt(p)),
+                    string(buffer.getInt(p + INT_BYTES)),
+                    buffer.getInt(p + 2 * INT_BYTES));
+        }
+        return new Page(string(
+                buffer.getInt(pageTable + INT_BYTES * (id - userCount))));
+    }
+
+    /**
+     * @param i Un indice de la table des chaines.
+     * @return La chaine d'indice i.
+     */
+    private String string(int i) {
+        byte[] bytes = new byte[stringLength(i)];
+        ByteBuffer b = buffer.duplicate();
+        b.position(stringData + stringStart(i));
+        b.get(bytes);
+        return new String(bytes, CHARSET);
+    }
+
+    /**
+     * @param i Un indice de la table des chaines.
+     * @return La position de la chaine d'indice i dans le contenu des
+     * chaines.
+     */
+    private int stringStart(int i) {
+        Assert.check(isString(i), CORRUPT);
+        int start = buffer.getInt(stringIndex + INT_BYTES * i);
+        Assert.check(0 <= start && start <= userTable - stringData, CORRUPT);
+        return start;
+    }
+
+    /**
+     * @param i Un indice de la table des chaines.
+     * @return La longueur en octets de la chaine d'indice i.
+     */
+    private int stringLength(int i) {
+        int start = stringStart(i);
+        int end = buffer.getInt(stringIndex + INT_BYTES * (i + 1));
+        Assert.check(start <= end && end <= userTable - stringData, CORRUPT);
+        return end - start;
+    }
+
+    /**
+     * Écrit les entiers dénotés par values sur quatre octets chacun.
+     * @param output Le flux à écrire.
+     * @param values Les entiers à écrire.
+     */
+    private static void writeInts(DataOutputStream output, int[] values)
+            throws IOException {
+        for (int v : values) {
+            output.writeInt(v);
+        }
+    }
+}
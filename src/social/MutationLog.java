@@ -0,0 +1,1083 @@
+package social;
+
+import graph.Vertex;
+import graph.exceptions.ArcNotFound;
+import graph.exceptions.DuplicateArc;
+import graph.exceptions.DuplicateVertex;
+import graph.exceptions.VertexNotFound;
+import social.accounts.Page;
+import social.accounts.User;
+import util.Assert;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Observable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Le journal des modifications d'un réseau social, qui le rend durable sans
+ * réécrire le réseau entier à chaque modification. Un réseau journalisé sous
+ * le chemin base occupe les fichiers suivants :
+ * - base.ckpt, le point de reprise : le numéro du dernier enregistrement
+ *   qu'il contient, suivi d'un instantané du réseau (voir NetworkSnapshot) ;
+ * - base.wal.1, base.wal.2... les segments du journal, dont seul le dernier
+ *   reçoit les nouveaux enregistrements.
+ * Chaque création ou suppression de compte et chaque ajout ou retrait de
+ * relation (like, suivi, administration) y est consigné par un
+ * enregistrement : sa longueur, sa somme de contrôle CRC32, puis son numéro
+ * de séquence, son type et les noms des comptes concernés.
+ * Les enregistrements sont accumulés en mémoire et écrits par un thread
+ * dédié qui, à chaque passage, écrit d'un bloc tous ceux en attente puis
+ * force leur écriture sur disque : un seul fsync couvre ainsi toutes les
+ * modifications survenues pendant le précédent (validation groupée). Une
+ * modification ne bloque jamais ; sync attend qu'elle soit durable.
+ * La restauration (recover) charge le point de reprise puis rejoue les
+ * enregistrements plus récents ; un dernier enregistrement incomplet ou
+ * corrompu, laissé par une interruption pendant son écriture, est ignoré et
+ * effacé. Lorsque le segment courant dépasse le seuil de compaction, un
+ * nouveau segment est ouvert et les précédents sont intégrés en
+ * arrière-plan à un nouveau point de reprise, puis supprimés. Le point de
+ * reprise étant remplacé atomiquement et portant le numéro de son dernier
+ * enregistrement, une interruption à tout moment reste sans conséquence :
+ * le répertoire du journal est lui-même forcé sur disque après chaque
+ * remplacement du point de reprise et chaque création de segment, là où le
+ * système le permet.
+ * À la première erreur d'écriture, le journal cesse de consigner les
+ * modifications et en informe aussitôt ses observateurs en leur transmettant
+ * l'erreur ; sync et close la lèvent ensuite.
+ * Un réseau existant commence à être journalisé par start, qui en écrit un
+ * premier point de reprise. Un journal non fermé l'est à l'arrêt de la
+ * machine virtuelle, ce qui écrit les enregistrements encore en attente.
+ */
+public final class MutationLog extends Observable {
+
+    //- CONSTANTES
+
+    /**
+     * Le nombre magique identifiant un segment du journal ("SNWL").
+     */
+    public static final int MAGIC = 0x534E574C;
+
+    /**
+     * La version du format des segments.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Le nombre magique identifiant un point de reprise ("SNCK").
+     */
+    public static final int CHECKPOINT_MAGIC = 0x534E434B;
+
+    /**
+     * L'extension du point de reprise.
+     */
+    public static final String CHECKPOINT_EXTENSION = ".ckpt";
+
+    /**
+     * L'extension des segments, suivie de leur numéro.
+     */
+    public static final String SEGMENT_EXTENSION = ".wal.";
+
+    /**
+     * La taille par défaut, en octets, à partir de laquelle le segment
+     * courant est compacté.
+     */
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 4L << 20;
+
+    /**
+     * La taille de l'en-tête d'un segment.
+     */
+    private static final int HEADER_BYTES = 8;
+
+    /**
+     * La taille de l'en-tête d'un enregistrement : longueur et somme de
+     * contrôle.
+     */
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    /**
+     * La taille d'un numéro de séquence.
+     */
+    private static final int SEQUENCE_BYTES = 8;
+
+    /**
+     * La taille maximale du contenu d'un enregistrement.
+     */
+    private static final int MAX_RECORD = 3 << 16;
+
+    /**
+     * Le message des erreurs révélant un journal incohérent.
+     */
+    private static final String CORRUPT = "corrupt mutation log";
+
+    /**
+     * Le type des enregistrements de création d'un utilisateur.
+     */
+    private static final byte CREATE_USER = 1;
+
+    /**
+     * Le type des enregistrements de création d'une page.
+     */
+    private static final byte CREATE_PAGE = 2;
+
+    /**
+     * Le type des enregistrements de suppression d'un utilisateur.
+     */
+    private static final byte REMOVE_USER = 3;
+
+    /**
+     * Le type des enregistrements de suppression d'une page.
+     */
+    private static final byte REMOVE_PAGE = 4;
+
+    /**
+     * Le type des enregistrements d'ajout d'une relation.
+     */
+    private static final byte ADD_ARC = 5;
+
+    /**
+     * Le type des enregistrements de retrait d'une relation.
+     */
+    private static final byte REMOVE_ARC = 6;
+
+    //- ATTRIBUTS
+
+    /**
+     * Le répertoire des fichiers du journal.
+     */
+    private final File directory;
+
+    /**
+     * Le nom commun des fichiers du journal.
+     */
+    private final String name;
+
+    /**
+     * Les enregistrements en attente d'écriture.
+     */
+    private final ByteArrayOutputStream pending;
+
+    /**
+     * Le numéro du dernier enregistrement consigné.
+     */
+    private long lastSequence;
+
+    /**
+     * Le numéro du dernier enregistrement écrit sur disque.
+     */
+    private long durableSequence;
+
+    /**
+     * La première erreur d'écriture rencontrée, ou null.
+     */
+    private IOException failure;
+
+    /**
+     * true ou false selon si ce journal est fermé.
+     */
+    private boolean closed;
+
+    /**
+     * La compaction en cours ou la dernière effectuée, ou null.
+     */
+    private Future<?> compaction;
+
+    /**
+     * La taille à partir de laquelle le segment courant est compacté.
+     */
+    private long threshold;
+
+    /**
+     * Le verrou protégeant le segment courant.
+     */
+    private final Object io;
+
+    /**
+     * Le canal d'écriture du segment courant.
+     */
+    private FileChannel channel;
+
+    /**
+     * Le numéro du segment courant.
+     */
+    private int segment;
+
+    /**
+     * La taille du segment courant.
+     */
+    private long segmentSize;
+
+    /**
+     * Le thread écrivant les enregistrements en attente.
+     */
+    private final Thread writer;
+
+    /**
+     * Le thread des compactions.
+     */
+    private final ExecutorService compactor;
+
+    /**
+     * Le thread fermant ce journal à l'arrêt de la machine virtuelle.
+     */
+    private final Thread hook;
+
+    //- CONSTRUCTEURS
+
+    /**
+     * Un journal reprenant après l'enregistrement numéro lastSequence, dans
+     * un nouveau segment numéro segment.
+     * @param directory Le répertoire des fichiers du journal.
+     * @param name Le nom commun des fichiers du journal.
+     * @param lastSequence Le numéro du dernier enregistrement existant.
+     * @param segment Le numéro du segment à créer.
+     */
+    private MutationLog(File directory, final String name,
+                        long lastSequence, int segment) throws IOException {
+        this.directory = directory;
+        this.name = name;
+        this.pending = new ByteArrayOutputStream();
+        this.lastSequence = lastSequence;
+        this.durableSequence = lastSequence;
+        this.threshold = DEFAULT_COMPACTION_THRESHOLD;
+        this.io = new Object();
+        openSegment(segment);
+        this.compactor = Executors.newSingleThreadExecutor(
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "MutationLog-" + name
+                                + "-compaction");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        this.writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writePending();
+            }
+        }, "MutationLog-" + name);
+        writer.setDaemon(true);
+        writer.start();
+        this.hook = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    close();
+                } catch (IOException e) {
+                    System.err.println("MutationLog " + name + ": " + e);
+                }
+            }
+        }, "MutationLog-" + name + "-shutdown");
+        Runtime.getRuntime().addShutdownHook(hook);
+    }
+
+    //- REQUÊTES
+
+    /**
+     * @return Le numéro du dernier enregistrement consigné.
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * @return Le numéro du dernier enregistrement écrit sur disque.
+     */
+    public synchronized long getDurableSequence() {
+        return durableSequence;
+    }
+
+    /**
+     * @return La première erreur d'écriture rencontrée, ou null si aucune :
+     * les modifications survenues depuis n'ont pas été consignées.
+     */
+    public synchronized IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return La taille à partir de laquelle le segment courant est compacté.
+     */
+    public synchronized long getCompactionThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @pre
+     *      base != null
+     * @param base Le chemin commun des fichiers d'un journal.
+     * @return true ou false selon si un point de reprise ou un segment existe
+     * sous le chemin base.
+     */
+    public static boolean exists(File base) {
+        Assert.check(base != null, "base is null");
+        File directory = base.getAbsoluteFile().getParentFile();
+        String name = base.getName();
+        return checkpointFile(directory, name).exists()
+                || segments(directory, name).length > 0;
+    }
+
+    //- COMMANDES
+
+    /**
+     * Restaure le réseau social journalisé sous le chemin base (voir
+     * SocialNetwork.recover), et y attache un nouveau journal.
+     * @pre
+     *      base != null
+     * @param base Le chemin commun des fichiers du journal.
+     * @return Le réseau social restauré.
+     * @throws IOException Si le point de reprise ou un segment autre que le
+     * dernier est corrompu.
+     */
+    public static SocialNetwork recover(File base) throws IOException {
+        Assert.check(base != null, "base is null");
+        File directory = base.getAbsoluteFile().getParentFile();
+        String name = base.getName();
+        State state = readCheckpoint(directory, name);
+        File[] segments = segments(directory, name);
+        for (int i = 0; i < segments.length; ++i) {
+            replay(state, segments[i], i == segments.length - 1);
+        }
+        int last = segments.length == 0 ? 0
+                : segmentNumber(segments[segments.length - 1], name);
+        MutationLog log = new MutationLog(directory, name, state.sequence,
+                last + 1);
+        state.social.attachLog(log);
+        return state.social;
+    }
+
+    /**
+     * Commence à journaliser le réseau social dénoté par social sous le
+     * chemin base, en remplaçant le journal existant éventuellement sous ce
+     * chemin (voir exists) : un point de reprise contenant l'état actuel du
+     * réseau est écrit, puis les segments de l'ancien journal sont supprimés
+     * et un nouveau journal est attaché au réseau. Le nouveau point de
+     * reprise porte le numéro du dernier enregistrement de l'ancien journal :
+     * une interruption avant la suppression de ses segments les laisse
+     * ignorés par recover.
+     * @pre
+     *      social != null
+     *      base != null
+     *      social.getLog() == null
+     * @param social Le réseau à journaliser.
+     * @param base Le chemin commun des fichiers du journal.
+     * @return Le journal attaché au réseau.
+     * @throws IOException Si l'ancien journal n'a pu être lu, si le point de
+     * reprise n'a pu être écrit ou si un ancien segment n'a pu être
+     * supprimé.
+     */
+    public static MutationLog start(SocialNetwork social, File base)
+            throws IOException {
+        Assert.check(social != null, "social is null");
+        Assert.check(base != null, "base is null");
+        Assert.check(social.getLog() == null, "social is already logged");
+        File directory = base.getAbsoluteFile().getParentFile();
+        String name = base.getName();
+        File[] segments = segments(directory, name);
+        long sequence = lastSequence(directory, name, segments);
+        writeCheckpoint(directory, name, social, sequence);
+        for (File f : segments) {
+            if (!f.delete()) {
+                throw new IOException("cannot delete " + f);
+            }
+        }
+        int last = segments.length == 0 ? 0
+                : segmentNumber(segments[segments.length - 1], name);
+        MutationLog log = new MutationLog(directory, name, sequence,
+                last + 1);
+        social.attachLog(log);
+        return log;
+    }
+
+    /**
+     * Fixe la taille à partir de laquelle le segment courant est compacté.
+     * @pre
+     *      threshold > 0
+     * @param threshold La nouvelle taille, en octets.
+     */
+    public synchronized void setCompactionThreshold(long threshold) {
+        Assert.check(threshold > 0, "threshold must be positive");
+        this.threshold = threshold;
+    }
+
+    /**
+     * Attend que tous les enregistrements consignés soient écrits sur disque.
+     * @throws IOException Si une écriture a échoué.
+     */
+    public synchronized void sync() throws IOException {
+        long target = lastSequence;
+        boolean interrupted = false;
+        while (durableSequence < target && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Ouvre un nouveau segment et intègre en arrière-plan les précédents à un
+     * nouveau point de reprise. Sans effet si une compaction est déjà en
+     * cours ou si ce journal est fermé.
+     * @return La compaction lancée ou en cours, null si ce journal est
+     * fermé. Son résultat lève l'erreur éventuelle de la compaction, qui
+     * laisse alors intacts le point de reprise et les segments.
+     * @throws IOException Si le nouveau segment n'a pu être créé.
+     */
+    public synchronized Future<?> compact() throws IOException {
+        if (closed) {
+            return null;
+        }
+        if (compaction != null && !compaction.isDone()) {
+            return compaction;
+        }
+        final int sealed;
+        synchronized (io) {
+            sealed = segment;
+            channel.close();
+            openSegment(sealed + 1);
+        }
+        compaction = compactor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                fold(sealed);
+                return null;
+            }
+        });
+        return compaction;
+    }
+
+    /**
+     * Écrit les enregistrements en attente, attend la fin de la compaction
+     * en cours et ferme ce journal. Les modifications ultérieures du réseau
+     * ne sont plus consignées. Appelée à l'arrêt de la machine virtuelle si
+     * elle ne l'a pas été auparavant.
+     * @throws IOException Si une écriture a échoué.
+     */
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException e) {
+            // L'arrêt est en cours : close est appelée par hook.
+        }
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        compactor.shutdown();
+        while (!compactor.isTerminated()) {
+            try {
+                compactor.awaitTermination(Long.MAX_VALUE,
+                        TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (io) {
+            channel.close();
+        }
+        synchronized (this) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Consigne la création du compte dénoté par x.
+     * @param x Le compte créé.
+     */
+    void vertexAdded(Vertex x) {
+        append(body(x instanceof User ? CREATE_USER : CREATE_PAGE, x, null));
+    }
+
+    /**
+     * Consigne la suppression du compte dénoté par x.
+     * @param x Le compte supprimé.
+     */
+    void vertexRemoved(Vertex x) {
+        append(body(x instanceof User ? REMOVE_USER : REMOVE_PAGE, x, null));
+    }
+
+    /**
+     * Consigne l'ajout de la relation de x vers y.
+     * @param x Le compte de départ.
+     * @param y Le compte d'arrivée.
+     */
+    void arcAdded(Vertex x, Vertex y) {
+        append(body(ADD_ARC, x, y));
+    }
+
+    /**
+     * Consigne le retrait de la relation de x vers y.
+     * @param x Le compte de départ.
+     * @param y Le compte d'arrivée.
+     */
+    void arcRemoved(Vertex x, Vertex y) {
+        append(body(REMOVE_ARC, x, y));
+    }
+
+    //- OUTILS
+
+    /**
+     * Numérote l'enregistrement de contenu body et le place en attente
+     * d'écriture. Sans effet si ce journal est fermé ou si une écriture a
+     * échoué : l'erreur a déjà été signalée aux observateurs, et les
+     * enregistrements ne seraient plus jamais écrits ni libérés.
+     * @param body Le type et les champs de l'enregistrement.
+     */
+    private synchronized void append(byte[] body) {
+        if (closed || failure != null) {
+            return;
+        }
+        long sequence = lastSequence + 1;
+        byte[] payload = ByteBuffer.allocate(SEQUENCE_BYTES + body.length)
+                .putLong(sequence).put(body).array();
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        pending.write(ByteBuffer.allocate(RECORD_HEADER_BYTES)
+                .putInt(payload.length).putInt((int) crc.getValue()).array(),
+                0, RECORD_HEADER_BYTES);
+        pending.write(payload, 0, payload.length);
+        lastSequence = sequence;
+        notifyAll();
+    }
+
+    /**
+     * La boucle du thread d'écriture : écrit d'un bloc les enregistrements
+     * en attente, force leur écriture sur disque, puis lance une compaction
+     * si le segment courant a atteint le seuil. S'arrête à la fermeture du
+     * journal, une fois tout écrit, ou à la première erreur (voir fail).
+     * Une interruption est une erreur : les enregistrements en attente ne
+     * sont plus écrits.
+     */
+    private void writePending() {
+        while (true) {
+            byte[] batch;
+            long sequence;
+            synchronized (this) {
+                while (pending.size() == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        fail(new InterruptedIOException());
+                        return;
+                    }
+                }
+                if (pending.size() == 0) {
+                    return;
+                }
+                batch = pending.toByteArray();
+                pending.reset();
+                sequence = lastSequence;
+            }
+            try {
+                long size;
+                synchronized (io) {
+                    ByteBuffer b = ByteBuffer.wrap(batch);
+                    while (b.hasRemaining()) {
+                        channel.write(b);
+                    }
+                    channel.force(false);
+                    segmentSize += batch.length;
+                    size = segmentSize;
+                }
+                synchronized (this) {
+                    durableSequence = sequence;
+                    notifyAll();
+                }
+                if (size >= getCompactionThreshold()) {
+                    compact();
+                }
+            } catch (IOException e) {
+                fail(e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Enregistre l'erreur d'écriture dénotée par e, abandonne les
+     * enregistrements en attente et transmet e aux observateurs de ce
+     * journal, depuis le thread appelant.
+     * @param e L'erreur rencontrée.
+     */
+    private void fail(IOException e) {
+        synchronized (this) {
+            if (failure != null) {
+                return;
+            }
+            failure = e;
+            pending.reset();
+            notifyAll();
+        }
+        setChanged();
+        notifyObservers(e);
+    }
+
+    /**
+     * Crée le segment numéro n et en fait le segment courant.
+     * @param n Le numéro du segment.
+     */
+    private void openSegment(int n) throws IOException {
+        File f = segmentFile(directory, name, n);
+        channel = new RandomAccessFile(f, "rw").getChannel();
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.force(false);
+        syncDirectory(directory);
+        segment = n;
+        segmentSize = HEADER_BYTES;
+    }
+
+    /**
+     * Intègre au point de reprise les segments de numéro au plus sealed, puis
+     * les supprime. Le réseau est reconstruit à part : le réseau journalisé
+     * n'est pas consulté.
+     * @param sealed Le numéro du dernier segment à intégrer.
+     */
+    private void fold(int sealed) throws IOException {
+        State state = readCheckpoint(directory, name);
+        List<File> folded = new ArrayList<File>();
+        for (File f : segments(directory, name)) {
+            if (segmentNumber(f, name) <= sealed) {
+                replay(state, f, false);
+                folded.add(f);
+            }
+        }
+        writeCheckpoint(directory, name, state.social, state.sequence);
+        for (File f : folded) {
+            if (!f.delete()) {
+                throw new IOException("cannot delete " + f);
+            }
+        }
+    }
+
+    /**
+     * Remplace atomiquement le point de reprise du journal par un instantané
+     * du réseau dénoté par social, dont le dernier enregistrement est le
+     * numéro sequence.
+     * @param directory Le répertoire des fichiers du journal.
+     * @param name Le nom commun des fichiers du journal.
+     * @param social Le réseau à enregistrer.
+     * @param sequence Le numéro du dernier enregistrement intégré au réseau.
+     */
+    private static void writeCheckpoint(File directory, String name,
+                                        SocialNetwork social, long sequence)
+            throws IOException {
+        File checkpoint = checkpointFile(directory, name);
+        File tmp = new File(directory, checkpoint.getName() + ".tmp");
+        FileOutputStream file = new FileOutputStream(tmp);
+        try {
+            DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(file));
+            output.writeInt(CHECKPOINT_MAGIC);
+            output.writeLong(sequence);
+            NetworkSnapshot.write(social, output);
+            output.flush();
+            file.getFD().sync();
+        } finally {
+            file.close();
+        }
+        Files.move(tmp.toPath(), checkpoint.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(directory);
+    }
+
+    /**
+     * Force l'écriture sur disque des entrées du répertoire dénoté par
+     * directory, pour qu'un fichier qui vient d'y être créé ou renommé
+     * survive à un arrêt brutal. Sans effet sur les systèmes qui ne
+     * permettent pas d'ouvrir un répertoire, comme Windows.
+     * @param directory Le répertoire à forcer.
+     */
+    private static void syncDirectory(File directory) throws IOException {
+        FileChannel dir;
+        try {
+            dir = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try {
+            dir.force(true);
+        } finally {
+            dir.close();
+        }
+    }
+
+    /**
+     * @param type Le type d'un enregistrement.
+     * @param x Le compte concerné.
+     * @param y Le second compte concerné par une relation, ou null.
+     * @return Le type et les champs de l'enregistrement.
+     */
+    private static byte[] body(byte type, Vertex x, Vertex y) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            output.writeByte(type);
+            if (type == CREATE_USER) {
+                User u = (User) x;
+                output.writeUTF(u.getLastName());
+                output.writeUTF(u.getFirstName());
+                output.writeInt(u.getAge());
+            } else {
+                output.writeUTF(x.getName());
+                if (y != null) {
+                    output.writeUTF(y.getName());
+                }
+            }
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param directory Le répertoire des fichiers du journal.
+     * @param name Le nom commun des fichiers du journal.
+     * @return Le réseau du point de reprise et le numéro de son dernier
+     * enregistrement, un réseau vide et 0 s'il n'existe pas.
+     */
+    private static State readCheckpoint(File directory, String name)
+            throws IOException {
+        File f = checkpointFile(directory, name);
+        if (!f.exists()) {
+            return new State(new SocialNetwork(name), 0);
+        }
+        DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(f)));
+        try {
+            if (input.readInt() != CHECKPOINT_MAGIC) {
+                throw new IOException("not a checkpoint: " + f);
+            }
+            long sequence = input.readLong();
+            return new State(NetworkSnapshot.read(name, input, f.length()),
+                    sequence);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * @param directory Le répertoire des fichiers du journal.
+     * @param name Le nom commun des fichiers du journal.
+     * @param segments Les segments du journal.
+     * @return Le plus grand numéro d'enregistrement du point de reprise et des
+     * enregistrements valides des segments, 0 si le journal n'existe pas.
+     */
+    private static long lastSequence(File directory, String name,
+                                     File[] segments) throws IOException {
+        long last = 0;
+        File checkpoint = checkpointFile(directory, name);
+        if (checkpoint.exists()) {
+            DataInputStream input = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(checkpoint)));
+            try {
+                if (input.readInt() != CHECKPOINT_MAGIC) {
+                    throw new IOException("not a checkpoint: " + checkpoint);
+                }
+                last = input.readLong();
+            } finally {
+                input.close();
+            }
+        }
+        for (File f : segments) {
+            DataInputStream input = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(f)));
+            try {
+                if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                    throw new IOException("not a mutation log segment: " + f);
+                }
+                CRC32 crc = new CRC32();
+                while (true) {
+                    int length = input.readInt();
+                    int checksum = input.readInt();
+                    if (length < SEQUENCE_BYTES + 1 || length > MAX_RECORD) {
+                        break;
+                    }
+                    byte[] payload = new byte[length];
+                    input.readFully(payload);
+                    crc.reset();
+                    crc.update(payload, 0, length);
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+                    last = Math.max(last, ByteBuffer.wrap(payload).getLong());
+                }
+            } catch (EOFException e) {
+                // Fin du segment, éventuellement au milieu d'un enregistrement.
+            } finally {
+                input.close();
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Rejoue sur state les enregistrements du segment dénoté par f plus
+     * récents que son dernier enregistrement.
+     * @param state Le réseau en cours de restauration.
+     * @param f Le segment à rejouer.
+     * @param last true ou false selon si f est le dernier segment, dont la
+     * fin incomplète ou corrompue est effacée.
+     * @throws IOException Si le segment est corrompu ailleurs qu'à la fin
+     * du dernier segment, ou s'il ne s'applique pas au réseau.
+     */
+    private static void replay(State state, File f, boolean last)
+            throws IOException {
+        long valid = 0;
+        DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(f)));
+        try {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException("not a mutation log segment: " + f);
+            }
+            valid = HEADER_BYTES;
+            CRC32 crc = new CRC32();
+            while (true) {
+                int length = input.readInt();
+                int checksum = input.readInt();
+                if (length < SEQUENCE_BYTES + 1 || length > MAX_RECORD) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                input.readFully(payload);
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                apply(state, payload);
+                valid += RECORD_HEADER_BYTES + length;
+            }
+        } catch (EOFException e) {
+            // Fin du segment, éventuellement au milieu d'un enregistrement.
+        } finally {
+            input.close();
+        }
+        if (valid < f.length()) {
+            if (!last) {
+                throw new IOException(CORRUPT + ": " + f);
+            }
+            RandomAccessFile file = new RandomAccessFile(f, "rw");
+            try {
+                file.setLength(valid);
+            } finally {
+                file.close();
+            }
+        }
+    }
+
+    /**
+     * Applique à state l'enregistrement de contenu payload, s'il est plus
+     * récent que son dernier enregistrement.
+     * @param state Le réseau en cours de restauration.
+     * @param payload Le contenu de l'enregistrement.
+     */
+    private static void apply(State state, byte[] payload)
+            throws IOException {
+        DataInputStream input = new DataInputStream(
+                new ByteArrayInputStream(payload));
+        long sequence = input.readLong();
+        if (sequence <= state.sequence) {
+            return;
+        }
+        SocialNetwork social = state.social;
+        byte type = input.readByte();
+        try {
+            switch (type) {
+                case CREATE_USER:
+                    social.addVertex(new User(input.readUTF(),
+                            input.readUTF(), input.readInt()));
+                    break;
+                case CREATE_PAGE:
+                    social.addVertex(new Page(input.readUTF()));
+                    break;
+                case REMOVE_USER:
+                case REMOVE_PAGE:
+                    social.removeVertex(find(social, input.readUTF()));
+                    break;
+                case ADD_ARC:
+                    social.addArc(find(social, input.readUTF()),
+                            find(social, input.readUTF()));
+                    break;
+                case REMOVE_ARC:
+                    social.removeArc(find(social, input.readUTF()),
+                            find(social, input.readUTF()));
+                    break;
+                default:
+                    throw new IOException(CORRUPT + ": record type " + type);
+            }
+        } catch (DuplicateVertex e) {
+            throw new IOException(CORRUPT, e);
+        } catch (VertexNotFound e) {
+            throw new IOException(CORRUPT, e);
+        } catch (DuplicateArc e) {
+            throw new IOException(CORRUPT, e);
+        } catch (ArcNotFound e) {
+            throw new IOException(CORRUPT, e);
+        }
+        state.sequence = sequence;
+    }
+
+    /**
+     * @param social Un réseau social.
+     * @param name Un nom de compte.
+     * @return Le compte portant le nom dénoté par name.
+     * @throws VertexNotFound Si aucun compte ne porte ce nom.
+     */
+    private static Vertex find(SocialNetwork social, String name)
+            throws VertexNotFound {
+        Vertex x = social.getVertexByName(name);
+        if (x == null) {
+            throw new VertexNotFound(name);
+        }
+        return x;
+    }
+
+    /**
+     * @param directory Le répertoire des fichiers du journal.
+     * @param name Le nom commun des fichiers du journal.
+     * @return Les segments du journal, par numéro croissant.
+     */
+    private static File[] segments(File directory, final String name) {
+        File[] segments = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String file) {
+                return segmentNumber(file, name) > 0;
+            }
+        });
+        if (segments == null) {
+            return new File[0];
+        }
+        Arrays.sort(segments, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                return Integer.compare(segmentNumber(o1, name),
+                        segmentNumber(o2, name));
+            }
+        });
+        return segments;
+    }
+
+    /**
+     * @param f Un segment.
+     * @param name Le nom commun des fichiers du journal.
+     * @return Le numéro du segment dénoté par f.
+     */
+    private static int segmentNumber(File f, String name) {
+        return segmentNumber(f.getName(), name);
+    }
+
+    /**
+     * @param file Un nom de fichier.
+     * @param name Le nom commun des fichiers du journal.
+     * @return Le numéro du segment nommé file, 0 si ce n'est pas un segment
+     * du journal.
+     */
+    private static int segmentNumber(String file, String name) {
+        String prefix = name + SEGMENT_EXTENSION;
+        if (!file.startsWith(prefix) || file.length() == prefix.length()) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(file.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return Le segment numéro n du journal.
+     */
+    private static File segmentFile(File directory, String name, int n) {
+        return new File(directory, name + SEGMENT_EXTENSION + n);
+    }
+
+    /**
+     * @return Le point de reprise du journal.
+     */
+    private static File checkpointFile(File directory, String name) {
+        return new File(directory, name + CHECKPOINT_EXTENSION);
+    }
+
+    //- TYPES IMBRIQUÉS
+
+    /**
+     * Un réseau en cours de restauration et le numéro du dernier
+     * enregistrement qu'il intègre.
+     */
+    private static final class State {
+
+        /**
+         * Le réseau restauré.
+         */
+        private final SocialNetwork social;
+
+        /**
+         * Le numéro du dernier enregistrement intégré au réseau.
+         */
+        private long sequence;
+
+        State(SocialNetwork social, long sequence) {
+            this.social = social;
+            this.sequence = sequence;
+        }
+    }
+}
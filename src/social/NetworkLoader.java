@@ -0,0 +1,419 @@
+package social;
+
+import graph.Arc;
+import graph.Vertex;
+import graph.exceptions.DuplicateArc;
+import graph.exceptions.DuplicateVertex;
+import graph.exceptions.VertexNotFound;
+import social.accounts.Page;
+import social.accounts.User;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Charge un réseau social depuis le format texte produit par
+ * SocialNetwork.save(), en une seule passe sur le fichier :
+ * - les lignes sont découpées par simple recherche du séparateur, sans
+ *   expression régulière ;
+ * - les noms sont résolus via une table de hachage construite au fil du
+ *   chargement ;
+ * - les arcs sont accumulés sous forme d'identifiants, puis les doublons sont
+ *   détectés en une seule fois par un tri avant que les arcs ne soient
+ *   insérés en bloc.
+ * Le chargement lève DuplicateVertex pour un compte déclaré deux fois,
+ * VertexNotFound pour un arc vers un compte non déclaré auparavant (identifié
+ * par son seul nom, le fichier ne précisant pas s'il s'agit d'un utilisateur
+ * ou d'une page) et DuplicateArc pour un arc déclaré deux fois. Dans ce
+ * dernier cas, aucun arc n'est inséré.
+ * Les deux premières erreurs sont levées au fil de la lecture, à la première
+ * ligne fautive ; les doublons d'arcs ne sont cherchés qu'une fois le fichier
+ * entièrement lu. Un fichier comportant à la fois un arc vers un compte non
+ * déclaré et un arc en double lève donc toujours VertexNotFound, où qu'ils
+ * se trouvent. Parmi plusieurs arcs en double, DuplicateArc signale celui de
+ * plus petite clé, c'est-à-dire dont le compte de départ, puis le compte
+ * d'arrivée, a été déclaré le premier, et non le premier doublon rencontré
+ * dans le fichier.
+ * Le chargeur mesure le débit du dernier chargement, en lignes et en arcs par
+ * seconde.
+ */
+public class NetworkLoader {
+
+    //- CONSTANTES
+
+    /**
+     * Le séparateur des champs d'une ligne.
+     */
+    static final char SEPARATOR = ':';
+
+    /**
+     * Le nombre de nanosecondes dans une seconde.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * La capacité initiale des tableaux d'arcs.
+     */
+    private static final int INITIAL_ARCS = 1024;
+
+    /**
+     * Le nombre de bits d'un identifiant dans la clé d'un arc.
+     */
+    private static final int ID_BITS = 32;
+
+    /**
+     * Le masque extrayant l'identifiant d'arrivée de la clé d'un arc.
+     */
+    private static final long ID_MASK = 0xFFFFFFFFL;
+
+    //- ATTRIBUTS
+
+    /**
+     * Le nombre de lignes lues lors du dernier chargement.
+     */
+    private long lineCount;
+
+    /**
+     * Le nombre d'arcs insérés lors du dernier chargement.
+     */
+    private long arcCount;
+
+    /**
+     * La durée du dernier chargement, en nanosecondes.
+     */
+    private long elapsedNanos;
+
+    /**
+     * Les comptes déclarés, indexés par identifiant.
+     */
+    private List<Vertex> accounts;
+
+    /**
+     * Associe le nom de chaque compte déclaré à son identifiant.
+     */
+    private Map<String, Integer> ids;
+
+    /**
+     * Les identifiants des comptes de départ des arcs lus.
+     */
+    private int[] sources;
+
+    /**
+     * Les identifiants des comptes d'arrivée des arcs lus.
+     */
+    private int[] targets;
+
+    /**
+     * Le nombre d'arcs lus.
+     */
+    private int arcs;
+
+    //- REQUÊTES
+
+    /**
+     * @return Le nombre de lignes lues lors du dernier chargement.
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return Le nombre d'arcs insérés lors du dernier chargement.
+     */
+    public long getArcCount() {
+        return arcCount;
+    }
+
+    /**
+     * @return La durée du dernier chargement, en nanosecondes.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return Le débit du dernier chargement, en lignes par seconde.
+     */
+    public double getLinesPerSecond() {
+        return perSecond(lineCount);
+    }
+
+    /**
+     * @return Le débit du dernier chargement, en arcs par seconde.
+     */
+    public double getArcsPerSecond() {
+        return perSecond(arcCount);
+    }
+
+    /**
+     * @return Un compte rendu du dernier chargement.
+     */
+    @Override
+    public String toString() {
+        return "[NetworkLoader] " + lineCount + " lines - " + arcCount
+                + " arcs in " + Math.round(elapsedNanos / 1e6) + " ms ("
+                + Math.round(getLinesPerSecond()) + " lines/s - "
+                + Math.round(getArcsPerSecond()) + " arcs/s)";
+    }
+
+    //- COMMANDES
+
+    /**
+     * Charge le réseau social sauvegardé dans le fichier dénoté par f. Le nom
+     * du réseau social correspond au nom du fichier sans son extension.
+     * @pre
+     *      f != null
+     * @param f Le fichier à charger.
+     * @return Le réseau social chargé.
+     */
+    public SocialNetwork load(File f)
+            throws IOException, VertexNotFound, DuplicateArc, DuplicateVertex {
+        BufferedReader input = new BufferedReader(new FileReader(f));
+        try {
+            return load(networkName(f), input);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Charge un réseau social nommé name depuis le flux dénoté par input,
+     * qui n'est pas fermé.
+     * @pre
+     *      name != null
+     *      input != null
+     * @param name Le nom du réseau social.
+     * @param input Le flux à lire.
+     * @return Le réseau social chargé.
+     */
+    public SocialNetwork load(String name, BufferedReader input)
+            throws IOException, VertexNotFound, DuplicateArc, DuplicateVertex {
+        long start = System.nanoTime();
+        lineCount = 0;
+        arcCount = 0;
+        accounts = new ArrayList<Vertex>();
+        ids = new HashMap<String, Integer>();
+        sources = new int[INITIAL_ARCS];
+        targets = new int[INITIAL_ARCS];
+        arcs = 0;
+        try {
+            SocialNetwork social = new SocialNetwork(name);
+            String line;
+            while ((line = input.readLine()) != null) {
+                ++lineCount;
+                parse(social, line);
+            }
+            checkDuplicates();
+            insertArcs(social);
+            return social;
+        } finally {
+            accounts = null;
+            ids = null;
+            sources = null;
+            targets = null;
+            elapsedNanos = System.nanoTime() - start;
+        }
+    }
+
+    //- OUTILS
+
+    /**
+     * @param f Un fichier.
+     * @return Le nom du fichier dénoté par f sans son extension.
+     */
+    static String networkName(File f) {
+        String name = f.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > -1 ? name.substring(0, dot) : name;
+    }
+
+    /**
+     * @param line Une ligne.
+     * @param from L'indice du début d'un champ.
+     * @return L'indice de la fin du champ commençant en from.
+     */
+    static int fieldEnd(String line, int from) {
+        int end = line.indexOf(SEPARATOR, from);
+        return end < 0 ? line.length() : end;
+    }
+
+    /**
+     * @param line Une ligne du format texte.
+     * @return Le compte déclaré par la ligne dénotée par line, null s'il
+     * s'agit d'une ligne d'arcs.
+     * @throws AssertionError Si la ligne n'est pas reconnue.
+     */
+    static Vertex parseAccount(String line) {
+        if (line.length() < 2 || line.charAt(1) != SEPARATOR) {
+            throw new AssertionError("Unrecognized: \"" + line + "\"");
+        }
+        switch (line.charAt(0)) {
+            case 'U':
+                int e1 = fieldEnd(line, 2);
+                int e2 = fieldEnd(line, e1 + 1);
+                int e3 = fieldEnd(line, e2 + 1);
+                return new User(line.substring(2, e1),
+                        line.substring(e1 + 1, e2),
+                        Integer.parseInt(line.substring(e2 + 1, e3)));
+            case 'P':
+                return new Page(line.substring(2, fieldEnd(line, 2)));
+            case 'A':
+                return null;
+            default:
+                throw new AssertionError("Unrecognized: \"" + line + "\"");
+        }
+    }
+
+    /**
+     * @param source L'identifiant du compte de départ d'un arc.
+     * @param target L'identifiant du compte d'arrivée de l'arc.
+     * @return La clé de l'arc, dont l'ordre est celui des identifiants de
+     * départ puis d'arrivée.
+     */
+    static long key(int source, int target) {
+        return ((long) source << ID_BITS) | target;
+    }
+
+    /**
+     * @param key La clé d'un arc.
+     * @return L'identifiant du compte de départ de l'arc de clé key.
+     */
+    static int source(long key) {
+        return (int) (key >>> ID_BITS);
+    }
+
+    /**
+     * @param key La clé d'un arc.
+     * @return L'identifiant du compte d'arrivée de l'arc de clé key.
+     */
+    static int target(long key) {
+        return (int) (key & ID_MASK);
+    }
+
+    /**
+     * @param key La clé d'un arc lu deux fois.
+     * @param accounts Les comptes déclarés, indexés par identifiant.
+     * @return L'erreur signalant l'arc de clé key.
+     */
+    static DuplicateArc duplicate(long key, List<Vertex> accounts) {
+        return new DuplicateArc(new Arc(
+                accounts.get(source(key)), accounts.get(target(key))));
+    }
+
+    /**
+     * Traite une ligne du fichier : crée le compte qu'elle déclare, ou
+     * accumule les arcs qu'elle décrit.
+     * @param social Le réseau en cours de chargement.
+     * @param line La ligne à traiter.
+     */
+    private void parse(SocialNetwork social, String line)
+            throws DuplicateVertex, VertexNotFound {
+        Vertex x = parseAccount(line);
+        if (x != null) {
+            declare(social, x);
+            return;
+        }
+        int end = fieldEnd(line, 2);
+        int source = resolve(line.substring(2, end));
+        while (end < line.length()) {
+            int from = end + 1;
+            end = fieldEnd(line, from);
+            addArc(source, resolve(line.substring(from, end)));
+        }
+    }
+
+    /**
+     * Ajoute le compte dénoté par x au réseau et à la table des noms.
+     * @param social Le réseau en cours de chargement.
+     * @param x Le compte déclaré.
+     */
+    private void declare(SocialNetwork social, Vertex x)
+            throws DuplicateVertex {
+        social.addVertex(x);
+        ids.put(x.getName(), accounts.size());
+        accounts.add(x);
+    }
+
+    /**
+     * @param name Un nom de compte.
+     * @return L'identifiant du compte portant le nom dénoté par name.
+     * @throws VertexNotFound Si aucun compte portant ce nom n'a été déclaré.
+     */
+    private int resolve(String name) throws VertexNotFound {
+        Integer id = ids.get(name);
+        if (id == null) {
+            throw new VertexNotFound(name);
+        }
+        return id;
+    }
+
+    /**
+     * Accumule l'arc reliant les comptes identifiés par source et target.
+     * @param source L'identifiant du compte de départ.
+     * @param target L'identifiant du compte d'arrivée.
+     */
+    private void addArc(int source, int target) {
+        if (arcs == sources.length) {
+            sources = Arrays.copyOf(sources, 2 * arcs);
+            targets = Arrays.copyOf(targets, 2 * arcs);
+        }
+        sources[arcs] = source;
+        targets[arcs] = target;
+        ++arcs;
+    }
+
+    /**
+     * Vérifie qu'aucun arc n'a été lu deux fois, en triant les clés des arcs.
+     * @throws DuplicateArc Si un arc a été lu deux fois.
+     */
+    private void checkDuplicates() throws DuplicateArc {
+        long[] keys = new long[arcs];
+        for (int i = 0; i < arcs; ++i) {
+            keys[i] = key(sources[i], targets[i]);
+        }
+        Arrays.sort(keys);
+        for (int i = 1; i < keys.length; ++i) {
+            if (keys[i] == keys[i - 1]) {
+                throw duplicate(keys[i], accounts);
+            }
+        }
+    }
+
+    /**
+     * Insère en bloc dans le réseau les arcs lus, dont l'absence de doublon
+     * a été vérifiée.
+     * @param social Le réseau en cours de chargement.
+     */
+    private void insertArcs(SocialNetwork social) throws VertexNotFound {
+        List<Arc> list = new ArrayList<Arc>(arcs);
+        for (int i = 0; i < arcs; ++i) {
+            Vertex x = accounts.get(sources[i]);
+            Vertex y = accounts.get(targets[i]);
+            list.add(new Arc(x, y, Relation.between(x, y)));
+        }
+        try {
+            social.addArcs(list);
+        } catch (DuplicateArc e) {
+            throw new AssertionError(e);
+        }
+        arcCount = arcs;
+    }
+
+    /**
+     * @param count Un nombre d'éléments traités lors du dernier chargement.
+     * @return Le nombre d'éléments traités par seconde.
+     */
+    private double perSecond(long count) {
+        if (elapsedNanos == 0) {
+            return 0.0;
+        }
+        return count * NANOS_PER_SECOND / elapsedNanos;
+    }
+}
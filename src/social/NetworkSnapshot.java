@@ -0,0 +1,492 @@
+package social;
+
+import graph.Arc;
+import graph.Graph;
+import graph.Vertex;
+import graph.exceptions.DuplicateArc;
+import graph.exceptions.DuplicateVertex;
+import graph.exceptions.VertexNotFound;
+import social.accounts.Page;
+import social.accounts.User;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sauvegarde et charge un réseau social dans un format binaire compact et
+ * versionné. Un instantané contient, dans l'ordre :
+ * - l'en-tête : le nombre magique MAGIC puis le numéro de version ;
+ * - la table des chaines : chaque chaine distincte (noms, prénoms et noms de
+ *   pages) n'y figure qu'une fois, en UTF-8 ;
+ * - les colonnes des utilisateurs, triés par nom : indices des noms, indices
+ *   des prénoms, puis âges ;
+ * - la colonne des pages, triées par nom : indices de leur nom ;
+ * - les listes d'adjacence : pour chaque compte, identifié par son rang
+ *   (utilisateurs puis pages), le nombre de ses successeurs puis leurs
+ *   identifiants triés, chacun codé par son écart avec le précédent.
+ * Tous les entiers sont codés en longueur variable (7 bits par octet, bit de
+ * poids fort indiquant la présence d'un octet suivant) : les identifiants
+ * triés et leurs écarts étant petits, la plupart tiennent sur un octet.
+ * Un instantané décrit exactement le même réseau que le format texte de
+ * SocialNetwork.save() : charger l'un puis enregistrer l'autre ne perd
+ * aucune information.
+ * Ce format se lit séquentiellement ; MappedSnapshot en propose une variante
+ * indexée, consultable sans chargement.
+ */
+public final class NetworkSnapshot {
+
+    //- CONSTANTES
+
+    /**
+     * Le nombre magique identifiant un instantané ("SNET").
+     */
+    public static final int MAGIC = 0x534E4554;
+
+    /**
+     * La version du format produite par write.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * L'extension des fichiers d'instantané.
+     */
+    public static final String EXTENSION = ".snet";
+
+    /**
+     * Le codage des chaines.
+     */
+    static final String CHARSET = "UTF-8";
+
+    /**
+     * Le nombre de bits utiles d'un octet d'entier en longueur variable.
+     */
+    private static final int VARINT_BITS = 7;
+
+    /**
+     * Les bits utiles d'un octet d'entier en longueur variable.
+     */
+    private static final int VARINT_MASK = 0x7F;
+
+    /**
+     * Le bit indiquant qu'un octet d'entier en longueur variable est suivi
+     * d'un autre.
+     */
+    private static final int VARINT_MORE = 0x80;
+
+    /**
+     * Le nombre maximal d'octets d'un entier en longueur variable.
+     */
+    private static final int VARINT_MAX_BYTES = 5;
+
+    //- CONSTRUCTEURS
+
+    private NetworkSnapshot() {
+    }
+
+    //- REQUÊTES
+
+    /**
+     * @param f Un fichier quelconque.
+     * @return true ou false selon si le fichier dénoté par f commence par le
+     * nombre magique d'un instantané.
+     */
+    public static boolean isSnapshot(File f) throws IOException {
+        DataInputStream input = new DataInputStream(new FileInputStream(f));
+        try {
+            return input.readInt() == MAGIC;
+        } catch (EOFException e) {
+            return false;
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * @param f Un fichier quelconque.
+     * @return La version du format de l'instantané dénoté par f.
+     * @throws IOException Si le fichier n'est pas un instantané.
+     */
+    static int version(File f) throws IOException {
+        DataInputStream input = new DataInputStream(new FileInputStream(f));
+        try {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("not a network snapshot");
+            }
+            return input.readInt();
+        } finally {
+            input.close();
+        }
+    }
+
+    //- COMMANDES
+
+    /**
+     * Enregistre un instantané du réseau social dénoté par social dans le
+     * fichier dénoté par f.
+     * @pre
+     *      social != null
+     *      f != null
+     * @param social Le réseau à enregistrer.
+     * @param f Le fichier à écrire.
+     */
+    public static void write(SocialNetwork social, File f)
+            throws IOException {
+        DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(f)));
+        try {
+            write(social, output);
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Écrit un instantané du réseau social dénoté par social dans le flux
+     * dénoté par output, qui n'est ni vidé ni fermé.
+     * @param social Le réseau à enregistrer.
+     * @param output Le flux à écrire.
+     */
+    static void write(SocialNetwork social, DataOutputStream output)
+            throws IOException {
+        List<Vertex> accounts = accounts(social);
+        Map<Vertex, Integer> ids = ids(accounts);
+        StringTable strings = new StringTable();
+        int[] lastnames = new int[social.getUserCount()];
+        int[] firstnames = new int[lastnames.length];
+        int u = 0;
+        for (User x : social.getUsers()) {
+            lastnames[u] = strings.intern(x.getLastName());
+            firstnames[u] = strings.intern(x.getFirstName());
+            ++u;
+        }
+        int[] pagenames = new int[social.getPageCount()];
+        int p = 0;
+        for (Page x : social.getPages()) {
+            pagenames[p++] = strings.intern(x.getName());
+        }
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        writeVarint(output, strings.values.size());
+        for (String s : strings.values) {
+            byte[] bytes = s.getBytes(CHARSET);
+            writeVarint(output, bytes.length);
+            output.write(bytes);
+        }
+        writeVarint(output, lastnames.length);
+        writeColumn(output, lastnames);
+        writeColumn(output, firstnames);
+        for (User x : social.getUsers()) {
+            writeVarint(output, x.getAge());
+        }
+        writeVarint(output, pagenames.length);
+        writeColumn(output, pagenames);
+        Graph graph = social.getGraph();
+        for (Vertex x : accounts) {
+            int[] targets = targets(graph, x, ids);
+            writeVarint(output, targets.length);
+            int previous = 0;
+            for (int t : targets) {
+                writeVarint(output, t - previous);
+                previous = t;
+            }
+        }
+    }
+
+    /**
+     * Charge le réseau social enregistré dans l'instantané dénoté par f, au
+     * format de write ou à celui de MappedSnapshot.write. Le nom du réseau
+     * social correspond au nom du fichier sans son extension.
+     * @pre
+     *      f != null
+     * @param f L'instantané à lire.
+     * @return Le réseau social chargé.
+     * @throws IOException Si le fichier n'est pas un instantané valide.
+     */
+    public static SocialNetwork read(File f) throws IOException {
+        if (version(f) == MappedSnapshot.VERSION) {
+            return MappedSnapshot.open(f).toSocialNetwork();
+        }
+        DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(f)));
+        try {
+            return read(NetworkLoader.networkName(f), input, f.length());
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Charge un réseau social nommé name depuis l'instantané lu dans le flux
+     * dénoté par input, qui n'est pas fermé.
+     * Chaque entier codé occupant au moins un octet, aucun nombre ou longueur
+     * lu ne peut dépasser length : toute allocation est ainsi bornée par la
+     * taille de l'entrée, même si elle est corrompue.
+     * @param name Le nom du réseau social.
+     * @param input Le flux à lire.
+     * @param length Le nombre d'octets restant à lire dans input, ou un
+     * majorant.
+     * @return Le réseau social chargé.
+     * @throws IOException Si le flux ne contient pas un instantané valide.
+     */
+    static SocialNetwork read(String name, DataInputStream input,
+                              long length) throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new IOException("not a network snapshot");
+        }
+        int version = input.readInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported snapshot version " + version);
+        }
+        String[] strings = new String[readCount(input, length)];
+        for (int i = 0; i < strings.length; ++i) {
+            byte[] bytes = new byte[readCount(input, length)];
+            input.readFully(bytes);
+            strings[i] = new String(bytes, CHARSET);
+        }
+        int userCount = readCount(input, length);
+        int[] lastnames = readColumn(input, userCount, strings.length);
+        int[] firstnames = readColumn(input, userCount, strings.length);
+        int[] ages = new int[userCount];
+        for (int u = 0; u < userCount; ++u) {
+            ages[u] = readVarint(input);
+            if (ages[u] < User.AGE_MINIMUM) {
+                throw new IOException("corrupt snapshot");
+            }
+        }
+        int pageCount = readCount(input, length);
+        int[] pagenames = readColumn(input, pageCount, strings.length);
+        long accountCount = (long) userCount + pageCount;
+        if (accountCount > length) {
+            throw new IOException("corrupt snapshot");
+        }
+        Vertex[] accounts = new Vertex[(int) accountCount];
+        SocialNetwork social = new SocialNetwork(name);
+        try {
+            for (int u = 0; u < userCount; ++u) {
+                accounts[u] = new User(strings[lastnames[u]],
+                        strings[firstnames[u]], ages[u]);
+            }
+            for (int p = 0; p < pageCount; ++p) {
+                accounts[userCount + p] = new Page(strings[pagenames[p]]);
+            }
+            for (Vertex x : accounts) {
+                social.addVertex(x);
+            }
+            List<Arc> arcs = new ArrayList<Arc>();
+            for (Vertex x : accounts) {
+                int degree = readCount(input, accounts.length);
+                long target = 0;
+                for (int k = 0; k < degree; ++k) {
+                    int delta = readVarint(input);
+                    target += delta;
+                    if ((k > 0 && delta == 0) || target >= accounts.length) {
+                        throw new IOException("corrupt adjacency list");
+                    }
+                    arcs.add(arc(x, accounts[(int) target]));
+                }
+            }
+            social.addArcs(arcs);
+        } catch (DuplicateVertex e) {
+            throw new IOException("corrupt snapshot", e);
+        } catch (DuplicateArc e) {
+            throw new IOException("corrupt snapshot", e);
+        } catch (VertexNotFound e) {
+            throw new IOException("corrupt snapshot", e);
+        }
+        return social;
+    }
+
+    //- OUTILS
+
+    /**
+     * @param x Le compte de départ d'un arc lu.
+     * @param y Le compte d'arrivée de cet arc.
+     * @return L'arc de x vers y, étiqueté par la relation qu'il représente.
+     * @throws IOException Si aucune relation ne peut relier x à y, d'une
+     * page vers une page par exemple.
+     */
+    static Arc arc(Vertex x, Vertex y) throws IOException {
+        Relation r = Relation.between(x, y);
+        if (r == null) {
+            throw new IOException("corrupt adjacency list: no relation from "
+                    + x.getName() + " to " + y.getName());
+        }
+        return new Arc(x, y, r);
+    }
+
+    /**
+     * @param social Un réseau social.
+     * @return Les comptes du réseau dénoté par social, utilisateurs puis
+     * pages, chacun dans l'ordre de leur nom. Le rang d'un compte dans cette
+     * liste est son identifiant dans un instantané.
+     */
+    static List<Vertex> accounts(SocialNetwork social) {
+        List<Vertex> accounts = new ArrayList<Vertex>(
+                social.getUserCount() + social.getPageCount());
+        accounts.addAll(social.getUsers());
+        accounts.addAll(social.getPages());
+        return accounts;
+    }
+
+    /**
+     * @param accounts Des comptes.
+     * @return Une table associant chaque compte de accounts à son rang.
+     */
+    static Map<Vertex, Integer> ids(List<Vertex> accounts) {
+        Map<Vertex, Integer> ids = new HashMap<Vertex, Integer>();
+        for (Vertex x : accounts) {
+            ids.put(x, ids.size());
+        }
+        return ids;
+    }
+
+    /**
+     * @param graph Un graphe.
+     * @param x Un sommet du graphe.
+     * @param ids Les identifiants des sommets du graphe.
+     * @return Les identifiants triés des successeurs du sommet dénoté par x.
+     */
+    static int[] targets(Graph graph, Vertex x, Map<Vertex, Integer> ids) {
+        try {
+            int[] targets = new int[graph.outDegree(x)];
+            int k = 0;
+            for (Vertex y : graph.vertexFrom(x)) {
+                targets[k++] = ids.get(y);
+            }
+            Arrays.sort(targets);
+            return targets;
+        } catch (VertexNotFound e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Écrit l'entier positif dénoté par value en longueur variable.
+     * @param output Le flux à écrire.
+     * @param value L'entier à écrire.
+     */
+    static void writeVarint(DataOutputStream output, int value)
+            throws IOException {
+        int v = value;
+        while ((v & ~VARINT_MASK) != 0) {
+            output.writeByte((v & VARINT_MASK) | VARINT_MORE);
+            v >>>= VARINT_BITS;
+        }
+        output.writeByte(v);
+    }
+
+    /**
+     * Lit un entier positif codé en longueur variable.
+     * @param input Le flux à lire.
+     * @return L'entier lu.
+     */
+    static int readVarint(DataInputStream input) throws IOException {
+        int value = 0;
+        for (int i = 0; i < VARINT_MAX_BYTES; ++i) {
+            int b = input.readUnsignedByte();
+            value |= (b & VARINT_MASK) << (VARINT_BITS * i);
+            if ((b & VARINT_MORE) == 0) {
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    /**
+     * Lit un nombre d'éléments ou une longueur codé en longueur variable.
+     * @param input Le flux à lire.
+     * @param limit La valeur maximale admise.
+     * @return L'entier lu.
+     * @throws IOException Si l'entier lu dépasse limit.
+     */
+    static int readCount(DataInputStream input, long limit)
+            throws IOException {
+        int count = readVarint(input);
+        if (count > limit) {
+            throw new IOException("corrupt snapshot: count " + count
+                    + " exceeds " + limit);
+        }
+        return count;
+    }
+
+    /**
+     * Écrit une colonne d'indices de chaines.
+     * @param output Le flux à écrire.
+     * @param column Les indices à écrire.
+     */
+    private static void writeColumn(DataOutputStream output, int[] column)
+            throws IOException {
+        for (int i : column) {
+            writeVarint(output, i);
+        }
+    }
+
+    /**
+     * Lit une colonne d'indices de chaines.
+     * @param input Le flux à lire.
+     * @param size Le nombre d'indices de la colonne.
+     * @param strings Le nombre de chaines de la table.
+     * @return Les indices lus.
+     */
+    private static int[] readColumn(DataInputStream input, int size,
+                                    int strings) throws IOException {
+        int[] column = new int[size];
+        for (int i = 0; i < size; ++i) {
+            column[i] = readVarint(input);
+            if (column[i] >= strings) {
+                throw new IOException("string index out of range");
+            }
+        }
+        return column;
+    }
+
+    //- TYPES IMBRIQUÉS
+
+    /**
+     * Une table attribuant à chaque chaine distincte un indice, dans l'ordre
+     * de première apparition.
+     */
+    static final class StringTable {
+
+        /**
+         * Les chaines de la table, indexées par leur indice.
+         */
+        final List<String> values = new ArrayList<String>();
+
+        /**
+         * Associe chaque chaine de la table à son indice.
+         */
+        private final Map<String, Integer> indexes =
+                new HashMap<String, Integer>();
+
+        /**
+         * @param s Une chaine.
+         * @return L'indice de la chaine dénotée par s, ajoutée à la table si
+         * elle n'y figurait pas.
+         */
+        int intern(String s) {
+            Integer i = indexes.get(s);
+            if (i == null) {
+                i = values.size();
+                values.add(s);
+                indexes.put(s, i);
+            }
+            return i;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package social;
+
+import graph.Vertex;
+import social.accounts.Page;
+import social.accounts.User;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Les requêtes de consultation d'un réseau social, communes au réseau
+ * modifiable SocialNetwork et à l'instantané projeté en mémoire
+ * MappedSnapshot. Les comptes d'une vue sont identifiés par leur nom : deux
+ * comptes de même nom et de même type sont égaux, quelle que soit la vue qui
+ * les a produits.
+ */
+public interface NetworkView {
+
+    //- REQUÊTES
+
+    /**
+     * @return Le nom de ce réseau social.
+     */
+    String getName();
+
+    /**
+     * @return Le nombre d'utilisateurs de ce réseau social.
+     */
+    int getUserCount();
+
+    /**
+     * @return Le nombre de pages de ce réseau social.
+     */
+    int getPageCount();
+
+    /**
+     * Recherche un compte ayant pour clé (nom pour une page, "nom prénom"
+     * pour un utilisateur) la chaine dénotée par n.
+     * @return Le compte ayant pour clé la chaine dénotée par n, null sinon.
+     */
+    Vertex getVertexByName(String n);
+
+    /**
+     * @pre
+     *      u != null
+     * @return Un ensemble ordonné des utilisateurs suivant l'utilisateur
+     * dénoté par u.
+     */
+    Set<User> getFollowers(User u);
+
+    /**
+     * @pre
+     *      u != null
+     * @return Un ensemble ordonné des utilisateurs suivis par l'utilisateur
+     * dénoté par u.
+     */
+    Set<User> getFollow(User u);
+
+    /**
+     * @pre
+     *      u != null
+     * @return Un ensemble ordonné des pages aimées par l'utilisateur dénoté
+     * par u.
+     */
+    Set<Page> getLikes(User u);
+
+    /**
+     * @pre
+     *      p != null
+     * @return Un ensemble ordonné des utilisateurs aimant la page dénotée par
+     * p.
+     */
+    Set<User> getLikers(Page p);
+
+    /**
+     * @pre
+     *      p != null
+     * @return Un ensemble ordonné des administrateurs de la page dénotée par
+     * p.
+     */
+    Set<User> getAdminsOf(Page p);
+
+    /**
+     * @pre
+     *      u != null
+     * @return Un ensemble ordonné des pages où l'utilisateur dénoté par u est
+     * administrateur.
+     */
+    Set<Page> getPagesOfAdmin(User u);
+
+    /**
+     * Renvoie les degrés de connaissances des comptes situés à au plus
+     * maxDepth relations du compte dénoté par x, en s'arrêtant après
+     * maxResults comptes. Les comptes non atteints sont absents du résultat.
+     * @param x Le compte à partir duquel calculer les degrés.
+     * @param maxDepth Le degré maximal des comptes à atteindre.
+     * @param maxResults Le nombre maximal de comptes à atteindre, x compris.
+     * @return Une map liant chaque compte atteint à son degré de
+     * connaissance, itérée par degré croissant.
+     */
+    Map<Vertex, Integer> degreeKnowledge(Vertex x, int maxDepth,
+                                         int maxResults);
+}
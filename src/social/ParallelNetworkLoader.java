@@ -0,0 +1,820 @@
+package social;
+
+import graph.Arc;
+import graph.Vertex;
+import graph.exceptions.DuplicateArc;
+import graph.exceptions.DuplicateVertex;
+import graph.exceptions.VertexNotFound;
+import util.Assert;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Charge un réseau social depuis le format texte produit par
+ * SocialNetwork.save(), en répartissant la lecture du fichier sur plusieurs
+ * threads. Le fichier est découpé en tranches d'octets alignées sur des fins
+ * de ligne, puis chargé en deux phases :
+ * - les threads lisent chacun des tranches, en extraient les comptes
+ *   déclarés, que le thread appelant ajoute ensuite au réseau dans l'ordre
+ *   du fichier, et découpent leurs lignes d'arcs en noms ; chaque nom n'est
+ *   conservé qu'une fois par tranche, les lignes ne l'étant que sous la
+ *   forme des indices de leurs noms ;
+ * - les threads traduisent ces indices en identifiants de comptes, sans
+ *   relire le fichier, puis trient leurs arcs ; le thread
+ *   appelant fusionne ces tris pour détecter les doublons, puis insère les
+ *   arcs en bloc dans l'ordre du fichier.
+ * Le résultat et les erreurs sont exactement ceux de NetworkLoader : chaque
+ * ligne est située dans le fichier, et seule l'erreur de la première ligne
+ * fautive est signalée, un arc déclaré deux fois ne l'étant qu'en
+ * l'absence de toute autre erreur. Le découpage suppose que le jeu de
+ * caractères par défaut, utilisé par les deux chargeurs, code le saut de
+ * ligne sur un seul octet qui n'apparaît dans aucun autre caractère (UTF-8,
+ * ISO-8859-1...).
+ * Seules la lecture, le découpage des lignes et la résolution des noms sont
+ * parallèles : les ajouts au réseau restent séquentiels, le graphe n'étant
+ * pas partagé entre threads.
+ */
+public class ParallelNetworkLoader {
+
+    //- CONSTANTES
+
+    /**
+     * Le nombre de nanosecondes dans une seconde.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * Le nombre de tranches par thread, pour équilibrer la charge.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * La taille maximale d'une tranche, en octets.
+     */
+    private static final long MAX_CHUNK = 64L << 20;
+
+    /**
+     * La taille des blocs lus pour chercher une fin de ligne.
+     */
+    private static final int SCAN_BLOCK = 8192;
+
+    /**
+     * La capacité initiale des tableaux d'arcs et de positions.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * La position d'une erreur absente.
+     */
+    private static final long NONE = Long.MAX_VALUE;
+
+    //- ATTRIBUTS
+
+    /**
+     * Le nombre de threads utilisés.
+     */
+    private int parallelism;
+
+    /**
+     * Le nombre de lignes lues lors du dernier chargement.
+     */
+    private long lineCount;
+
+    /**
+     * Le nombre d'arcs insérés lors du dernier chargement.
+     */
+    private long arcCount;
+
+    /**
+     * La durée du dernier chargement, en nanosecondes.
+     */
+    private long elapsedNanos;
+
+    //- CONSTRUCTEURS
+
+    /**
+     * Un chargeur utilisant tous les processeurs disponibles.
+     */
+    public ParallelNetworkLoader() {
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    //- REQUÊTES
+
+    /**
+     * @return Le nombre de threads utilisés.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return Le nombre de lignes lues lors du dernier chargement, jusqu'à
+     * la ligne fautive incluse en cas d'erreur.
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return Le nombre d'arcs insérés lors du dernier chargement.
+     */
+    public long getArcCount() {
+        return arcCount;
+    }
+
+    /**
+     * @return La durée du dernier chargement, en nanosecondes.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return Le débit du dernier chargement, en lignes par seconde.
+     */
+    public double getLinesPerSecond() {
+        return perSecond(lineCount);
+    }
+
+    /**
+     * @return Le débit du dernier chargement, en arcs par seconde.
+     */
+    public double getArcsPerSecond() {
+        return perSecond(arcCount);
+    }
+
+    /**
+     * @return Un compte rendu du dernier chargement.
+     */
+    @Override
+    public String toString() {
+        return "[ParallelNetworkLoader] " + parallelism + " threads - "
+                + lineCount + " lines - " + arcCount + " arcs in "
+                + Math.round(elapsedNanos / 1e6) + " ms ("
+                + Math.round(getLinesPerSecond()) + " lines/s - "
+                + Math.round(getArcsPerSecond()) + " arcs/s)";
+    }
+
+    //- COMMANDES
+
+    /**
+     * Fixe le nombre de threads utilisés.
+     * @pre
+     *      parallelism > 0
+     * @param parallelism Le nombre de threads.
+     */
+    public void setParallelism(int parallelism) {
+        Assert.check(parallelism > 0, "parallelism must be positive");
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Charge le réseau social sauvegardé dans le fichier dénoté par f. Le nom
+     * du réseau social correspond au nom du fichier sans son extension.
+     * @pre
+     *      f != null
+     * @param f Le fichier à charger.
+     * @return Le réseau social chargé.
+     */
+    public SocialNetwork load(final File f)
+            throws IOException, VertexNotFound, DuplicateArc, DuplicateVertex {
+        long start = System.nanoTime();
+        lineCount = 0;
+        arcCount = 0;
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            final long[] bounds = split(f);
+            int n = bounds.length - 1;
+            List<Future<Accounts>> parsed = new ArrayList<Future<Accounts>>();
+            for (int i = 0; i < n; ++i) {
+                final int c = i;
+                parsed.add(pool.submit(new Callable<Accounts>() {
+                    @Override
+                    public Accounts call() throws IOException {
+                        return new Accounts(read(f, bounds[c],
+                                bounds[c + 1]));
+                    }
+                }));
+            }
+            final long[] firstLines = new long[n];
+            Accounts[] accounts = new Accounts[n];
+            long lines = 0;
+            for (int i = 0; i < n; ++i) {
+                accounts[i] = get(parsed.get(i));
+                firstLines[i] = lines;
+                lines += accounts[i].lines;
+            }
+            SocialNetwork social = new SocialNetwork(
+                    NetworkLoader.networkName(f));
+            final Registry registry = new Registry();
+            long errorLine = NONE;
+            DuplicateVertex duplicate = null;
+            RuntimeException parseFailure = null;
+            AssertionError parseError = null;
+            merge:
+            for (int i = 0; i < n; ++i) {
+                Accounts a = accounts[i];
+                for (int k = 0; k < a.accounts.size(); ++k) {
+                    Vertex x = a.accounts.get(k);
+                    long line = firstLines[i] + a.positions[k];
+                    try {
+                        social.addVertex(x);
+                    } catch (DuplicateVertex e) {
+                        errorLine = line;
+                        duplicate = e;
+                        break merge;
+                    }
+                    registry.declare(x, line);
+                }
+                if (a.errorLine != NONE) {
+                    errorLine = firstLines[i] + a.errorLine;
+                    parseFailure = a.failure;
+                    parseError = a.error;
+                    break;
+                }
+            }
+            final long limit = errorLine;
+            List<Future<Arcs>> resolved = new ArrayList<Future<Arcs>>();
+            for (int i = 0; i < n && firstLines[i] < limit; ++i) {
+                final Accounts chunk = accounts[i];
+                final long firstLine = firstLines[i];
+                resolved.add(pool.submit(new Callable<Arcs>() {
+                    @Override
+                    public Arcs call() {
+                        return new Arcs(chunk, firstLine, limit, registry);
+                    }
+                }));
+            }
+            accounts = null;
+            Arcs[] arcs = new Arcs[resolved.size()];
+            for (int i = 0; i < arcs.length; ++i) {
+                arcs[i] = get(resolved.get(i));
+                if (arcs[i].missingLine != NONE) {
+                    lineCount = arcs[i].missingLine + 1;
+                    throw new VertexNotFound(arcs[i].missingName);
+                }
+            }
+            if (limit != NONE) {
+                lineCount = limit + 1;
+                if (duplicate != null) {
+                    throw duplicate;
+                }
+                if (parseFailure != null) {
+                    throw parseFailure;
+                }
+                throw parseError;
+            }
+            lineCount = lines;
+            checkDuplicates(arcs, registry.accounts);
+            insertArcs(social, arcs, registry.accounts);
+            return social;
+        } finally {
+            pool.shutdownNow();
+            elapsedNanos = System.nanoTime() - start;
+        }
+    }
+
+    //- OUTILS
+
+    /**
+     * Découpe le fichier dénoté par f en tranches alignées sur des fins de
+     * ligne.
+     * @param f Le fichier à découper.
+     * @return Les bornes des tranches : la tranche i s'étend de l'octet
+     * bounds[i] inclus à l'octet bounds[i + 1] exclu.
+     */
+    private long[] split(File f) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(f, "r");
+        try {
+            long size = file.length();
+            long n = Math.max((long) parallelism * CHUNKS_PER_THREAD,
+                    (size + MAX_CHUNK - 1) / MAX_CHUNK);
+            List<Long> bounds = new ArrayList<Long>();
+            long last = 0;
+            bounds.add(last);
+            for (long i = 1; i < n; ++i) {
+                long p = nextLine(file, Math.max(size * i / n, last + 1));
+                if (p >= size) {
+                    break;
+                }
+                if (p > last) {
+                    bounds.add(p);
+                    last = p;
+                }
+            }
+            bounds.add(size);
+            long[] result = new long[bounds.size()];
+            for (int i = 0; i < result.length; ++i) {
+                result[i] = bounds.get(i);
+            }
+            return result;
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * @param file Un fichier ouvert en lecture.
+     * @param p Une position dans le fichier, strictement positive.
+     * @return La plus petite position au moins égale à p qui suit un saut de
+     * ligne, ou la taille du fichier s'il n'y en a pas.
+     */
+    private static long nextLine(RandomAccessFile file, long p)
+            throws IOException {
+        byte[] block = new byte[SCAN_BLOCK];
+        long position = p - 1;
+        file.seek(position);
+        int read;
+        while ((read = file.read(block)) > 0) {
+            for (int i = 0; i < read; ++i) {
+                if (block[i] == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return file.length();
+    }
+
+    /**
+     * @param f Un fichier.
+     * @param from Le début d'une tranche du fichier.
+     * @param to La fin de la tranche.
+     * @return Le lecteur des lignes de la tranche.
+     */
+    private static BufferedReader read(File f, long from, long to)
+            throws IOException {
+        byte[] bytes = new byte[(int) (to - from)];
+        RandomAccessFile file = new RandomAccessFile(f, "r");
+        try {
+            file.seek(from);
+            file.readFully(bytes);
+        } finally {
+            file.close();
+        }
+        return new BufferedReader(new StringReader(
+                new String(bytes, Charset.defaultCharset())));
+    }
+
+    /**
+     * @param future Le résultat d'une tâche.
+     * @return Le résultat de la tâche, une fois terminée.
+     * @throws IOException Si la tâche a échoué sur une lecture.
+     */
+    private static <T> T get(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new AssertionError(cause);
+        }
+    }
+
+    /**
+     * Vérifie qu'aucun arc n'a été lu deux fois, en fusionnant les clés
+     * triées de chaque tranche. Le doublon signalé est celui de plus petite
+     * clé, comme pour NetworkLoader.
+     * @param arcs Les arcs de chaque tranche.
+     * @param accounts Les comptes déclarés, indexés par identifiant.
+     * @throws DuplicateArc Si un arc a été lu deux fois.
+     */
+    private static void checkDuplicates(Arcs[] arcs, List<Vertex> accounts)
+            throws DuplicateArc {
+        PriorityQueue<Cursor> queue = new PriorityQueue<Cursor>();
+        for (Arcs a : arcs) {
+            if (a.count > 0) {
+                queue.add(new Cursor(a.keys));
+            }
+        }
+        boolean first = true;
+        long previous = 0;
+        while (!queue.isEmpty()) {
+            Cursor c = queue.poll();
+            long key = c.keys[c.next];
+            if (!first && key == previous) {
+                throw NetworkLoader.duplicate(key, accounts);
+            }
+            first = false;
+            previous = key;
+            if (++c.next < c.keys.length) {
+                queue.add(c);
+            }
+        }
+    }
+
+    /**
+     * Insère en bloc dans le réseau les arcs lus, dans l'ordre du fichier.
+     * @param social Le réseau en cours de chargement.
+     * @param arcs Les arcs de chaque tranche.
+     * @param accounts Les comptes déclarés, indexés par identifiant.
+     */
+    private void insertArcs(SocialNetwork social, Arcs[] arcs,
+                            List<Vertex> accounts) throws VertexNotFound {
+        int count = 0;
+        for (Arcs a : arcs) {
+            count += a.count;
+        }
+        List<Arc> list = new ArrayList<Arc>(count);
+        for (Arcs a : arcs) {
+            for (int i = 0; i < a.count; ++i) {
+                Vertex x = accounts.get(a.sources[i]);
+                Vertex y = accounts.get(a.targets[i]);
+                list.add(new Arc(x, y, Relation.between(x, y)));
+            }
+        }
+        try {
+            social.addArcs(list);
+        } catch (DuplicateArc e) {
+            throw new AssertionError(e);
+        }
+        arcCount = count;
+    }
+
+    /**
+     * @param count Un nombre d'éléments traités lors du dernier chargement.
+     * @return Le nombre d'éléments traités par seconde.
+     */
+    private double perSecond(long count) {
+        if (elapsedNanos == 0) {
+            return 0.0;
+        }
+        return count * NANOS_PER_SECOND / elapsedNanos;
+    }
+
+    //- TYPES IMBRIQUÉS
+
+    /**
+     * Les comptes déclarés par une tranche, ses lignes d'arcs découpées en
+     * noms et sa première ligne fautive.
+     */
+    private static final class Accounts {
+
+        /**
+         * Les comptes déclarés, dans l'ordre de la tranche.
+         */
+        private final List<Vertex> accounts = new ArrayList<Vertex>();
+
+        /**
+         * Le numéro de ligne, dans la tranche, de chaque compte déclaré.
+         */
+        private int[] positions = new int[INITIAL_CAPACITY];
+
+        /**
+         * Les noms cités par les lignes d'arcs, chacun une seule fois,
+         * indexés par leur indice dans la tranche.
+         */
+        private final List<String> names = new ArrayList<String>();
+
+        /**
+         * Les indices des noms cités par les lignes d'arcs précédant la
+         * première ligne fautive, ligne après ligne dans l'ordre de la
+         * tranche : le compte de départ de chaque ligne, puis ses comptes
+         * d'arrivée.
+         */
+        private int[] arcNames = new int[INITIAL_CAPACITY];
+
+        /**
+         * Le nombre d'indices de arcNames.
+         */
+        private int nameCount;
+
+        /**
+         * La position, dans arcNames, du premier nom de chaque ligne d'arcs.
+         */
+        private int[] arcStarts = new int[INITIAL_CAPACITY];
+
+        /**
+         * Le numéro de ligne, dans la tranche, de chaque ligne d'arcs.
+         */
+        private int[] arcPositions = new int[INITIAL_CAPACITY];
+
+        /**
+         * Le nombre de lignes d'arcs.
+         */
+        private int arcLineCount;
+
+        /**
+         * Le nombre de lignes de la tranche.
+         */
+        private int lines;
+
+        /**
+         * Le numéro de la première ligne fautive dans la tranche, NONE s'il
+         * n'y en a pas.
+         */
+        private long errorLine = NONE;
+
+        /**
+         * L'erreur de la première ligne fautive, si c'en est une levée par le
+         * découpage des champs.
+         */
+        private RuntimeException failure;
+
+        /**
+         * L'erreur de la première ligne fautive, si c'en est une levée par
+         * NetworkLoader.parseAccount ou par un constructeur de compte.
+         */
+        private AssertionError error;
+
+        /**
+         * Extrait les comptes déclarés par les lignes dénotées par input, et
+         * découpe ses lignes d'arcs, jusqu'à la première ligne fautive.
+         * @param input Les lignes de la tranche.
+         */
+        Accounts(BufferedReader input) throws IOException {
+            Map<String, Integer> indices = new HashMap<String, Integer>();
+            String line;
+            while ((line = input.readLine()) != null) {
+                if (errorLine == NONE) {
+                    try {
+                        Vertex x = NetworkLoader.parseAccount(line);
+                        if (x != null) {
+                            if (accounts.size() == positions.length) {
+                                positions = Arrays.copyOf(positions,
+                                        2 * positions.length);
+                            }
+                            positions[accounts.size()] = lines;
+                            accounts.add(x);
+                        } else {
+                            addArcLine(line, indices);
+                        }
+                    } catch (RuntimeException e) {
+                        errorLine = lines;
+                        failure = e;
+                    } catch (AssertionError e) {
+                        errorLine = lines;
+                        error = e;
+                    }
+                }
+                ++lines;
+            }
+        }
+
+        /**
+         * Découpe la ligne d'arcs dénotée par line, lue à la ligne courante.
+         * @param line La ligne d'arcs.
+         * @param indices Associe chaque nom déjà cité à son indice.
+         */
+        private void addArcLine(String line, Map<String, Integer> indices) {
+            if (arcLineCount == arcStarts.length) {
+                arcStarts = Arrays.copyOf(arcStarts, 2 * arcLineCount);
+                arcPositions = Arrays.copyOf(arcPositions, 2 * arcLineCount);
+            }
+            arcStarts[arcLineCount] = nameCount;
+            arcPositions[arcLineCount] = lines;
+            ++arcLineCount;
+            int end = NetworkLoader.fieldEnd(line, 2);
+            addName(line.substring(2, end), indices);
+            while (end < line.length()) {
+                int from = end + 1;
+                end = NetworkLoader.fieldEnd(line, from);
+                addName(line.substring(from, end), indices);
+            }
+        }
+
+        /**
+         * Ajoute à arcNames l'indice du nom dénoté par name.
+         * @param name Un nom cité par une ligne d'arcs.
+         * @param indices Associe chaque nom déjà cité à son indice.
+         */
+        private void addName(String name, Map<String, Integer> indices) {
+            Integer index = indices.get(name);
+            if (index == null) {
+                index = names.size();
+                indices.put(name, index);
+                names.add(name);
+            }
+            if (nameCount == arcNames.length) {
+                arcNames = Arrays.copyOf(arcNames, 2 * nameCount);
+            }
+            arcNames[nameCount] = index;
+            ++nameCount;
+        }
+    }
+
+    /**
+     * Les comptes déclarés dans l'ordre du fichier et leur identifiant.
+     * Plusieurs comptes de types différents pouvant porter le même nom, un
+     * nom désigne, en une ligne donnée, le dernier compte de ce nom déclaré
+     * avant elle.
+     */
+    private static final class Registry {
+
+        /**
+         * Les comptes déclarés, indexés par identifiant.
+         */
+        private final List<Vertex> accounts = new ArrayList<Vertex>();
+
+        /**
+         * Le numéro de la ligne déclarant chaque compte.
+         */
+        private long[] lines = new long[INITIAL_CAPACITY];
+
+        /**
+         * Associe chaque nom au premier compte le portant.
+         */
+        private final Map<String, Integer> ids =
+                new HashMap<String, Integer>();
+
+        /**
+         * Associe les noms portés par plusieurs comptes aux suivants.
+         */
+        private final Map<String, List<Integer>> redeclared =
+                new HashMap<String, List<Integer>>();
+
+        /**
+         * Enregistre le compte dénoté par x, déclaré à la ligne line.
+         */
+        void declare(Vertex x, long line) {
+            int id = accounts.size();
+            if (id == lines.length) {
+                lines = Arrays.copyOf(lines, 2 * id);
+            }
+            lines[id] = line;
+            accounts.add(x);
+            Integer first = ids.get(x.getName());
+            if (first == null) {
+                ids.put(x.getName(), id);
+            } else {
+                List<Integer> more = redeclared.get(x.getName());
+                if (more == null) {
+                    more = new ArrayList<Integer>();
+                    redeclared.put(x.getName(), more);
+                }
+                more.add(id);
+            }
+        }
+
+        /**
+         * @param name Un nom de compte.
+         * @param line Un numéro de ligne.
+         * @return L'identifiant du compte que désigne name à la ligne line,
+         * -1 si aucun compte de ce nom n'a été déclaré avant elle.
+         */
+        int resolve(String name, long line) {
+            Integer first = ids.get(name);
+            if (first == null || lines[first] >= line) {
+                return -1;
+            }
+            int id = first;
+            List<Integer> more = redeclared.get(name);
+            if (more != null) {
+                for (int m : more) {
+                    if (lines[m] < line) {
+                        id = m;
+                    }
+                }
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Les arcs d'une tranche, traduits en identifiants, et le premier nom
+     * qui n'a pu l'être.
+     */
+    private static final class Arcs {
+
+        /**
+         * Les identifiants des comptes de départ, dans l'ordre de la tranche.
+         */
+        private int[] sources = new int[INITIAL_CAPACITY];
+
+        /**
+         * Les identifiants des comptes d'arrivée, dans l'ordre de la tranche.
+         */
+        private int[] targets = new int[INITIAL_CAPACITY];
+
+        /**
+         * Le nombre d'arcs.
+         */
+        private int count;
+
+        /**
+         * Les clés triées des arcs.
+         */
+        private long[] keys;
+
+        /**
+         * Le numéro, dans le fichier, de la première ligne désignant un
+         * compte non déclaré, NONE s'il n'y en a pas.
+         */
+        private long missingLine = NONE;
+
+        /**
+         * Le nom du compte non déclaré.
+         */
+        private String missingName;
+
+        /**
+         * Traduit les lignes d'arcs découpées par chunk, jusqu'à la ligne
+         * limit exclue ou jusqu'au premier compte non déclaré.
+         * @param chunk Les comptes et les lignes d'arcs de la tranche.
+         * @param firstLine Le numéro de la première ligne de la tranche.
+         * @param limit Le numéro de la première ligne fautive du fichier.
+         * @param registry Les comptes déclarés.
+         */
+        Arcs(Accounts chunk, long firstLine, long limit, Registry registry) {
+            lines:
+            for (int k = 0; k < chunk.arcLineCount; ++k) {
+                long line = firstLine + chunk.arcPositions[k];
+                if (line >= limit) {
+                    break;
+                }
+                int i = chunk.arcStarts[k];
+                int end = k + 1 < chunk.arcLineCount ? chunk.arcStarts[k + 1]
+                        : chunk.nameCount;
+                String name = chunk.names.get(chunk.arcNames[i]);
+                int source = registry.resolve(name, line);
+                while (source >= 0 && ++i < end) {
+                    name = chunk.names.get(chunk.arcNames[i]);
+                    int target = registry.resolve(name, line);
+                    if (target < 0) {
+                        source = -1;
+                    } else {
+                        add(source, target);
+                    }
+                }
+                if (source < 0) {
+                    missingLine = line;
+                    missingName = name;
+                    break lines;
+                }
+            }
+            keys = new long[count];
+            for (int i = 0; i < count; ++i) {
+                keys[i] = NetworkLoader.key(sources[i], targets[i]);
+            }
+            Arrays.sort(keys);
+        }
+
+        /**
+         * Accumule l'arc reliant les comptes identifiés par source et target.
+         */
+        private void add(int source, int target) {
+            if (count == sources.length) {
+                sources = Arrays.copyOf(sources, 2 * count);
+                targets = Arrays.copyOf(targets, 2 * count);
+            }
+            sources[count] = source;
+            targets[count] = target;
+            ++count;
+        }
+    }
+
+    /**
+     * Un curseur sur les clés triées d'une tranche, ordonné par sa clé
+     * courante.
+     */
+    private static final class Cursor implements Comparable<Cursor> {
+
+        /**
+         * Les clés triées.
+         */
+        private final long[] keys;
+
+        /**
+         * La position de la clé courante.
+         */
+        private int next;
+
+        Cursor(long[] keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public int compareTo(Cursor o) {
+            return Long.compare(keys[next], o.keys[o.next]);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package social;
+
+import graph.ArcLabel;
+import graph.Vertex;
+import social.accounts.Page;
+import social.accounts.User;
+
+/**
+ * La nature d'une relation entre deux comptes du réseau social, portée en
+ * étiquette par l'arc qui la représente dans le graphe.
+ */
+public enum Relation implements ArcLabel {
+
+    /**
+     * Un utilisateur suit un autre utilisateur.
+     */
+    FOLLOW,
+
+    /**
+     * Un utilisateur aime une page.
+     */
+    LIKE,
+
+    /**
+     * Une page est administrée par un utilisateur.
+     */
+    ADMIN;
+
+    /**
+     * @param x Le compte de départ de la relation.
+     * @param y Le compte d'arrivée de la relation.
+     * @return La relation reliant le compte dénoté par x au compte dénoté par
+     * y, déduite de leurs types, ou null si aucune relation ne peut relier
+     * ces deux comptes.
+     */
+    public static Relation between(Vertex x, Vertex y) {
+        if (x instanceof User && y instanceof User) {
+            return FOLLOW;
+        }
+        if (x instanceof User && y instanceof Page) {
+            return LIKE;
+        }
+        if (x instanceof Page && y instanceof User) {
+            return ADMIN;
+        }
+        return null;
+    }
+}
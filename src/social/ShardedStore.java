@@ -0,0 +1,562 @@
+package social;
+
+import graph.Graph;
+import graph.Vertex;
+import graph.exceptions.DuplicateArc;
+import graph.exceptions.DuplicateVertex;
+import graph.exceptions.VertexNotFound;
+import util.Assert;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Enregistre un réseau social au format texte de SocialNetwork.save(),
+ * réparti en fragments dont seuls ceux modifiés depuis le dernier
+ * enregistrement sont réécrits.
+ * Chaque compte appartient au fragment désigné par le hachage de son nom.
+ * Un fragment occupe deux fichiers : ses comptes (lignes U: et P:) et leurs
+ * relations sortantes (lignes A:). Créer ou supprimer un compte marque le
+ * fichier des comptes de son fragment ; ajouter ou retirer une relation
+ * marque le fichier des relations du fragment de son compte de départ ;
+ * supprimer un compte marque aussi les fichiers des relations des fragments
+ * de ses prédécesseurs. Le coût d'un enregistrement est ainsi proportionnel
+ * à la taille des fragments modifiés.
+ * Le manifeste base.manifest énumère les fichiers courants de chaque
+ * fragment. Les fichiers réécrits portent le numéro de la nouvelle
+ * génération et le manifeste est remplacé atomiquement après eux : une
+ * interruption laisse intact l'enregistrement précédent. Un nouvel
+ * enregistrement sous le chemin d'un manifeste existant en reprend la
+ * génération et les fichiers, qu'il remplace puis supprime comme ceux d'un
+ * enregistrement précédent. Le chargement lit
+ * les fichiers des comptes de tous les fragments, puis ceux des relations,
+ * via NetworkLoader.
+ */
+public final class ShardedStore {
+
+    //- CONSTANTES
+
+    /**
+     * L'extension du manifeste.
+     */
+    public static final String MANIFEST_EXTENSION = ".manifest";
+
+    /**
+     * Le nombre de fragments par défaut.
+     */
+    public static final int DEFAULT_SHARDS = 64;
+
+    /**
+     * Le préfixe de la ligne du manifeste donnant le nombre de fragments.
+     */
+    private static final String SHARDS = "S:";
+
+    /**
+     * Le préfixe de la ligne du manifeste donnant la génération.
+     */
+    private static final String GENERATION = "G:";
+
+    /**
+     * Le préfixe des lignes du manifeste désignant un fichier de comptes.
+     */
+    private static final String VERTICES = "V:";
+
+    /**
+     * Le préfixe des lignes du manifeste désignant un fichier de relations.
+     */
+    private static final String ARCS = "A:";
+
+    /**
+     * L'extension des fichiers de comptes.
+     */
+    private static final String VERTICES_EXTENSION = ".v";
+
+    /**
+     * L'extension des fichiers de relations.
+     */
+    private static final String ARCS_EXTENSION = ".a";
+
+    //- ATTRIBUTS
+
+    /**
+     * Le réseau enregistré.
+     */
+    private final SocialNetwork social;
+
+    /**
+     * Le répertoire des fichiers.
+     */
+    private final File directory;
+
+    /**
+     * Le nom commun des fichiers.
+     */
+    private final String name;
+
+    /**
+     * Les comptes de chaque fragment.
+     */
+    private final List<Set<Vertex>> members;
+
+    /**
+     * Les fichiers de comptes courants de chaque fragment, null pour un
+     * fragment sans compte.
+     */
+    private final String[] vertexFiles;
+
+    /**
+     * Les fichiers de relations courants de chaque fragment, null pour un
+     * fragment sans relation.
+     */
+    private final String[] arcFiles;
+
+    /**
+     * Les fragments dont le fichier de comptes est à réécrire.
+     */
+    private final BitSet dirtyVertices;
+
+    /**
+     * Les fragments dont le fichier de relations est à réécrire.
+     */
+    private final BitSet dirtyArcs;
+
+    /**
+     * La génération du dernier enregistrement.
+     */
+    private int generation;
+
+    /**
+     * Le nombre de fichiers écrits lors du dernier enregistrement.
+     */
+    private int lastWrittenFiles;
+
+    //- CONSTRUCTEURS
+
+    /**
+     * Un enregistrement fragmenté du réseau dénoté par social, sans fichier
+     * ni fragment à écrire.
+     */
+    private ShardedStore(SocialNetwork social, File directory, String name,
+                         int shards) {
+        Assert.check(social != null, "social is null");
+        Assert.check(shards > 0, "shards must be positive");
+        this.social = social;
+        this.directory = directory;
+        this.name = name;
+        this.members = new ArrayList<Set<Vertex>>(shards);
+        for (int k = 0; k < shards; ++k) {
+            members.add(new HashSet<Vertex>());
+        }
+        for (Vertex x : social.getUsers()) {
+            members.get(shardOf(x)).add(x);
+        }
+        for (Vertex x : social.getPages()) {
+            members.get(shardOf(x)).add(x);
+        }
+        this.vertexFiles = new String[shards];
+        this.arcFiles = new String[shards];
+        this.dirtyVertices = new BitSet(shards);
+        this.dirtyArcs = new BitSet(shards);
+    }
+
+    //- REQUÊTES
+
+    /**
+     * @return Le nombre de fragments.
+     */
+    public int getShardCount() {
+        return members.size();
+    }
+
+    /**
+     * @return La génération du dernier enregistrement, 0 si aucun n'a eu
+     * lieu.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return Le nombre de fichiers à réécrire au prochain enregistrement.
+     */
+    public int getDirtyFileCount() {
+        return dirtyVertices.cardinality() + dirtyArcs.cardinality();
+    }
+
+    /**
+     * @return Le nombre de fichiers écrits lors du dernier enregistrement.
+     */
+    public int getLastWrittenFileCount() {
+        return lastWrittenFiles;
+    }
+
+    /**
+     * @return Le manifeste de cet enregistrement.
+     */
+    public File getManifest() {
+        return new File(directory, name + MANIFEST_EXTENSION);
+    }
+
+    //- COMMANDES
+
+    /**
+     * Crée un enregistrement fragmenté du réseau dénoté par social sous le
+     * chemin base, dont tous les fragments sont à écrire. Si un manifeste
+     * existe déjà sous ce chemin, le nouvel enregistrement en reprend le
+     * nombre de fragments, la génération et les fichiers : le premier
+     * enregistrement écrit la génération suivante, remplace atomiquement le
+     * manifeste puis supprime les fichiers qu'il désignait.
+     * @pre
+     *      social != null
+     *      base != null
+     *      shards > 0
+     * @param social Le réseau à enregistrer.
+     * @param base Le chemin commun des fichiers, sans extension.
+     * @param shards Le nombre de fragments, si aucun manifeste n'existe.
+     * @return L'enregistrement créé.
+     * @throws IOException Si le manifeste existant n'a pu être lu.
+     */
+    static ShardedStore create(SocialNetwork social, File base, int shards)
+            throws IOException {
+        Assert.check(base != null, "base is null");
+        File directory = base.getAbsoluteFile().getParentFile();
+        String name = base.getName();
+        File f = new File(directory, name + MANIFEST_EXTENSION);
+        Manifest manifest = f.exists() ? readManifest(f) : null;
+        ShardedStore store = new ShardedStore(social, directory, name,
+                manifest != null ? manifest.shards : shards);
+        if (manifest != null) {
+            store.restore(manifest);
+        }
+        store.dirtyVertices.set(0, store.getShardCount());
+        store.dirtyArcs.set(0, store.getShardCount());
+        return store;
+    }
+
+    /**
+     * Charge le réseau social enregistré sous le manifeste dénoté par f. Le
+     * nom du réseau social correspond au nom du manifeste sans son
+     * extension. Les enregistrements suivants du réseau via
+     * SocialNetwork.saveIncremental ne réécrivent que les fragments modifiés
+     * depuis ce chargement.
+     * @pre
+     *      f != null
+     * @param f Le manifeste.
+     * @return Le réseau social chargé.
+     */
+    public static SocialNetwork load(File f)
+            throws IOException, VertexNotFound, DuplicateArc, DuplicateVertex {
+        File directory = f.getAbsoluteFile().getParentFile();
+        String name = NetworkLoader.networkName(f);
+        Manifest manifest = readManifest(f);
+        List<InputStream> streams = new ArrayList<InputStream>();
+        SocialNetwork social;
+        try {
+            for (String file : manifest.vertices) {
+                streams.add(new FileInputStream(new File(directory, file)));
+            }
+            for (String file : manifest.arcs) {
+                streams.add(new FileInputStream(new File(directory, file)));
+            }
+            social = new NetworkLoader().load(name, new BufferedReader(
+                    new InputStreamReader(new SequenceInputStream(
+                            Collections.enumeration(streams)))));
+        } finally {
+            for (InputStream s : streams) {
+                s.close();
+            }
+        }
+        ShardedStore store = new ShardedStore(social, directory, name,
+                manifest.shards);
+        store.restore(manifest);
+        social.attachStore(store);
+        return social;
+    }
+
+    /**
+     * Réécrit les fichiers des fragments modifiés depuis le dernier
+     * enregistrement, puis le manifeste. Les fichiers remplacés sont
+     * ensuite supprimés.
+     * @throws IOException Si un fichier n'a pu être écrit, l'enregistrement
+     * précédent restant alors intact, ou si un fichier remplacé n'a pu être
+     * supprimé, l'enregistrement étant alors complet.
+     */
+    public void save() throws IOException {
+        int next = generation + 1;
+        String[] vertices = vertexFiles.clone();
+        String[] arcs = arcFiles.clone();
+        List<File> obsolete = new ArrayList<File>();
+        int written = 0;
+        for (int k = dirtyVertices.nextSetBit(0); k >= 0;
+                k = dirtyVertices.nextSetBit(k + 1)) {
+            vertices[k] = writeShard(k, next, false);
+            obsolete(obsolete, vertexFiles[k]);
+            ++written;
+        }
+        for (int k = dirtyArcs.nextSetBit(0); k >= 0;
+                k = dirtyArcs.nextSetBit(k + 1)) {
+            arcs[k] = writeShard(k, next, true);
+            obsolete(obsolete, arcFiles[k]);
+            ++written;
+        }
+        writeManifest(next, vertices, arcs);
+        System.arraycopy(vertices, 0, vertexFiles, 0, vertices.length);
+        System.arraycopy(arcs, 0, arcFiles, 0, arcs.length);
+        generation = next;
+        lastWrittenFiles = written;
+        dirtyVertices.clear();
+        dirtyArcs.clear();
+        File undeleted = null;
+        for (File f : obsolete) {
+            if (!f.delete() && f.exists() && undeleted == null) {
+                undeleted = f;
+            }
+        }
+        if (undeleted != null) {
+            throw new IOException("cannot delete " + undeleted);
+        }
+    }
+
+    /**
+     * Marque le fragment du compte dénoté par x après sa création.
+     * @param x Le compte créé.
+     */
+    void vertexAdded(Vertex x) {
+        int k = shardOf(x);
+        members.get(k).add(x);
+        dirtyVertices.set(k);
+    }
+
+    /**
+     * Marque les fragments concernés par la suppression du compte dénoté par
+     * x, avant qu'elle ait lieu.
+     * @param x Le compte à supprimer.
+     */
+    void vertexRemoving(Vertex x) {
+        int k = shardOf(x);
+        members.get(k).remove(x);
+        dirtyVertices.set(k);
+        dirtyArcs.set(k);
+        for (Vertex y : social.getGraph().vertexTo(x)) {
+            dirtyArcs.set(shardOf(y));
+        }
+    }
+
+    /**
+     * Marque le fragment du compte de départ d'une relation ajoutée ou
+     * retirée.
+     * @param x Le compte de départ de la relation.
+     */
+    void arcChanged(Vertex x) {
+        dirtyArcs.set(shardOf(x));
+    }
+
+    //- OUTILS
+
+    /**
+     * @param x Un compte.
+     * @return Le fragment du compte dénoté par x.
+     */
+    private int shardOf(Vertex x) {
+        return (x.getName().hashCode() & Integer.MAX_VALUE) % members.size();
+    }
+
+    /**
+     * @param file Le nom d'un fichier de fragment.
+     * @return Le fragment du fichier nommé file.
+     */
+    private static int shardOf(String file) {
+        int end = file.lastIndexOf('.');
+        int start = file.lastIndexOf('.', end - 1);
+        return Integer.parseInt(file.substring(start + 1, end));
+    }
+
+    /**
+     * Reprend la génération et les fichiers du manifeste dénoté par
+     * manifest.
+     * @param manifest Un manifeste de même nombre de fragments.
+     */
+    private void restore(Manifest manifest) {
+        generation = manifest.generation;
+        for (String file : manifest.vertices) {
+            vertexFiles[shardOf(file)] = file;
+        }
+        for (String file : manifest.arcs) {
+            arcFiles[shardOf(file)] = file;
+        }
+    }
+
+    /**
+     * Lit le manifeste dénoté par f.
+     * @param f Le manifeste.
+     * @return Son contenu.
+     * @throws IOException Si f n'a pu être lu ou n'est pas un manifeste.
+     */
+    private static Manifest readManifest(File f) throws IOException {
+        Manifest manifest = new Manifest();
+        BufferedReader input = new BufferedReader(new FileReader(f));
+        try {
+            String line;
+            while ((line = input.readLine()) != null) {
+                if (line.startsWith(SHARDS)) {
+                    manifest.shards = Integer.parseInt(
+                            line.substring(SHARDS.length()));
+                } else if (line.startsWith(GENERATION)) {
+                    manifest.generation = Integer.parseInt(
+                            line.substring(GENERATION.length()));
+                } else if (line.startsWith(VERTICES)) {
+                    manifest.vertices.add(line.substring(VERTICES.length()));
+                } else if (line.startsWith(ARCS)) {
+                    manifest.arcs.add(line.substring(ARCS.length()));
+                } else {
+                    throw new IOException("Unrecognized: \"" + line + "\"");
+                }
+            }
+        } finally {
+            input.close();
+        }
+        if (manifest.shards <= 0) {
+            throw new IOException("not a manifest: " + f);
+        }
+        return manifest;
+    }
+
+    /**
+     * Ajoute à obsolete le fichier nommé file, s'il existe.
+     * @param obsolete Les fichiers à supprimer.
+     * @param file Le nom d'un fichier remplacé, ou null.
+     */
+    private void obsolete(List<File> obsolete, String file) {
+        if (file != null) {
+            obsolete.add(new File(directory, file));
+        }
+    }
+
+    /**
+     * Écrit le fichier des comptes ou des relations du fragment k.
+     * @param k Un fragment.
+     * @param gen La génération du fichier.
+     * @param arcs true pour écrire les relations, false pour les comptes.
+     * @return Le nom du fichier écrit, null si le fragment ne contient
+     * aucune ligne de ce type.
+     */
+    private String writeShard(int k, int gen, boolean arcs)
+            throws IOException {
+        Set<Vertex> accounts = members.get(k);
+        String file = name + "." + gen + "." + k
+                + (arcs ? ARCS_EXTENSION : VERTICES_EXTENSION);
+        Graph graph = social.getGraph();
+        List<String> lines = new ArrayList<String>();
+        for (Vertex x : accounts) {
+            if (!arcs) {
+                lines.add(x.serialize());
+            } else {
+                Set<Vertex> out = graph.vertexFrom(x);
+                if (!out.isEmpty()) {
+                    lines.add(SocialNetwork.arcLine(x, out));
+                }
+            }
+        }
+        if (lines.isEmpty()) {
+            return null;
+        }
+        write(new File(directory, file), lines);
+        return file;
+    }
+
+    /**
+     * Remplace atomiquement le manifeste par celui de la génération gen.
+     * @param gen La génération du manifeste.
+     * @param vertices Les fichiers de comptes de chaque fragment.
+     * @param arcs Les fichiers de relations de chaque fragment.
+     */
+    private void writeManifest(int gen, String[] vertices, String[] arcs)
+            throws IOException {
+        List<String> lines = new ArrayList<String>();
+        lines.add(SHARDS + members.size());
+        lines.add(GENERATION + gen);
+        for (String file : vertices) {
+            if (file != null) {
+                lines.add(VERTICES + file);
+            }
+        }
+        for (String file : arcs) {
+            if (file != null) {
+                lines.add(ARCS + file);
+            }
+        }
+        File manifest = getManifest();
+        File tmp = new File(directory, manifest.getName() + ".tmp");
+        write(tmp, lines);
+        Files.move(tmp.toPath(), manifest.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Écrit les lignes dénotées par lines dans le fichier dénoté par f, et
+     * force leur écriture sur disque.
+     * @param f Le fichier à écrire.
+     * @param lines Les lignes à écrire.
+     */
+    private static void write(File f, List<String> lines) throws IOException {
+        FileOutputStream file = new FileOutputStream(f);
+        try {
+            BufferedWriter output = new BufferedWriter(
+                    new OutputStreamWriter(file));
+            for (String line : lines) {
+                output.write(line);
+                output.newLine();
+            }
+            output.flush();
+            file.getFD().sync();
+        } finally {
+            file.close();
+        }
+    }
+
+    //- TYPES IMBRIQUÉS
+
+    /**
+     * Le contenu d'un manifeste.
+     */
+    private static final class Manifest {
+
+        /**
+         * Le nombre de fragments.
+         */
+        private int shards;
+
+        /**
+         * La génération.
+         */
+        private int generation;
+
+        /**
+         * Les fichiers de comptes.
+         */
+        private final List<String> vertices = new ArrayList<String>();
+
+        /**
+         * Les fichiers de relations.
+         */
+        private final List<String> arcs = new ArrayList<String>();
+    }
+}
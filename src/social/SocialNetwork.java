@@ -1,7 +1,12 @@
 package social;
 
-import graph.StdGraph;
+import graph.AdjacencyGraph;
+import graph.Arc;
+import graph.CsrGraph;
 import graph.Graph;
+import graph.IncrementalPageRank;
+import graph.PageRank;
+import graph.PersonalizedPageRank;
 import graph.Vertex;
 import graph.exceptions.ArcNotFound;
 import graph.exceptions.VertexNotFound;
@@ -11,28 +16,52 @@ import social.accounts.Page;
 import social.accounts.User;
 import util.Assert;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Observable;
 import java.util.Set;
+import java.util.SortedSet;
 import java.util.TreeSet;
 
 /**
  * Représente le système de réseau social avec un graphe.
  */
-public class SocialNetwork extends Observable {
+public class SocialNetwork extends Observable implements NetworkView {
+
+    // CONSTANTES
+
+    /**
+     * La taille, en octets, à partir de laquelle init charge un fichier
+     * texte avec ParallelNetworkLoader lorsque plusieurs processeurs sont
+     * disponibles.
+     */
+    public static final long PARALLEL_LOAD_THRESHOLD = 16L << 20;
+
+    /**
+     * Le résidu maximal toléré par le PageRank incrémental.
+     */
+    private static final double INCREMENTAL_TOLERANCE = 1e-7;
+
+    /**
+     * Le résidu par arc toléré par le PageRank personnalisé des
+     * recommandations.
+     */
+    private static final double RECOMMENDATION_EPSILON = 1e-5;
+
+    /**
+     * Le nombre maximal de poussées du PageRank personnalisé des
+     * recommandations.
+     */
+    private static final int RECOMMENDATION_BUDGET = 50000;
 
     // ATTRIBUT
 
@@ -46,6 +75,44 @@ public class SocialNetwork extends Observable {
      */
     private final String name;
 
+    /**
+     * Le classement PageRank maintenu au fil des modifications, ou null si le
+     * mode incrémental n'est pas activé.
+     */
+    private IncrementalPageRank liveRank;
+
+    /**
+     * Le journal où sont consignées les modifications de ce réseau, ou null
+     * si elles ne sont pas journalisées.
+     */
+    private MutationLog log;
+
+    /**
+     * L'enregistrement fragmenté de ce réseau, ou null si saveIncremental
+     * n'a jamais été appelée.
+     */
+    private ShardedStore store;
+
+    /**
+     * Les utilisateurs de ce réseau social, triés.
+     */
+    private final SortedSet<User> users;
+
+    /**
+     * Les pages de ce réseau social, triées.
+     */
+    private final SortedSet<Page> pages;
+
+    /**
+     * Les statistiques d'âge des utilisateurs de ce réseau social.
+     */
+    private final AgeStatistics ages;
+
+    /**
+     * La relation d'administration de ce réseau social, dans les deux sens.
+     */
+    private final AdminIndex admins;
+
     // CONSTRUCTEUR
 
     /**
@@ -59,9 +126,36 @@ public class SocialNetwork extends Observable {
      *          name.charAt(i) == this.name.charAt(i)
      */
     public SocialNetwork(String name) {
+        this(name, new AdjacencyGraph());
+    }
+
+    /**
+     * Crée un nouveau réseau social portant le nom dénoté par name et
+     * reposant sur le graphe dénoté par graph.
+     * @pre
+     *      name != null
+     *      graph != null
+     * @post
+     *      getName() != null
+     *      for 0 <= i < name.length():
+     *          name.charAt(i) == this.name.charAt(i)
+     */
+    public SocialNetwork(String name, Graph graph) {
         Assert.check(name != null, "name is null");
-        this.graph = new StdGraph();
+        Assert.check(graph != null, "graph is null");
+        this.graph = graph;
         this.name = name;
+        this.users = new TreeSet<User>();
+        this.pages = new TreeSet<Page>();
+        this.ages = new AgeStatistics();
+        this.admins = new AdminIndex();
+        for (Vertex x : graph.vertexSet()) {
+            index(x);
+        }
+        labelArcs();
+        for (Arc a : graph.arcSet()) {
+            indexArc(a.getFrom(), a.getTo());
+        }
     }
 
     // REQUETES
@@ -69,48 +163,68 @@ public class SocialNetwork extends Observable {
     /**
      * @return Le nom de ce réseau social.
      */
+    @Override
     public String getName() {
         return name;
     }
 
     /**
-     * @return Un ensemble ordonné des utilisateurs de ce réseau social.
+     * @return Le graphe associé à ce réseau social. Il ne doit être modifié
+     * qu'au travers de ce réseau, sous peine de désynchroniser ses index.
+     */
+    Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return Le journal où sont consignées les modifications de ce réseau
+     * social, ou null si elles ne sont pas journalisées (voir recover et
+     * startLog).
+     */
+    public MutationLog getLog() {
+        return log;
+    }
+
+    /**
+     * @return L'enregistrement fragmenté de ce réseau social, ou null si
+     * saveIncremental n'a jamais été appelée et que le réseau n'a pas été
+     * chargé depuis un manifeste.
+     */
+    public ShardedStore getStore() {
+        return store;
+    }
+
+    /**
+     * @return Une vue non modifiable et ordonnée sur les utilisateurs de ce
+     * réseau social. Elle reflète les modifications ultérieures du réseau, et
+     * ne doit donc pas être parcourue pendant que celui-ci est modifié.
      */
     public Set<User> getUsers() {
-        Set<User> result = new TreeSet<User>();
-        for (Vertex s : graph.vertexSet()) {
-            if (s instanceof User) {
-                result.add((User) s);
-            }
-        }
-        return result;
+        return Collections.unmodifiableSortedSet(users);
     }
 
     /**
      * @return Le nombre d'utilisateurs de ce réseau social.
      */
+    @Override
     public int getUserCount() {
-        return getUsers().size();
+        return users.size();
     }
 
     /**
-     * @return Un ensemble ordonné des pages de ce réseau social.
+     * @return Une vue non modifiable et ordonnée sur les pages de ce réseau
+     * social (voir getUsers).
      */
     public Set<Page> getPages() {
-        Set<Page> result = new TreeSet<Page>();
-        for (Vertex s : graph.vertexSet()) {
-            if (s instanceof Page) {
-                result.add((Page) s);
-            }
-        }
-        return result;
+        return Collections.unmodifiableSortedSet(pages);
     }
 
     /**
      * @return Le nombre de pages de ce réseau social.
      */
+    @Override
     public int getPageCount() {
-        return getPages().size();
+        return pages.size();
     }
 
     /**
@@ -120,29 +234,31 @@ public class SocialNetwork extends Observable {
      * l'unité la plus proche.
      */
     public int getAverageAge() {
-        Set<User> users = getUsers();
-        Assert.check(users.size() > 0, "No users are registered.");
-        int sum = 0;
-        for (User u : users) {
-            sum += u.getAge();
-        }
-        return (int) Math.round(sum / (double) users.size());
+        return (int) Math.round(ages.average());
+    }
+
+    /**
+     * @return Les statistiques d'âge (moyenne, extrêmes, médiane, centiles et
+     * histogramme) des utilisateurs de ce réseau social, maintenues au fil
+     * des inscriptions et des suppressions.
+     */
+    public AgeStatistics getAgeStatistics() {
+        return ages;
     }
 
     /**
-     * @return Un ensemble ordonnée des administrateurs de pages sur ce réseau
-     * social.
+     * @return Une vue non modifiable et ordonnée sur les administrateurs de
+     * pages de ce réseau social (voir getUsers).
      */
     public Set<User> getAdmins() {
-        Set<User> result = new TreeSet<User>();
-        for (User u : getUsers()) {
-            for (Vertex v : graph.vertexTo(u)) {
-                if (v instanceof Page) {
-                    result.add(u);
-                }
-            }
-        }
-        return result;
+        return admins.admins();
+    }
+
+    /**
+     * @return Le nombre d'utilisateurs administrant au moins une page.
+     */
+    public int getAdminCount() {
+        return admins.adminCount();
     }
 
     /**
@@ -151,15 +267,10 @@ public class SocialNetwork extends Observable {
      * @pre
      *      p != null
      */
+    @Override
     public Set<User> getAdminsOf(Page p) {
         Assert.check(p != null, "p is null");
-        Set<User> result = new TreeSet<User>();
-        for (Vertex v : graph.vertexFrom(p)) {
-            if (v instanceof User) {
-                result.add((User) v);
-            }
-        }
-        return result;
+        return admins.adminsOf(p);
     }
 
     /**
@@ -168,13 +279,15 @@ public class SocialNetwork extends Observable {
      * @pre
      *      p != null
      */
+    @Override
     public Set<User> getLikers(Page p) {
         Assert.check(p != null, "p is null");
         Set<User> result = new TreeSet<User>();
-        for (Vertex v : graph.vertexTo(p)) {
-            if (v instanceof User) {
-                result.add((User) v);
-            }
+        if (!graph.containsVertex(p)) {
+            return result;
+        }
+        for (Vertex v : graph.vertexTo(p, Relation.LIKE)) {
+            result.add((User) v);
         }
         return result;
     }
@@ -185,13 +298,15 @@ public class SocialNetwork extends Observable {
      * @pre
      *      u != null
      */
+    @Override
     public Set<User> getFollowers(User u) {
         Assert.check(u != null, "u is null");
         Set<User> result = new TreeSet<User>();
-        for (Vertex v : graph.vertexTo(u)) {
-            if (v instanceof User) {
-                result.add((User) v);
-            }
+        if (!graph.containsVertex(u)) {
+            return result;
+        }
+        for (Vertex v : graph.vertexTo(u, Relation.FOLLOW)) {
+            result.add((User) v);
         }
         return result;
     }
@@ -202,13 +317,15 @@ public class SocialNetwork extends Observable {
      * @pre
      *      u != null
      */
+    @Override
     public Set<User> getFollow(User u) {
         Assert.check(u != null, "u is null");
         Set<User> result = new TreeSet<User>();
-        for (Vertex v : graph.vertexFrom(u)) {
-            if (v instanceof User) {
-                result.add((User) v);
-            }
+        if (!graph.containsVertex(u)) {
+            return result;
+        }
+        for (Vertex v : graph.vertexFrom(u, Relation.FOLLOW)) {
+            result.add((User) v);
         }
         return result;
     }
@@ -219,13 +336,15 @@ public class SocialNetwork extends Observable {
      * @pre
      *      u != null
      */
+    @Override
     public Set<Page> getLikes(User u) {
         Assert.check(u != null, "u is null");
         Set<Page> result = new TreeSet<Page>();
-        for (Vertex v : graph.vertexFrom(u)) {
-            if (v instanceof Page) {
-                result.add((Page) v);
-            }
+        if (!graph.containsVertex(u)) {
+            return result;
+        }
+        for (Vertex v : graph.vertexFrom(u, Relation.LIKE)) {
+            result.add((Page) v);
         }
         return result;
     }
@@ -236,15 +355,10 @@ public class SocialNetwork extends Observable {
      * @pre
      *      u != null
      */
+    @Override
     public Set<Page> getPagesOfAdmin(User u) {
         Assert.check(u != null, "u is null");
-        Set<Page> result = new TreeSet<Page>();
-        for (Vertex v : graph.vertexTo(u)) {
-            if (v instanceof Page) {
-                result.add((Page) v);
-            }
-        }
-        return result;
+        return admins.pagesOf(u);
     }
 
     /**
@@ -252,6 +366,7 @@ public class SocialNetwork extends Observable {
      * "nom prénom" pour un utilisateur) la chaine dénotée par n.
      * @return Le sommet ayant pour clé la chaine dénoté par n, null sinon.
      */
+    @Override
     public Vertex getVertexByName(String n) {
         return graph.findVertexByName(n);
     }
@@ -265,7 +380,7 @@ public class SocialNetwork extends Observable {
     public void createUser(String lastname, String firstname, int age)
             throws DuplicateVertex {
         User u = new User(lastname, firstname, age);
-        graph.addVertex(u);
+        addVertex(u);
     }
 
     /**
@@ -273,7 +388,7 @@ public class SocialNetwork extends Observable {
      */
     public void createPage(String name) throws DuplicateVertex {
         Page p = new Page(name);
-        graph.addVertex(p);
+        addVertex(p);
     }
 
     /**
@@ -286,7 +401,7 @@ public class SocialNetwork extends Observable {
     public void removeUser(String name) throws VertexNotFound {
         Assert.check(name != null,
                 "name is null");
-        graph.removeVertex(getVertexByName(name));
+        removeVertex(getVertexByName(name));
     }
 
     /**
@@ -299,7 +414,7 @@ public class SocialNetwork extends Observable {
     public void removePage(String name) throws VertexNotFound {
         Assert.check(name != null,
                 "name is null");
-        graph.removeVertex(getVertexByName(name));
+        removeVertex(getVertexByName(name));
     }
 
     /**
@@ -313,7 +428,7 @@ public class SocialNetwork extends Observable {
     public void like(User u, Page p) throws DuplicateArc, VertexNotFound {
         Assert.check(u != null, "u is null");
         Assert.check(p != null, "p is null");
-        graph.createArc(u, p);
+        addArc(u, p);
     }
 
     /**
@@ -322,7 +437,7 @@ public class SocialNetwork extends Observable {
     public void removeLike(User u, Page p) throws ArcNotFound, VertexNotFound {
         Assert.check(u != null, "u is null");
         Assert.check(p != null, "p is null");
-        graph.deleteArc(u, p);
+        removeArc(u, p);
     }
 
     /**
@@ -337,7 +452,7 @@ public class SocialNetwork extends Observable {
     public void addAdmin(Page p, User u) throws VertexNotFound, DuplicateArc {
         Assert.check(u != null, "u is null");
         Assert.check(p != null, "p is null");
-        graph.createArc(p, u);
+        addArc(p, u);
     }
 
     /**
@@ -349,7 +464,7 @@ public class SocialNetwork extends Observable {
     public void removeAdmin(Page p, User u) throws ArcNotFound, VertexNotFound {
         Assert.check(u != null, "u is null");
         Assert.check(p != null, "p is null");
-        graph.deleteArc(p, u);
+        removeArc(p, u);
     }
 
     /**
@@ -364,7 +479,7 @@ public class SocialNetwork extends Observable {
     public void follow(User u, User v) throws VertexNotFound, DuplicateArc {
         Assert.check(u != null, "u is null");
         Assert.check(v != null, "v is null");
-        graph.createArc(u, v);
+        addArc(u, v);
     }
 
     /**
@@ -377,7 +492,7 @@ public class SocialNetwork extends Observable {
             throws ArcNotFound, VertexNotFound {
         Assert.check(u != null, "u is null");
         Assert.check(v != null, "v is null");
-        graph.deleteArc(u, v);
+        removeArc(u, v);
     }
 
     /**
@@ -392,6 +507,43 @@ public class SocialNetwork extends Observable {
         return graph.shortestPathsFrom(x);
     }
 
+    /**
+     * Renvoie les degrés de connaissances des comptes situés à au plus
+     * maxDepth relations du compte dénoté par x, en s'arrêtant après
+     * maxResults comptes. Les comptes non atteints sont absents du résultat.
+     * @param x Le compte à partir duquel calculer les degrés.
+     * @param maxDepth Le degré maximal des comptes à atteindre.
+     * @param maxResults Le nombre maximal de comptes à atteindre, x compris.
+     * @return Une map liant chaque compte atteint à son degré de
+     * connaissance, itérée par degré croissant.
+     */
+    @Override
+    public Map<Vertex, Integer> degreeKnowledge(Vertex x, int maxDepth,
+                                                int maxResults) {
+        return graph.shortestPathsFrom(x, maxDepth, maxResults);
+    }
+
+    /**
+     * @param x Le compte de départ.
+     * @param y Le compte d'arrivée.
+     * @return Le degré de connaissance séparant le compte dénoté par x du
+     * compte dénoté par y, Integer.MAX_VALUE si aucun lien ne les relie.
+     */
+    public int degreeBetween(Vertex x, Vertex y) {
+        return graph.distance(x, y);
+    }
+
+    /**
+     * @param x Le compte de départ.
+     * @param y Le compte d'arrivée.
+     * @return Une plus courte chaine de relations menant du compte dénoté par
+     * x au compte dénoté par y, x et y inclus, ou une liste vide si aucun
+     * lien ne les relie.
+     */
+    public List<Vertex> pathBetween(Vertex x, Vertex y) {
+        return graph.shortestPath(x, y);
+    }
+
     /**
      * Permet de sauvegarder l'état du réseau social dans un fichier.
      * dans un fichier getName().txt
@@ -406,11 +558,7 @@ public class SocialNetwork extends Observable {
         for (Vertex v : graph.vertexSet()) {
             Set<Vertex> out = graph.vertexFrom(v);
             if (out.size() > 0) {
-                StringBuilder line = new StringBuilder("A:" + v.getName());
-                for (Vertex u : graph.vertexFrom(v)) {
-                    line.append(":").append(u.getName());
-                }
-                output.write(line.toString());
+                output.write(arcLine(v, out));
                 output.newLine();
             }
         }
@@ -418,103 +566,446 @@ public class SocialNetwork extends Observable {
     }
 
     /**
-     * Permet d'initialiser le social à partir d'un fichier texte.
+     * Permet de sauvegarder l'état du réseau social au format texte de
+     * save(), réparti en fragments sous le manifeste getName() +
+     * ShardedStore.MANIFEST_EXTENSION. Seuls les fragments modifiés depuis
+     * le précédent appel, ou depuis le chargement du manifeste, sont
+     * réécrits (voir ShardedStore). Le premier appel sur un réseau qui n'a
+     * pas été chargé depuis ce manifeste réécrit tous les fragments et
+     * remplace l'enregistrement existant éventuellement sous ce nom.
+     */
+    public void saveIncremental() throws IOException {
+        if (store == null) {
+            store = ShardedStore.create(this, new File(getName()),
+                    ShardedStore.DEFAULT_SHARDS);
+        }
+        store.save();
+    }
+
+    /**
+     * Permet de sauvegarder l'état du réseau social dans un instantané
+     * binaire getName() + NetworkSnapshot.EXTENSION, plus compact et plus
+     * rapide à charger que le format texte de save().
+     */
+    public void saveSnapshot() throws IOException {
+        NetworkSnapshot.write(this, new File(getName()
+                + NetworkSnapshot.EXTENSION));
+    }
+
+    /**
+     * Permet de sauvegarder l'état du réseau social dans un instantané indexé
+     * getName() + NetworkSnapshot.EXTENSION, moins compact que celui de
+     * saveSnapshot mais consultable sans chargement via MappedSnapshot.open.
+     */
+    public void saveIndexedSnapshot() throws IOException {
+        MappedSnapshot.write(this, new File(getName()
+                + NetworkSnapshot.EXTENSION));
+    }
+
+    /**
+     * Permet d'initialiser le social à partir d'un fichier texte, d'un
+     * instantané binaire (voir saveSnapshot), reconnu à son en-tête, ou d'un
+     * manifeste (voir saveIncremental), reconnu à son extension.
      * Le nom du réseau social correspond au nom du fichier chargé sans son
-     * extension.
+     * extension. Le chargement est délégué à NetworkLoader, à
+     * NetworkSnapshot ou à ShardedStore ; un fichier texte d'au moins
+     * PARALLEL_LOAD_THRESHOLD octets est confié à ParallelNetworkLoader si
+     * plusieurs processeurs sont disponibles.
+     * Pour un fichier texte, DuplicateVertex et VertexNotFound sont levées à
+     * la première ligne fautive, tandis que DuplicateArc n'est levée qu'une
+     * fois tout le fichier lu : un arc vers un compte non déclaré l'emporte
+     * sur tout arc en double, quelle que soit leur position. L'arc en double
+     * signalé est celui dont les comptes de départ puis d'arrivée ont été
+     * déclarés les premiers, pas le premier doublon dans l'ordre du fichier.
      */
     public static SocialNetwork init(File f)
             throws IOException, VertexNotFound, DuplicateArc, DuplicateVertex {
-        BufferedReader input = new BufferedReader(new FileReader(f));
-        String name = f.getName().lastIndexOf('.') > -1
-                ? f.getName().substring(0, f.getName().lastIndexOf('.'))
-                : f.getName();
-        SocialNetwork social = new SocialNetwork(name);
-        String line;
-        while ((line = input.readLine()) != null) {
-            String[] comp = line.split(":");
-            switch (comp[0].charAt(0)) {
-                case 'U':
-                    social.createUser(comp[1], comp[2],
-                            Integer.parseInt(comp[3]));
-                    break;
-                case 'P':
-                    social.createPage(comp[1]);
-                    break;
-                case 'A':
-                    Vertex source = social.getVertexByName(comp[1]);
-                    for (int i = 2; i < comp.length; ++i) {
-                        Vertex dest = social.getVertexByName(comp[i]);
-                        if (source instanceof User) {
-                            if (dest instanceof User) {
-                                social.follow((User) source, (User) dest);
-                            } else {
-                                social.like((User) source, (Page) dest);
-                            }
-                        } else {
-                            social.addAdmin((Page) source, (User) dest);
-                        }
-                    }
-                    break;
-                default:
-                    throw new AssertionError("Unrecognized: \"" + line + "\"");
-            }
+        if (f.getName().endsWith(ShardedStore.MANIFEST_EXTENSION)) {
+            return ShardedStore.load(f);
+        }
+        if (NetworkSnapshot.isSnapshot(f)) {
+            return NetworkSnapshot.read(f);
         }
-        input.close();
-        return social;
+        if (f.length() >= PARALLEL_LOAD_THRESHOLD
+                && Runtime.getRuntime().availableProcessors() > 1) {
+            return new ParallelNetworkLoader().load(f);
+        }
+        return new NetworkLoader().load(f);
+    }
+
+    /**
+     * Restaure le réseau social journalisé sous le nom base : le dernier
+     * point de reprise est chargé, puis les modifications consignées depuis
+     * dans le journal sont rejouées. Toute modification ultérieure du réseau
+     * renvoyé est consignée dans le journal (voir MutationLog).
+     * @pre
+     *      base != null
+     * @param base Le chemin commun des fichiers du journal, sans extension.
+     * Le nom du réseau social est celui de ce fichier.
+     * @return Le réseau social restauré, vide si rien n'a été journalisé.
+     */
+    public static SocialNetwork recover(File base) throws IOException {
+        return MutationLog.recover(base);
     }
 
     /**
-     * Exécute l'algorithme de PageRank sur les comptes du réseau social.
+     * Commence à journaliser ce réseau social sous le nom base : un point de
+     * reprise contenant son état actuel est écrit, puis toute modification
+     * ultérieure est consignée dans le journal, qui remplace celui existant
+     * éventuellement sous ce nom (voir MutationLog.start).
      * @pre
-     *     graphe.vertexCount() > 0
+     *      base != null
+     *      getLog() == null
+     * @param base Le chemin commun des fichiers du journal, sans extension.
+     * @return Le journal attaché à ce réseau.
+     */
+    public MutationLog startLog(File base) throws IOException {
+        return MutationLog.start(this, base);
+    }
+
+    /**
+     * Active le mode incrémental de pageRank() : le classement est dès lors
+     * maintenu au fil des modifications du réseau, et une requête ne coûte
+     * que le temps nécessaire à la propagation des dernières modifications.
+     * Le classement est celui de pageRank(PageRank.DEFAULT_DAMPING,
+     * PageRank.DEFAULT_MAX_ITERATIONS), à la tolérance près (voir
+     * IncrementalPageRank).
+     */
+    public void enableIncrementalPageRank() {
+        if (liveRank == null) {
+            liveRank = new IncrementalPageRank(graph,
+                    PageRank.DEFAULT_DAMPING, INCREMENTAL_TOLERANCE);
+        }
+    }
+
+    /**
+     * Exécute l'algorithme de PageRank sur les comptes du réseau social, avec
+     * les paramètres par défaut de PageRank. Si le mode incrémental est
+     * activé, le classement maintenu est renvoyé.
      * @return L'ensemble des sommets triés par leur influence décroissante.
      */
     public Set<Vertex> pageRank() {
-        if (graph.vertexCount() == 0) {
-            return new HashSet<Vertex>(0);
+        if (liveRank != null) {
+            return new LinkedHashSet<Vertex>(liveRank.ranking());
         }
-        HashMap<Vertex, Double> pr = new HashMap<Vertex, Double>();
-        // INITIALISATION DU PAGERANK POUR TOUT LES SOMMETS
-        for (Vertex v : graph.vertexSet()) {
-            pr.put(v, 1.0);
-        }
-        // CALCUL DU PAGERANK
-        int i = 0;
-        final int valeur = 100;
-        final double f1 = 0.15;
-        final double f2 = 0.85;
-        while (i <= valeur) {
-            for (Vertex v : graph.vertexSet()) {
-                double value;
-                // SOMME DES VOISINS ENTRANTS DE V.
-                double sum = 0.0;
-                for (Vertex e : graph.vertexTo(v)) {
-                    sum = sum + (pr.get(e) / graph.vertexFrom(e).size());
+        return pageRank(PageRank.DEFAULT_DAMPING,
+                PageRank.DEFAULT_MAX_ITERATIONS);
+    }
+
+    /**
+     * Exécute l'algorithme de PageRank sur une photographie des comptes du
+     * réseau social, en répartissant le calcul sur tous les processeurs
+     * disponibles.
+     * @pre
+     *      0 <= damping < 1
+     *      maxIterations > 0
+     * @param damping Le facteur d'amortissement.
+     * @param maxIterations Le nombre maximal d'itérations.
+     * @return L'ensemble des sommets triés par leur influence décroissante.
+     */
+    public Set<Vertex> pageRank(double damping, int maxIterations) {
+        return pageRank(damping, maxIterations,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Exécute l'algorithme de PageRank sur une photographie des comptes du
+     * réseau social. Le résultat ne dépend pas du nombre de threads utilisés.
+     * @pre
+     *      0 <= damping < 1
+     *      maxIterations > 0
+     *      parallelism > 0
+     * @param damping Le facteur d'amortissement.
+     * @param maxIterations Le nombre maximal d'itérations.
+     * @param parallelism Le nombre de threads à utiliser.
+     * @return L'ensemble des sommets triés par leur influence décroissante.
+     */
+    public Set<Vertex> pageRank(double damping, int maxIterations,
+                                int parallelism) {
+        CsrGraph snapshot = graph.freeze();
+        PageRank pr = new PageRank(snapshot);
+        pr.setDamping(damping);
+        pr.setMaxIterations(maxIterations);
+        pr.setParallelism(parallelism);
+        return sortedByRank(snapshot, pr.compute());
+    }
+
+    /**
+     * Recommande à l'utilisateur dénoté par u les comptes (utilisateurs et
+     * pages) les plus proches de lui au sens du PageRank personnalisé depuis
+     * u, calculé sur les relations de suivi, de like et d'administration.
+     * Les comptes que u suit ou aime déjà sont ignorés.
+     * @pre
+     *      u != null
+     *      k >= 0
+     * @param u L'utilisateur à qui recommander des comptes.
+     * @param k Le nombre maximal de recommandations.
+     * @return Au plus k comptes, du plus recommandé au moins recommandé.
+     */
+    public List<Vertex> recommendFollows(User u, int k) throws VertexNotFound {
+        Assert.check(u != null, "u is null");
+        Assert.check(k >= 0, "k must not be negative");
+        if (!graph.containsVertex(u)) {
+            throw new VertexNotFound(u);
+        }
+        PersonalizedPageRank ppr = new PersonalizedPageRank(graph,
+                PageRank.DEFAULT_DAMPING, RECOMMENDATION_EPSILON,
+                RECOMMENDATION_BUDGET);
+        final Map<Vertex, Double> scores = ppr.from(u);
+        scores.remove(u);
+        scores.keySet().removeAll(graph.vertexFrom(u));
+        List<Vertex> result = new ArrayList<Vertex>(scores.keySet());
+        Collections.sort(result, new Comparator<Vertex>() {
+            @Override
+            public int compare(Vertex o1, Vertex o2) {
+                int d = scores.get(o2).compareTo(scores.get(o1));
+                if (d != 0) {
+                    return d;
                 }
-                value = (f1 / graph.vertexCount()) + f2 * sum;
-                pr.put(v, value);
-                ++i;
+                return o1.compareTo(o2);
             }
+        });
+        if (result.size() > k) {
+            return new ArrayList<Vertex>(result.subList(0, k));
         }
-        // Tri de la map selon le valeur du pagerank
-        return sortedByValue(pr).keySet();
+        return result;
     }
 
     // OUTILS
-    private HashMap<Vertex, Double> sortedByValue(HashMap<Vertex, Double> map) {
-        List<Map.Entry<Vertex, Double>> list =
-                new LinkedList<Map.Entry<Vertex, Double>>(map.entrySet());
-        Collections.sort(list, new Comparator<Map.Entry<Vertex, Double>>() {
+
+    /**
+     * Ajoute le sommet dénoté par x au graphe et aux index de ce réseau.
+     * @param x Le sommet à ajouter.
+     */
+    void addVertex(Vertex x) throws DuplicateVertex {
+        graph.addVertex(x);
+        index(x);
+        if (liveRank != null) {
+            liveRank.vertexAdded(x);
+        }
+        if (log != null) {
+            log.vertexAdded(x);
+        }
+        if (store != null) {
+            store.vertexAdded(x);
+        }
+    }
+
+    /**
+     * Retire le sommet dénoté par x du graphe et des index de ce réseau.
+     * @param x Le sommet à retirer.
+     */
+    void removeVertex(Vertex x) throws VertexNotFound {
+        Assert.check(x != null, "x is null");
+        if (liveRank != null && graph.containsVertex(x)) {
+            liveRank.vertexRemoving(x);
+        }
+        if (store != null && graph.containsVertex(x)) {
+            store.vertexRemoving(x);
+        }
+        graph.removeVertex(x);
+        if (x instanceof User) {
+            users.remove(x);
+            ages.remove(((User) x).getAge());
+            admins.removeUser((User) x);
+        } else if (x instanceof Page) {
+            pages.remove(x);
+            admins.removePage((Page) x);
+        }
+        if (log != null) {
+            log.vertexRemoved(x);
+        }
+    }
+
+    /**
+     * Consigne désormais les modifications de ce réseau dans le journal
+     * dénoté par log.
+     * @param log Le journal, ou null pour ne plus journaliser.
+     */
+    void attachLog(MutationLog log) {
+        this.log = log;
+    }
+
+    /**
+     * Tient désormais l'enregistrement fragmenté dénoté par store informé
+     * des modifications de ce réseau.
+     * @param store L'enregistrement fragmenté de ce réseau.
+     */
+    void attachStore(ShardedStore store) {
+        this.store = store;
+    }
+
+    /**
+     * @param x Un compte.
+     * @param out Les successeurs du compte dénoté par x.
+     * @return La ligne du format texte de save() décrivant les relations de
+     * x vers les comptes de out.
+     */
+    static String arcLine(Vertex x, Set<Vertex> out) {
+        StringBuilder line = new StringBuilder("A:").append(x.getName());
+        for (Vertex y : out) {
+            line.append(':').append(y.getName());
+        }
+        return line.toString();
+    }
+
+    /**
+     * Ajoute le sommet dénoté par x à l'index de son type.
+     * @param x Un sommet du graphe.
+     */
+    private void index(Vertex x) {
+        if (x instanceof User) {
+            users.add((User) x);
+            ages.add(((User) x).getAge());
+        } else if (x instanceof Page) {
+            pages.add((Page) x);
+        }
+    }
+
+    /**
+     * Étiquette par la relation qu'ils représentent les arcs non étiquetés du
+     * graphe, créés hors de ce réseau social.
+     */
+    private void labelArcs() {
+        List<Arc> unlabelled = new ArrayList<Arc>();
+        for (Arc a : graph.arcSet()) {
+            if (a.getLabel() == null) {
+                unlabelled.add(a);
+            }
+        }
+        try {
+            for (Arc a : unlabelled) {
+                graph.deleteArc(a);
+                graph.createArc(a.getFrom(), a.getTo(),
+                        Relation.between(a.getFrom(), a.getTo()));
+            }
+        } catch (ArcNotFound e) {
+            throw new AssertionError(e);
+        } catch (VertexNotFound e) {
+            throw new AssertionError(e);
+        } catch (DuplicateArc e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Ajoute l'arc de x vers y à l'index des administrateurs s'il s'agit
+     * d'une relation d'administration.
+     * @param x Le sommet de départ.
+     * @param y Le sommet d'arrivée.
+     */
+    private void indexArc(Vertex x, Vertex y) {
+        if (x instanceof Page && y instanceof User) {
+            admins.add((Page) x, (User) y);
+        }
+    }
+
+    /**
+     * @param x Un sommet du graphe.
+     * @param y Un sommet du graphe.
+     * @return true si le graphe contient l'arc de x vers y.
+     */
+    boolean containsArc(Vertex x, Vertex y) throws VertexNotFound {
+        return graph.containsArc(x, y);
+    }
+
+    /**
+     * Crée l'arc de x vers y dans le graphe et dans les index de ce réseau.
+     * @param x Le sommet de départ.
+     * @param y Le sommet d'arrivée.
+     */
+    void addArc(Vertex x, Vertex y)
+            throws DuplicateArc, VertexNotFound {
+        Relation r = Relation.between(x, y);
+        Assert.check(r != null, "no relation between x and y");
+        graph.createArc(x, y, r);
+        indexArc(x, y);
+        if (liveRank != null) {
+            liveRank.arcAdded(x, y);
+        }
+        if (log != null) {
+            log.arcAdded(x, y);
+        }
+        if (store != null) {
+            store.arcChanged(x);
+        }
+    }
+
+    /**
+     * Crée en bloc les arcs de la liste dénotée par arcs, chacun étiqueté par
+     * la relation qu'il représente, dans le graphe et dans les index de ce
+     * réseau (voir Graph.createArcs).
+     * @param arcs Les arcs à créer.
+     */
+    void addArcs(List<Arc> arcs) throws DuplicateArc, VertexNotFound {
+        for (Arc a : arcs) {
+            Relation r = Relation.between(a.getFrom(), a.getTo());
+            Assert.check(r != null && a.getLabel() == r,
+                    "arc is not labelled by its relation");
+        }
+        graph.createArcs(arcs);
+        for (Arc a : arcs) {
+            indexArc(a.getFrom(), a.getTo());
+            if (liveRank != null) {
+                liveRank.arcAdded(a.getFrom(), a.getTo());
+            }
+            if (log != null) {
+                log.arcAdded(a.getFrom(), a.getTo());
+            }
+            if (store != null) {
+                store.arcChanged(a.getFrom());
+            }
+        }
+    }
+
+    /**
+     * Supprime l'arc de x vers y du graphe et des index de ce réseau.
+     * @param x Le sommet de départ.
+     * @param y Le sommet d'arrivée.
+     */
+    void removeArc(Vertex x, Vertex y)
+            throws ArcNotFound, VertexNotFound {
+        graph.deleteArc(x, y);
+        if (x instanceof Page && y instanceof User) {
+            admins.remove((Page) x, (User) y);
+        }
+        if (liveRank != null) {
+            liveRank.arcRemoved(x, y);
+        }
+        if (log != null) {
+            log.arcRemoved(x, y);
+        }
+        if (store != null) {
+            store.arcChanged(x);
+        }
+    }
+
+    /**
+     * @param snapshot La photographie sur laquelle les rangs ont été calculés.
+     * @param rank Les rangs indexés par identifiant de sommet.
+     * @return Les sommets de la photographie triés par rang décroissant, puis
+     * par nom.
+     */
+    private static Set<Vertex> sortedByRank(CsrGraph snapshot,
+                                            final double[] rank) {
+        Integer[] ids = new Integer[rank.length];
+        for (int i = 0; i < ids.length; ++i) {
+            ids[i] = i;
+        }
+        Arrays.sort(ids, new Comparator<Integer>() {
             @Override
-            public int compare(Map.Entry<Vertex, Double> o1,
-                               Map.Entry<Vertex, Double> o2) {
-                return (o2.getValue().compareTo(o1.getValue()));
+            public int compare(Integer o1, Integer o2) {
+                int d = Double.compare(rank[o2], rank[o1]);
+                if (d != 0) {
+                    return d;
+                }
+                return o1.compareTo(o2);
             }
         });
-        HashMap<Vertex, Double> sortedMap = new LinkedHashMap<Vertex, Double>();
-        for (Map.Entry<Vertex, Double> entry : list) {
-            sortedMap.put(entry.getKey(), entry.getValue());
+        Set<Vertex> result = new LinkedHashSet<Vertex>();
+        for (Integer id : ids) {
+            result.add(snapshot.vertexAt(id));
         }
-        return sortedMap;
+        return result;
     }
 }
@@ -10,7 +10,10 @@ public class User extends Vertex {
 
     // CONSTANTES
 
-    private static final int AGE_MINIMUM = 16;
+    /**
+     * L'âge minimal d'un utilisateur.
+     */
+    public static final int AGE_MINIMUM = 16;
 
     // ATTRIBUTS
 
@@ -29,6 +32,11 @@ public class User extends Vertex {
      */
     private final int age;
 
+    /**
+     * L'identifiant de l'utilisateur, "nom prénom", construit une seule fois.
+     */
+    private final String name;
+
     // CONSTRUCTEURS
 
     /**
@@ -48,6 +56,7 @@ public class User extends Vertex {
         this.lastname = lastname;
         this.firstname = firstname;
         this.age = age;
+        this.name = lastname + " " + firstname;
     }
 
     // REQUETES
@@ -77,7 +86,7 @@ public class User extends Vertex {
      * Permte d'identifier un utilisateur selon son nom et son prénom.
      */
     public String getName() {
-        return getLastName() + " " + getFirstName();
+        return name;
     }
 
     /**
@@ -89,6 +98,6 @@ public class User extends Vertex {
 
     @Override
     public String toString() {
-        return getLastName() + " " + getFirstName() + " - " + getAge() + " ans";
+        return getName() + " - " + getAge() + " ans";
     }
 }